@@ -0,0 +1,224 @@
+package tech.picnic.errorprone.documentation;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Writes extracted data to one newline-delimited JSON file per {@link Extractor}, using a
+ * background thread.
+ *
+ * <p>Records are handed to the background thread through a bounded queue; if it falls behind,
+ * callers block until capacity becomes available. This limits memory usage while keeping (most) I/O
+ * off the compiler's critical path. Records must thus be immutable.
+ *
+ * <p>Optionally, records written by a previous instance are retained, unless their name is {@link
+ * #supersede(String) superseded}. This way, only the classes that were actually (re)processed
+ * during a compilation affect the output. Otherwise each file written to contains only the records
+ * written by this instance.
+ *
+ * <p>The first failure encountered by the background thread is rethrown by the next call to {@link
+ * #write(String, String, Object)} or {@link #close()}.
+ */
+final class BackgroundRecordWriter implements Closeable {
+  private static final int QUEUE_CAPACITY = 1024;
+
+  /** A sentinel value, compared by reference, that marks the end of the queue. */
+  private static final PendingRecord END_OF_INPUT = new PendingRecord("", "", "");
+
+  private final Path directory;
+  private final ImmutableSet<String> identifiers;
+  private final boolean retainPreviousRecords;
+  private final BlockingQueue<PendingRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final Set<String> supersededNames = ConcurrentHashMap.newKeySet();
+  private final Thread thread;
+  private volatile @Nullable RuntimeException failure;
+  private boolean closed;
+
+  /**
+   * Instantiates a new {@link BackgroundRecordWriter}, and starts its background thread.
+   *
+   * @param directory The directory in which to create a {@code <identifier>.ndjson} file for each
+   *     extractor.
+   * @param identifiers The identifiers of the extractors whose previously written records should be
+   *     updated, even if no new records are written for them.
+   * @param retainPreviousRecords Whether to retain records written by a previous instance that are
+   *     not superseded.
+   */
+  BackgroundRecordWriter(
+      Path directory, ImmutableSet<String> identifiers, boolean retainPreviousRecords) {
+    this.directory = directory;
+    this.identifiers = identifiers;
+    this.retainPreviousRecords = retainPreviousRecords;
+    this.thread = new Thread(this::run, "documentation-record-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Indicates that previously written records with the given name must be discarded.
+   *
+   * @param name The name of the records to discard; typically the name of a class from which data
+   *     is (re)extracted.
+   */
+  void supersede(String name) {
+    supersededNames.add(name);
+  }
+
+  /**
+   * Schedules the given record to be written.
+   *
+   * @param identifier The identifier of the {@link Extractor} that extracted the data.
+   * @param name The name of the record; typically the name of the class from which the data was
+   *     extracted.
+   * @param data The immutable data to be written.
+   */
+  void write(String identifier, String name, Object data) {
+    checkState(!closed, "Writer is closed");
+    rethrowFailure();
+    Uninterruptibles.putUninterruptibly(queue, new PendingRecord(identifier, name, data));
+  }
+
+  /** Writes all pending records, and closes the files written to. */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      Uninterruptibles.putUninterruptibly(queue, END_OF_INPUT);
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    rethrowFailure();
+  }
+
+  private void rethrowFailure() {
+    RuntimeException e = failure;
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  @SuppressWarnings({
+    "checkstyle:IllegalCatch" /* Failures are rethrown by the calling thread. */,
+    "ReferenceEquality"
+  })
+  private void run() {
+    Map<String, Json.RecordWriter> writers = new HashMap<>();
+    try {
+      for (PendingRecord next = take(); next != END_OF_INPUT; next = take()) {
+        if (failure == null) {
+          try {
+            writers
+                .computeIfAbsent(next.identifier, this::openTemporaryFile)
+                .write(next.name, next.data);
+          } catch (RuntimeException e) {
+            failure = e;
+          }
+        }
+      }
+
+      if (failure == null && retainPreviousRecords) {
+        for (String identifier : Sets.union(identifiers, writers.keySet()).immutableCopy()) {
+          retainPreviousRecords(identifier, writers);
+        }
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    } finally {
+      closeAll(writers);
+    }
+
+    if (failure == null) {
+      moveIntoPlace(writers.keySet());
+    }
+  }
+
+  private void retainPreviousRecords(String identifier, Map<String, Json.RecordWriter> writers) {
+    Path file = getFile(identifier);
+    if (!Files.exists(file)) {
+      return;
+    }
+
+    /* Ensure that the file is updated even if all previous records are superseded. */
+    Json.RecordWriter writer = writers.computeIfAbsent(identifier, this::openTemporaryFile);
+    try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (!line.isEmpty() && !supersededNames.contains(Json.readRecordName(line))) {
+          writer.copy(line);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Failure reading from '%s'", file), e);
+    }
+  }
+
+  @SuppressWarnings("checkstyle:IllegalCatch" /* Failures are rethrown by the calling thread. */)
+  private void closeAll(Map<String, Json.RecordWriter> writers) {
+    for (Json.RecordWriter writer : writers.values()) {
+      try {
+        writer.close();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  private void moveIntoPlace(Set<String> writtenIdentifiers) {
+    for (String identifier : writtenIdentifiers) {
+      Path file = getFile(identifier);
+      try {
+        Files.move(getTemporaryFile(identifier), file, REPLACE_EXISTING);
+      } catch (IOException e) {
+        failure = new UncheckedIOException(String.format("Failure writing to '%s'", file), e);
+        return;
+      }
+    }
+  }
+
+  private Json.RecordWriter openTemporaryFile(String identifier) {
+    return Json.openRecordWriter(getTemporaryFile(identifier));
+  }
+
+  private Path getFile(String identifier) {
+    return directory.resolve(identifier + ".ndjson");
+  }
+
+  private Path getTemporaryFile(String identifier) {
+    return directory.resolve(identifier + ".ndjson.tmp");
+  }
+
+  private PendingRecord take() {
+    return Uninterruptibles.takeUninterruptibly(queue);
+  }
+
+  /** A single record to be written. */
+  private static final class PendingRecord {
+    private final String identifier;
+    private final String name;
+    private final Object data;
+
+    PendingRecord(String identifier, String name, Object data) {
+      this.identifier = identifier;
+      this.name = name;
+      this.data = data;
+    }
+  }
+}
@@ -1,20 +1,31 @@
 package tech.picnic.errorprone.documentation;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 
 import com.google.auto.service.AutoService;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.Plugin;
 import com.sun.tools.javac.api.BasicJavacTask;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * A compiler {@link Plugin} that analyzes and extracts relevant information for documentation
  * purposes from processed files.
+ *
+ * <p>By default the data extracted from each class is written to a separate JSON file. Passing
+ * {@code -XoutputFormat=ndjson} instead causes all data extracted by a given {@link Extractor} to
+ * be written to a single newline-delimited JSON file, on a background thread.
+ *
+ * <p>Passing {@code -Xincremental} causes extraction to be skipped for source files that did not
+ * change since the last compilation, retaining the previously extracted data.
  */
 // XXX: Find a better name for this class; it doesn't generate documentation per se.
 @AutoService(Plugin.class)
@@ -22,6 +33,10 @@ public final class DocumentationGenerator implements Plugin {
   @VisibleForTesting static final String OUTPUT_DIRECTORY_FLAG = "-XoutputDirectory";
   private static final Pattern OUTPUT_DIRECTORY_FLAG_PATTERN =
       Pattern.compile(Pattern.quote(OUTPUT_DIRECTORY_FLAG) + "=(.*)");
+  @VisibleForTesting static final String OUTPUT_FORMAT_FLAG = "-XoutputFormat";
+  private static final Pattern OUTPUT_FORMAT_FLAG_PATTERN =
+      Pattern.compile(Pattern.quote(OUTPUT_FORMAT_FLAG) + "=(.*)");
+  @VisibleForTesting static final String INCREMENTAL_FLAG = "-Xincremental";
 
   /** Instantiates a new {@link DocumentationGenerator} instance. */
   public DocumentationGenerator() {}
@@ -33,11 +48,24 @@ public final class DocumentationGenerator implements Plugin {
 
   @Override
   public void init(JavacTask javacTask, String... args) {
-    checkArgument(args.length == 1, "Precisely one path must be provided");
+    boolean incremental = Arrays.asList(args).contains(INCREMENTAL_FLAG);
+    ImmutableList<String> pathArgs =
+        Arrays.stream(args)
+            .filter(a -> !a.startsWith(OUTPUT_FORMAT_FLAG) && !a.equals(INCREMENTAL_FLAG))
+            .collect(toImmutableList());
+    ImmutableList<String> formatArgs =
+        Arrays.stream(args)
+            .filter(a -> a.startsWith(OUTPUT_FORMAT_FLAG))
+            .collect(toImmutableList());
+    checkArgument(pathArgs.size() == 1, "Precisely one path must be provided");
+    checkArgument(formatArgs.size() <= 1, "At most one output format may be provided");
 
     javacTask.addTaskListener(
         new DocumentationGeneratorTaskListener(
-            ((BasicJavacTask) javacTask).getContext(), getOutputPath(args[0])));
+            ((BasicJavacTask) javacTask).getContext(),
+            getOutputPath(pathArgs.get(0)),
+            formatArgs.isEmpty() ? OutputFormat.JSON : getOutputFormat(formatArgs.get(0)),
+            incremental));
   }
 
   @VisibleForTesting
@@ -53,4 +81,28 @@ public final class DocumentationGenerator implements Plugin {
       throw new IllegalArgumentException(String.format("Invalid path '%s'", path), e);
     }
   }
+
+  @VisibleForTesting
+  static OutputFormat getOutputFormat(String formatArg) {
+    Matcher matcher = OUTPUT_FORMAT_FLAG_PATTERN.matcher(formatArg);
+    checkArgument(
+        matcher.matches(), "'%s' must be of the form '%s=<value>'", formatArg, OUTPUT_FORMAT_FLAG);
+
+    String format = matcher.group(1);
+    try {
+      return OutputFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid output format '%s'", format), e);
+    }
+  }
+
+  /** The supported formats in which to write extracted data. */
+  enum OutputFormat {
+    /** Writes the data extracted from each class to a separate JSON file. */
+    JSON,
+    /**
+     * Writes all data extracted by an {@link Extractor} to a single newline-delimited JSON file.
+     */
+    NDJSON
+  }
 }
@@ -1,6 +1,15 @@
 package tech.picnic.errorprone.documentation;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.errorprone.VisitorState;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
@@ -11,16 +20,26 @@ import com.sun.source.util.TreePath;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.util.Context;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ServiceLoader;
 import javax.tools.JavaFileObject;
+import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.documentation.DocumentationGenerator.OutputFormat;
 
 /**
  * A {@link TaskListener} that identifies and extracts relevant content for documentation generation
  * and writes it to disk.
+ *
+ * <p>In incremental mode, an {@link ExtractionManifest} is maintained in the output directory, and
+ * extraction is skipped for classes whose source file and extraction configuration did not change
+ * since the data was last extracted. The data extracted previously is then retained instead. Data
+ * extracted from source files that no longer exist is removed.
  */
 // XXX: Find a better name for this class; it doesn't generate documentation per se.
 final class DocumentationGeneratorTaskListener implements TaskListener {
@@ -33,10 +52,19 @@ final class DocumentationGeneratorTaskListener implements TaskListener {
 
   private final Context context;
   private final Path docsPath;
+  private final OutputFormat outputFormat;
+  private final boolean incremental;
+  private final Supplier<ImmutableMap<String, String>> previousSourceHashes =
+      Suppliers.memoize(this::readPreviousSourceHashes);
+  private final Map<String, String> sourceHashes = new HashMap<>();
+  private @Nullable BackgroundRecordWriter recordWriter;
 
-  DocumentationGeneratorTaskListener(Context context, Path path) {
+  DocumentationGeneratorTaskListener(
+      Context context, Path path, OutputFormat outputFormat, boolean incremental) {
     this.context = context;
     this.docsPath = path;
+    this.outputFormat = outputFormat;
+    this.incremental = incremental;
   }
 
   @Override
@@ -48,6 +76,13 @@ final class DocumentationGeneratorTaskListener implements TaskListener {
 
   @Override
   public void finished(TaskEvent taskEvent) {
+    if (taskEvent.getKind() == Kind.COMPILATION) {
+      ImmutableSet<String> removedSources = incremental ? findRemovedSources() : ImmutableSet.of();
+      removedSources.forEach(this::discardExtractedData);
+      closeRecordWriter();
+      writeManifest(removedSources);
+    }
+
     if (taskEvent.getKind() != Kind.ANALYZE) {
       return;
     }
@@ -59,6 +94,15 @@ final class DocumentationGeneratorTaskListener implements TaskListener {
       return;
     }
 
+    if (incremental && isUpToDate(sourceFile)) {
+      return;
+    }
+
+    String className = getSimpleClassName(sourceFile.toUri());
+    if (outputFormat == OutputFormat.NDJSON) {
+      getRecordWriter().supersede(className);
+    }
+
     VisitorState state =
         VisitorState.createForUtilityPurposes(context)
             .withPath(new TreePath(new TreePath(compilationUnit), classTree));
@@ -66,10 +110,74 @@ final class DocumentationGeneratorTaskListener implements TaskListener {
     for (Extractor<?> extractor : EXTRACTORS) {
       extractor
           .tryExtract(classTree, state)
-          .ifPresent(
-              data ->
-                  writeToFile(
-                      extractor.identifier(), getSimpleClassName(sourceFile.toUri()), data));
+          .ifPresent(data -> writeToFile(extractor.identifier(), className, data));
+    }
+  }
+
+  /**
+   * Tells whether data was previously extracted from the given source file, using the current
+   * extraction configuration.
+   */
+  private boolean isUpToDate(JavaFileObject sourceFile) {
+    String uri = sourceFile.toUri().toString();
+    String hash = sourceHashes.computeIfAbsent(uri, k -> hashSource(sourceFile));
+    return hash.equals(previousSourceHashes.get().get(uri));
+  }
+
+  private String hashSource(JavaFileObject sourceFile) {
+    Hasher hasher = Hashing.sha256().newHasher().putString(outputFormat.name(), UTF_8);
+    for (Extractor<?> extractor : EXTRACTORS) {
+      hasher.putString(extractor.identifier(), UTF_8).putInt(extractor.version());
+    }
+
+    try {
+      return hasher.putString(sourceFile.getCharContent(true), UTF_8).hash().toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Failure reading from '%s'", sourceFile.toUri()), e);
+    }
+  }
+
+  private ImmutableMap<String, String> readPreviousSourceHashes() {
+    return ExtractionManifest.read(docsPath)
+        .map(ExtractionManifest::sourceHashes)
+        .orElseGet(ImmutableMap::of);
+  }
+
+  /**
+   * Returns the URIs of the source files listed in the manifest that were not part of the current
+   * compilation, and that no longer exist.
+   */
+  private ImmutableSet<String> findRemovedSources() {
+    return previousSourceHashes.get().keySet().stream()
+        .filter(uri -> !sourceHashes.containsKey(uri) && !exists(URI.create(uri)))
+        .collect(toImmutableSet());
+  }
+
+  private void discardExtractedData(String sourceUri) {
+    String className = getSimpleClassName(URI.create(sourceUri));
+    if (outputFormat == OutputFormat.NDJSON) {
+      getRecordWriter().supersede(className);
+      return;
+    }
+
+    for (Extractor<?> extractor : EXTRACTORS) {
+      Path file = getJsonFile(extractor.identifier(), className);
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Failure deleting '%s'", file), e);
+      }
+    }
+  }
+
+  private void writeManifest(ImmutableSet<String> removedSources) {
+    if (incremental && (!sourceHashes.isEmpty() || !removedSources.isEmpty())) {
+      Map<String, String> hashes = new HashMap<>(previousSourceHashes.get());
+      hashes.keySet().removeAll(removedSources);
+      hashes.putAll(sourceHashes);
+      sourceHashes.clear();
+      ExtractionManifest.create(hashes).write(docsPath);
     }
   }
 
@@ -83,7 +191,38 @@ final class DocumentationGeneratorTaskListener implements TaskListener {
   }
 
   private <T> void writeToFile(String identifier, String className, T data) {
-    Json.write(docsPath.resolve(String.format("%s-%s.json", identifier, className)), data);
+    if (outputFormat == OutputFormat.NDJSON) {
+      getRecordWriter().write(identifier, className, data);
+    } else {
+      Json.write(getJsonFile(identifier, className), data);
+    }
+  }
+
+  private Path getJsonFile(String identifier, String className) {
+    return docsPath.resolve(String.format("%s-%s.json", identifier, className));
+  }
+
+  private BackgroundRecordWriter getRecordWriter() {
+    if (recordWriter == null) {
+      recordWriter =
+          new BackgroundRecordWriter(
+              docsPath,
+              EXTRACTORS.stream().map(Extractor::identifier).collect(toImmutableSet()),
+              /* retainPreviousRecords= */ incremental);
+    }
+    return recordWriter;
+  }
+
+  private void closeRecordWriter() {
+    if (recordWriter != null) {
+      BackgroundRecordWriter writer = recordWriter;
+      recordWriter = null;
+      writer.close();
+    }
+  }
+
+  private static boolean exists(URI sourceFile) {
+    return !"file".equals(sourceFile.getScheme()) || Files.exists(Path.of(sourceFile));
   }
 
   private static String getSimpleClassName(URI path) {
@@ -0,0 +1,64 @@
+package tech.picnic.errorprone.documentation;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Describes the source files from which documentation data was previously extracted, such that
+ * extraction can be skipped for source files that did not change since.
+ *
+ * <p>For each source file, a hash of its content and of the extraction configuration (i.e. the
+ * output format and the identifier and version of each {@link Extractor}) is recorded.
+ */
+@AutoValue
+@JsonDeserialize(as = AutoValue_ExtractionManifest.class)
+abstract class ExtractionManifest {
+  /** The name of the file, relative to the output directory, that holds the manifest. */
+  static final String FILE_NAME = "extraction-manifest.json";
+
+  private static final int FORMAT_VERSION = 1;
+
+  abstract int formatVersion();
+
+  /**
+   * Returns the hash of each source file from which data was extracted.
+   *
+   * @return A mapping from source file URIs to hashes of their content and the extraction
+   *     configuration.
+   */
+  abstract ImmutableMap<String, String> sourceHashes();
+
+  static ExtractionManifest create(Map<String, String> sourceHashes) {
+    return new AutoValue_ExtractionManifest(
+        FORMAT_VERSION, ImmutableSortedMap.copyOf(sourceHashes));
+  }
+
+  /**
+   * Reads the manifest stored in the given output directory, if any.
+   *
+   * @param directory The output directory.
+   * @return The manifest, unless it does not exist or was written using an unsupported format.
+   */
+  static Optional<ExtractionManifest> read(Path directory) {
+    Path file = directory.resolve(FILE_NAME);
+    return Files.exists(file)
+        ? Optional.of(Json.read(file, ExtractionManifest.class))
+            .filter(m -> m.formatVersion() == FORMAT_VERSION)
+        : Optional.empty();
+  }
+
+  /**
+   * Writes this manifest to the given output directory.
+   *
+   * @param directory The output directory.
+   */
+  void write(Path directory) {
+    Json.write(directory.resolve(FILE_NAME), this);
+  }
+}
@@ -20,6 +20,16 @@ interface Extractor<T> {
    */
   String identifier();
 
+  /**
+   * Returns the version of this extractor, which must be changed whenever the data extracted from a
+   * given {@link ClassTree} changes, such that previously extracted data is not reused.
+   *
+   * @return An arbitrary number.
+   */
+  default int version() {
+    return 1;
+  }
+
   /**
    * Attempts to extract an instance of type {@link T} using the provided arguments.
    *
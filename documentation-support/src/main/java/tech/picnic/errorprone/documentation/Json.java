@@ -2,10 +2,17 @@ package tech.picnic.errorprone.documentation;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.google.errorprone.annotations.FormatMethod;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
@@ -19,6 +26,8 @@ final class Json {
       new ObjectMapper()
           .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
           .registerModules(new GuavaModule(), new ParameterNamesModule());
+  private static final ObjectWriter RECORD_WRITER =
+      OBJECT_MAPPER.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
   private Json() {}
 
@@ -38,8 +47,101 @@ final class Json {
     }
   }
 
+  /**
+   * Creates or truncates the given newline-delimited JSON file, and opens it for writing.
+   *
+   * @param path The file to write.
+   * @return A {@link RecordWriter} that appends records to the file.
+   */
+  static RecordWriter openRecordWriter(Path path) {
+    try {
+      JsonGenerator generator =
+          OBJECT_MAPPER.getFactory().createGenerator(path.toFile(), JsonEncoding.UTF8);
+      generator.setRootValueSeparator(null);
+      return new RecordWriter(path, generator);
+    } catch (IOException e) {
+      throw failure(e, "Failure writing to '%s'", path);
+    }
+  }
+
+  /**
+   * Returns the name of the given record, as written by {@link RecordWriter#write(String, Object)}.
+   *
+   * @param line A single line of a newline-delimited JSON file.
+   * @return The name of the record.
+   */
+  static String readRecordName(String line) {
+    try {
+      JsonNode name = OBJECT_MAPPER.readTree(line).get("name");
+      if (name == null || !name.isTextual()) {
+        throw new IllegalArgumentException(String.format("Malformed record '%s'", line));
+      }
+      return name.textValue();
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(String.format("Malformed record '%s'", line), e);
+    }
+  }
+
   @FormatMethod
   private static UncheckedIOException failure(IOException cause, String format, Object... args) {
     return new UncheckedIOException(String.format(format, args), cause);
   }
+
+  /**
+   * Writes named JSON records to a newline-delimited JSON file, one record per line.
+   *
+   * <p>Records are streamed to the file as they are written; they are flushed once the writer is
+   * closed.
+   */
+  static final class RecordWriter implements Closeable {
+    private final Path path;
+    private final JsonGenerator generator;
+
+    private RecordWriter(Path path, JsonGenerator generator) {
+      this.path = path;
+      this.generator = generator;
+    }
+
+    /**
+     * Appends a record of the form {@code {"name": <name>, "data": <data>}}.
+     *
+     * @param name The name of the record.
+     * @param data The data to be serialized.
+     */
+    void write(String name, Object data) {
+      try {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeFieldName("data");
+        RECORD_WRITER.writeValue(generator, data);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      } catch (IOException e) {
+        throw failure(e, "Failure writing to '%s'", path);
+      }
+    }
+
+    /**
+     * Appends a record that was previously written by {@link #write(String, Object)}.
+     *
+     * @param line A single line of a newline-delimited JSON file.
+     */
+    void copy(String line) {
+      try {
+        generator.writeRaw(line);
+        generator.writeRaw('\n');
+      } catch (IOException e) {
+        throw failure(e, "Failure writing to '%s'", path);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        generator.close();
+      } catch (IOException e) {
+        throw failure(e, "Failure writing to '%s'", path);
+      }
+    }
+  }
 }
@@ -0,0 +1,103 @@
+package tech.picnic.errorprone.documentation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class BackgroundRecordWriterTest {
+  @Test
+  void write(@TempDir Path directory) {
+    try (BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(
+            directory, ImmutableSet.of(), /* retainPreviousRecords= */ false)) {
+      IntStream.range(0, 2_000)
+          .forEach(i -> writer.write(i % 2 == 0 ? "even" : "odd", "record-" + i, i));
+    }
+
+    assertThat(directory.resolve("even.ndjson")).content(UTF_8).hasLineCount(1_000);
+    assertThat(directory.resolve("odd.ndjson"))
+        .content(UTF_8)
+        .startsWith(
+            """
+            {"name":"record-1","data":1}
+            {"name":"record-3","data":3}
+            """)
+        .hasLineCount(1_000);
+  }
+
+  @Test
+  void retainPreviousRecords(@TempDir Path directory) {
+    try (BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(
+            directory, ImmutableSet.of("first", "second"), /* retainPreviousRecords= */ true)) {
+      writer.write("first", "A", 1);
+      writer.write("first", "B", 2);
+      writer.write("second", "A", 3);
+    }
+
+    try (BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(
+            directory, ImmutableSet.of("first", "second"), /* retainPreviousRecords= */ true)) {
+      writer.supersede("A");
+      writer.write("first", "A", 4);
+    }
+
+    assertThat(directory.resolve("first.ndjson"))
+        .content(UTF_8)
+        .isEqualTo(
+            """
+            {"name":"A","data":4}
+            {"name":"B","data":2}
+            """);
+    assertThat(directory.resolve("second.ndjson")).isEmptyFile();
+    assertThat(directory).isDirectoryNotContaining("glob:**.tmp");
+  }
+
+  @Test
+  void discardPreviousRecords(@TempDir Path directory) {
+    try (BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(
+            directory, ImmutableSet.of("first"), /* retainPreviousRecords= */ false)) {
+      writer.write("first", "A", 1);
+      writer.write("first", "B", 2);
+    }
+
+    try (BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(
+            directory, ImmutableSet.of("first"), /* retainPreviousRecords= */ false)) {
+      writer.write("first", "A", 3);
+    }
+
+    assertThat(directory.resolve("first.ndjson"))
+        .content(UTF_8)
+        .isEqualTo("""
+            {"name":"A","data":3}
+            """);
+  }
+
+  @Test
+  void writeFailure(@TempDir Path directory) throws IOException {
+    Path file = Files.createFile(directory.resolve("file"));
+
+    BackgroundRecordWriter writer =
+        new BackgroundRecordWriter(file, ImmutableSet.of(), /* retainPreviousRecords= */ false);
+    writer.write("identifier", "record", ImmutableList.of());
+
+    assertThatThrownBy(writer::close)
+        .isInstanceOf(UncheckedIOException.class)
+        .hasMessageContaining("Failure writing to '%s'", file.resolve("identifier.ndjson.tmp"));
+    assertThatThrownBy(() -> writer.write("identifier", "record", ImmutableList.of()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Writer is closed");
+  }
+}
@@ -3,6 +3,7 @@ package tech.picnic.errorprone.documentation;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.errorprone.FileManagers;
 import com.google.errorprone.FileObjects;
 import com.sun.tools.javac.api.JavacTaskImpl;
@@ -29,27 +30,35 @@ public final class Compilation {
 
   public static void compileWithDocumentationGenerator(
       String outputDirectory, String path, String... lines) {
+    compile(getOptions(outputDirectory), FileObjects.forSourceLines(path, lines));
+  }
+
+  public static void compileWithDocumentationGenerator(String outputDirectory, Path sourceFile) {
+    compile(
+        getOptions(outputDirectory),
+        Iterables.getOnlyElement(FileManagers.testFileManager().getJavaFileObjects(sourceFile)));
+  }
+
+  private static ImmutableList<String> getOptions(String outputDirectory) {
     /*
      * The compiler options specified here largely match those used by Error Prone's
      * `CompilationTestHelper`. A key difference is the stricter linting configuration. When
      * compiling using JDK 21+, these lint options also require that certain JDK modules are
      * explicitly exported.
      */
-    compile(
-        ImmutableList.of(
-            "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
-            "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
-            "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
-            "-encoding",
-            "UTF-8",
-            "-parameters",
-            "-proc:none",
-            "-Werror",
-            "-Xlint:all,-serial",
-            "-Xplugin:DocumentationGenerator -XoutputDirectory=" + outputDirectory,
-            "-XDdev",
-            "-XDcompilePolicy=simple"),
-        FileObjects.forSourceLines(path, lines));
+    return ImmutableList.of(
+        "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+        "-encoding",
+        "UTF-8",
+        "-parameters",
+        "-proc:none",
+        "-Werror",
+        "-Xlint:all,-serial",
+        "-Xplugin:DocumentationGenerator -XoutputDirectory=" + outputDirectory,
+        "-XDdev",
+        "-XDcompilePolicy=simple");
   }
 
   private static void compile(ImmutableList<String> options, JavaFileObject javaFileObject) {
@@ -109,6 +109,154 @@ final class DocumentationGeneratorTaskListenerTest {
             """);
   }
 
+  @Test
+  void extractionNdjson(@TempDir Path outputDirectory) {
+    Compilation.compileWithDocumentationGenerator(
+        outputDirectory.toAbsolutePath() + " -XoutputFormat=ndjson",
+        "DocumentationGeneratorTaskListenerTestClass.java",
+        "class DocumentationGeneratorTaskListenerTestClass {}",
+        "class DocumentationGeneratorTaskListenerTestOtherClass {}");
+
+    assertThat(outputDirectory.resolve("documentation-generator-task-listener-test.ndjson"))
+        .content(UTF_8)
+        .isEqualTo(
+            """
+            {"name":"DocumentationGeneratorTaskListenerTestClass","data":{"className":"DocumentationGeneratorTaskListenerTestClass","path":["CLASS: DocumentationGeneratorTaskListenerTestClass","COMPILATION_UNIT"]}}
+            {"name":"DocumentationGeneratorTaskListenerTestClass","data":{"className":"DocumentationGeneratorTaskListenerTestOtherClass","path":["CLASS: DocumentationGeneratorTaskListenerTestOtherClass","COMPILATION_UNIT"]}}
+            """);
+    assertThat(outputDirectory).isDirectoryNotContaining("glob:**.json");
+  }
+
+  @Test
+  void incrementalExtraction(@TempDir Path outputDirectory) throws IOException {
+    String args = outputDirectory.toAbsolutePath() + " -Xincremental";
+    String source = "class DocumentationGeneratorTaskListenerTestClass {}";
+    Path output =
+        outputDirectory.resolve(
+            "documentation-generator-task-listener-test-DocumentationGeneratorTaskListenerTestClass.json");
+
+    Compilation.compileWithDocumentationGenerator(
+        args, "DocumentationGeneratorTaskListenerTestClass.java", source);
+
+    assertThat(output).isNotEmptyFile();
+    assertThat(outputDirectory.resolve(ExtractionManifest.FILE_NAME)).isNotEmptyFile();
+
+    Files.writeString(output, "unchanged", UTF_8);
+    Compilation.compileWithDocumentationGenerator(
+        args, "DocumentationGeneratorTaskListenerTestClass.java", source);
+
+    assertThat(output).content(UTF_8).isEqualTo("unchanged");
+
+    Compilation.compileWithDocumentationGenerator(
+        args, "DocumentationGeneratorTaskListenerTestClass.java", "/* Changed. */", source);
+
+    assertThat(output).content(UTF_8).contains("DocumentationGeneratorTaskListenerTestClass");
+  }
+
+  @Test
+  void incrementalExtractionNdjson(@TempDir Path outputDirectory, @TempDir Path sourceDirectory)
+      throws IOException {
+    String args = outputDirectory.toAbsolutePath() + " -XoutputFormat=ndjson -Xincremental";
+    Path output = outputDirectory.resolve("documentation-generator-task-listener-test.ndjson");
+    Path source = writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestClass");
+    Path otherSource =
+        writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestOtherClass");
+
+    Compilation.compileWithDocumentationGenerator(args, source);
+    Compilation.compileWithDocumentationGenerator(args, otherSource);
+    String content = Files.readString(output, UTF_8);
+    Compilation.compileWithDocumentationGenerator(args, source);
+
+    assertThat(content)
+        .contains(
+            "\"name\":\"DocumentationGeneratorTaskListenerTestClass\"",
+            "\"name\":\"DocumentationGeneratorTaskListenerTestOtherClass\"");
+    assertThat(output).content(UTF_8).isEqualTo(content);
+  }
+
+  @Test
+  void nonIncrementalExtractionNdjson(@TempDir Path outputDirectory, @TempDir Path sourceDirectory)
+      throws IOException {
+    String args = outputDirectory.toAbsolutePath() + " -XoutputFormat=ndjson";
+    Path output = outputDirectory.resolve("documentation-generator-task-listener-test.ndjson");
+
+    Compilation.compileWithDocumentationGenerator(
+        args, writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestClass"));
+    Compilation.compileWithDocumentationGenerator(
+        args, writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestOtherClass"));
+
+    assertThat(output)
+        .content(UTF_8)
+        .contains("\"name\":\"DocumentationGeneratorTaskListenerTestOtherClass\"")
+        .doesNotContain("\"name\":\"DocumentationGeneratorTaskListenerTestClass\"");
+    assertThat(outputDirectory).isDirectoryNotContaining("glob:**/" + ExtractionManifest.FILE_NAME);
+  }
+
+  @Test
+  void incrementalExtractionOfRemovedSource(
+      @TempDir Path outputDirectory, @TempDir Path sourceDirectory) throws IOException {
+    String args = outputDirectory.toAbsolutePath() + " -Xincremental";
+    Path output =
+        outputDirectory.resolve(
+            "documentation-generator-task-listener-test-DocumentationGeneratorTaskListenerTestClass.json");
+    Path source = writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestClass");
+    Path otherSource =
+        writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestOtherClass");
+
+    Compilation.compileWithDocumentationGenerator(args, source);
+    Files.delete(source);
+    Compilation.compileWithDocumentationGenerator(args, otherSource);
+
+    assertThat(output).doesNotExist();
+    assertThat(ExtractionManifest.read(outputDirectory))
+        .hasValueSatisfying(
+            manifest ->
+                assertThat(manifest.sourceHashes())
+                    .containsOnlyKeys(otherSource.toUri().toString()));
+  }
+
+  @Test
+  void incrementalExtractionNdjsonOfRemovedSource(
+      @TempDir Path outputDirectory, @TempDir Path sourceDirectory) throws IOException {
+    String args = outputDirectory.toAbsolutePath() + " -XoutputFormat=ndjson -Xincremental";
+    Path output = outputDirectory.resolve("documentation-generator-task-listener-test.ndjson");
+    Path source = writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestClass");
+    Path otherSource =
+        writeSourceFile(sourceDirectory, "DocumentationGeneratorTaskListenerTestOtherClass");
+
+    Compilation.compileWithDocumentationGenerator(args, source);
+    Compilation.compileWithDocumentationGenerator(args, otherSource);
+    Files.delete(source);
+    Compilation.compileWithDocumentationGenerator(args, otherSource);
+
+    assertThat(output)
+        .content(UTF_8)
+        .contains("\"name\":\"DocumentationGeneratorTaskListenerTestOtherClass\"")
+        .doesNotContain("\"name\":\"DocumentationGeneratorTaskListenerTestClass\"");
+    assertThat(ExtractionManifest.read(outputDirectory))
+        .hasValueSatisfying(
+            manifest ->
+                assertThat(manifest.sourceHashes())
+                    .containsOnlyKeys(otherSource.toUri().toString()));
+  }
+
+  @Test
+  void excessOutputFormats(@TempDir Path outputDirectory) {
+    String actualOutputDirectory =
+        outputDirectory.toAbsolutePath() + " -XoutputFormat=json -XoutputFormat=ndjson";
+    assertThatThrownBy(
+            () ->
+                Compilation.compileWithDocumentationGenerator(
+                    actualOutputDirectory, "A.java", "package pkg;"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("At most one output format may be provided");
+  }
+
+  private static Path writeSourceFile(Path directory, String className) throws IOException {
+    return Files.writeString(
+        directory.resolve(className + ".java"), "class " + className + " {}", UTF_8);
+  }
+
   @Immutable
   @AutoService(Extractor.class)
   @SuppressWarnings("rawtypes" /* See https://github.com/google/auto/issues/870. */)
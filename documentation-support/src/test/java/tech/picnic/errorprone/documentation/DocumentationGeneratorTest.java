@@ -3,12 +3,15 @@ package tech.picnic.errorprone.documentation;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static tech.picnic.errorprone.documentation.DocumentationGenerator.OUTPUT_DIRECTORY_FLAG;
+import static tech.picnic.errorprone.documentation.DocumentationGenerator.OUTPUT_FORMAT_FLAG;
 
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import tech.picnic.errorprone.documentation.DocumentationGenerator.OutputFormat;
 
 final class DocumentationGeneratorTest {
   @ParameterizedTest
@@ -35,4 +38,27 @@ final class DocumentationGeneratorTest {
         .hasCauseInstanceOf(InvalidPathException.class)
         .hasMessageEndingWith("Invalid path '%s'", basePath);
   }
+
+  @ParameterizedTest
+  @CsvSource({"json, JSON", "ndjson, NDJSON", "NDJSON, NDJSON"})
+  void getOutputFormat(String format, OutputFormat expected) {
+    assertThat(DocumentationGenerator.getOutputFormat(OUTPUT_FORMAT_FLAG + '=' + format))
+        .isEqualTo(expected);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "-XoutputFormat", "-XoutputFormatndjson"})
+  void getOutputFormatWithInvalidArgument(String formatArg) {
+    assertThatThrownBy(() -> DocumentationGenerator.getOutputFormat(formatArg))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("'%s' must be of the form '%s=<value>'", formatArg, OUTPUT_FORMAT_FLAG);
+  }
+
+  @Test
+  void getOutputFormatWithInvalidFormat() {
+    assertThatThrownBy(() -> DocumentationGenerator.getOutputFormat(OUTPUT_FORMAT_FLAG + "=xml"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasCauseInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid output format 'xml'");
+  }
 }
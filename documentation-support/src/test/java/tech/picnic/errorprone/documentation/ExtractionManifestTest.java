@@ -0,0 +1,23 @@
+package tech.picnic.errorprone.documentation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ExtractionManifestTest {
+  @Test
+  void roundTrip(@TempDir Path directory) {
+    ExtractionManifest manifest =
+        ExtractionManifest.create(ImmutableMap.of("file:/B.java", "b", "file:/A.java", "a"));
+
+    assertThat(ExtractionManifest.read(directory)).isEmpty();
+
+    manifest.write(directory);
+
+    assertThat(ExtractionManifest.read(directory)).hasValue(manifest);
+    assertThat(manifest.sourceHashes().keySet()).containsExactly("file:/A.java", "file:/B.java");
+  }
+}
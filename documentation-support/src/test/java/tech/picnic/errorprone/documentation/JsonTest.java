@@ -52,6 +52,33 @@ final class JsonTest {
         .hasCauseInstanceOf(FileNotFoundException.class);
   }
 
+  @Test
+  void writeRecords(@TempDir Path directory) {
+    Path file = directory.resolve("test.ndjson");
+
+    try (Json.RecordWriter writer = Json.openRecordWriter(file)) {
+      writer.write("first", TEST_OBJECT);
+      writer.write("second", TEST_OBJECT);
+    }
+
+    assertThat(file)
+        .content(UTF_8)
+        .isEqualTo(
+            """
+            {"name":"first","data":%s}
+            {"name":"second","data":%s}
+            """
+                .formatted(TEST_JSON, TEST_JSON));
+  }
+
+  @Test
+  void openRecordWriterFailure(@TempDir Path directory) {
+    assertThatThrownBy(() -> Json.openRecordWriter(directory))
+        .isInstanceOf(UncheckedIOException.class)
+        .hasMessageContaining("Failure writing to '%s'", directory)
+        .hasCauseInstanceOf(FileNotFoundException.class);
+  }
+
   @AutoValue
   @JsonDeserialize(as = AutoValue_JsonTest_TestObject.class)
   abstract static class TestObject {
@@ -14,6 +14,7 @@ import static com.google.errorprone.matchers.Matchers.toType;
 import static tech.picnic.errorprone.utils.Documentation.BUG_PATTERNS_BASE_URL;
 
 import com.google.auto.service.AutoService;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Streams;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
@@ -27,18 +28,17 @@ import com.sun.source.tree.AssignmentTree;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ExpressionStatementTree;
 import com.sun.source.tree.ExpressionTree;
-import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.ReturnTree;
 import com.sun.source.tree.StatementTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.TryTree;
 import com.sun.source.tree.VariableTree;
-import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symbol;
 import java.util.List;
 import java.util.Optional;
 import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.utils.CompilationUnitIndex;
 import tech.picnic.errorprone.utils.MoreASTHelpers;
 import tech.picnic.errorprone.utils.SourceCode;
 
@@ -156,21 +156,13 @@ public final class DirectReturn extends BugChecker implements BlockTreeMatcher {
               BlockTree finallyBlock = tryTree.getFinallyBlock();
               return !child.equals(finallyBlock) ? finallyBlock : null;
             })
-        .anyMatch(finallyBlock -> referencesIdentifierSymbol(symbol, finallyBlock));
+        .anyMatch(finallyBlock -> referencesIdentifierSymbol(symbol, finallyBlock, state));
   }
 
-  private static boolean referencesIdentifierSymbol(Symbol symbol, @Nullable BlockTree tree) {
-    return Boolean.TRUE.equals(
-        new TreeScanner<Boolean, @Nullable Void>() {
-          @Override
-          public Boolean visitIdentifier(IdentifierTree node, @Nullable Void unused) {
-            return symbol.equals(ASTHelpers.getSymbol(node));
-          }
-
-          @Override
-          public Boolean reduce(Boolean r1, Boolean r2) {
-            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
-          }
-        }.scan(tree, null));
+  private static boolean referencesIdentifierSymbol(
+      Symbol symbol, @Nullable BlockTree tree, VisitorState state) {
+    return tree != null
+        && CompilationUnitIndex.of(state).getIdentifiers(symbol).stream()
+            .anyMatch(path -> Iterables.contains(path, tree));
   }
 }
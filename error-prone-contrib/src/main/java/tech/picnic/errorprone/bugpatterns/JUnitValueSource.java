@@ -45,6 +45,7 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.NewArrayTree;
 import com.sun.source.tree.ReturnTree;
 import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Type;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -58,6 +59,7 @@ import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.utils.CompilationUnitIndex;
 import tech.picnic.errorprone.utils.SourceCode;
 
 /**
@@ -168,7 +170,11 @@ public final class JUnitValueSource extends BugChecker implements MethodTreeMatc
 
   private static Optional<MethodTree> findSiblingWithName(
       MethodTree tree, String methodName, VisitorState state) {
-    return findMatchingSibling(tree, m -> m.getName().contentEquals(methodName), state);
+    Symbol owner = ASTHelpers.getSymbol(tree).owner;
+    return CompilationUnitIndex.of(state).getMethods(methodName).stream()
+        .filter(not(tree::equals))
+        .filter(m -> ASTHelpers.getSymbol(m).owner.equals(owner))
+        .findFirst();
   }
 
   private static Optional<MethodTree> findMatchingSibling(
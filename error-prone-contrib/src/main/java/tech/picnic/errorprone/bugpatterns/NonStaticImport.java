@@ -23,19 +23,20 @@ import com.google.errorprone.fixes.SuggestedFixes;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.CompilationUnitTree;
-import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.ImportTree;
 import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.Tree;
-import com.sun.source.util.TreeScanner;
+import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Symbol;
 import java.time.Clock;
 import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
-import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.utils.CompilationUnitIndex;
 import tech.picnic.errorprone.utils.SourceCode;
 
 /**
@@ -151,7 +152,7 @@ public final class NonStaticImport extends BugChecker implements CompilationUnit
         getUndesiredStaticImports(tree, state);
 
     if (!undesiredStaticImports.isEmpty()) {
-      replaceUndesiredStaticImportUsages(tree, undesiredStaticImports, state);
+      replaceUndesiredStaticImportUsages(undesiredStaticImports, state);
 
       for (UndesiredStaticImport staticImport : undesiredStaticImports.values()) {
         state.reportMatch(
@@ -193,26 +194,22 @@ public final class NonStaticImport extends BugChecker implements CompilationUnit
   }
 
   private static void replaceUndesiredStaticImportUsages(
-      CompilationUnitTree tree,
       ImmutableTable<String, String, UndesiredStaticImport> undesiredStaticImports,
       VisitorState state) {
-    new TreeScanner<@Nullable Void, @Nullable Void>() {
-      @Override
-      public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
-        Symbol symbol = ASTHelpers.getSymbol(node);
-        if (symbol != null) {
-          UndesiredStaticImport staticImport =
-              undesiredStaticImports.get(
-                  symbol.owner.getQualifiedName().toString(), symbol.name.toString());
-          if (staticImport != null) {
-            SuggestedFix.Builder fix = staticImport.fixBuilder();
-            fix.prefixWith(node, SuggestedFixes.qualifyType(state, fix, symbol.owner) + '.');
-          }
+    for (Map.Entry<Symbol, Collection<TreePath>> identifiers :
+        CompilationUnitIndex.of(state).getAllIdentifiers().asMap().entrySet()) {
+      Symbol symbol = identifiers.getKey();
+      UndesiredStaticImport staticImport =
+          undesiredStaticImports.get(
+              symbol.owner.getQualifiedName().toString(), symbol.name.toString());
+      if (staticImport != null) {
+        SuggestedFix.Builder fix = staticImport.fixBuilder();
+        for (TreePath identifier : identifiers.getValue()) {
+          fix.prefixWith(
+              identifier.getLeaf(), SuggestedFixes.qualifyType(state, fix, symbol.owner) + '.');
         }
-
-        return super.visitIdentifier(node, unused);
       }
-    }.scan(tree, null);
+    }
   }
 
   @AutoValue
@@ -59,6 +59,8 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import tech.picnic.errorprone.utils.CompilationUnitIndex;
 
 /** A {@link BugChecker} that flags type members that can and should be statically imported. */
 // XXX: This check is closely linked to `NonStaticImport`. Consider merging the two.
@@ -242,13 +244,35 @@ public final class StaticImport extends BugChecker implements MemberSelectTreeMa
 
   private static Optional<Fix> tryStaticImport(
       MemberSelectTree tree, String fullyQualifiedName, String simpleName, VisitorState state) {
-    SuggestedFix.Builder fix = SuggestedFix.builder().replace(tree, simpleName);
-
-    if (!simpleName.equals(SuggestedFixes.qualifyStaticImport(fullyQualifiedName, fix, state))) {
+    if (isStaticImportBlocked(fullyQualifiedName, simpleName, state)) {
       /* Statically importing this symbol would clash with an existing import. */
       return Optional.empty();
     }
 
-    return Optional.of(fix.build());
+    return Optional.of(
+        SuggestedFix.builder()
+            .replace(tree, simpleName)
+            .addStaticImport(fullyQualifiedName)
+            .build());
+  }
+
+  /**
+   * Tells whether the given simple name already refers to a different symbol in the current
+   * compilation unit.
+   *
+   * <p>This method mirrors the conflict detection performed by {@link
+   * SuggestedFixes#qualifyStaticImport}, but avoids rescanning the compilation unit for each
+   * candidate by consulting the {@link CompilationUnitIndex}.
+   */
+  private static boolean isStaticImportBlocked(
+      String fullyQualifiedName, String simpleName, VisitorState state) {
+    CompilationUnitIndex index = CompilationUnitIndex.of(state);
+    return Stream.concat(
+            index.getMethods(simpleName).stream().map(ASTHelpers::getSymbol),
+            index.getIdentifierSymbols(simpleName).stream())
+        .anyMatch(
+            symbol ->
+                !fullyQualifiedName.equals(
+                    symbol.owner.getQualifiedName() + "." + symbol.getSimpleName()));
   }
 }
@@ -1,15 +1,35 @@
 package tech.picnic.errorprone.refasterrules;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.util.function.Predicate.not;
 
 import com.google.common.collect.ImmutableSet;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import tech.picnic.errorprone.refaster.test.RefasterRuleCollection;
 
 final class RefasterRulesTest {
+  /**
+   * The system property that, if set to {@code true}, causes each rule collection to be validated
+   * using a separate compilation, rather than all at once. This is slower, but may help to diagnose
+   * validation failures.
+   */
+  private static final String VALIDATE_SEPARATELY_PROPERTY =
+      "refaster.validateRuleCollectionsSeparately";
+
+  /**
+   * The factor by which the relative cost of matching a rule may exceed its checked-in performance
+   * baseline. Rules that are at most as expensive as the median rule of their collection are
+   * considered equivalent, so a rule fails validation only once it becomes more than five times as
+   * expensive as both its baseline and the median rule.
+   */
+  private static final int PERFORMANCE_TOLERANCE = 5;
+
   /** The names of all Refaster rule groups defined in this module. */
   private static final ImmutableSet<Class<?>> RULE_COLLECTIONS =
       ImmutableSet.of(
@@ -74,6 +94,15 @@ final class RefasterRulesTest {
           TimeRules.class,
           WebClientRules.class);
 
+  /**
+   * The Refaster rule groups whose performance is compared against a checked-in baseline.
+   *
+   * @see RefasterRuleCollection#validate(Class, int)
+   */
+  // XXX: Extend this to other rule collections.
+  private static final ImmutableSet<Class<?>> PERFORMANCE_RULE_COLLECTIONS =
+      ImmutableSet.of(StringRules.class);
+
   // XXX: Create a JUnit extension to automatically discover the rule collections in a given context
   // to make sure the list is exhaustive.
   private static Stream<Arguments> validateRuleCollectionTestCases() {
@@ -84,9 +113,24 @@ final class RefasterRulesTest {
         .map(Arguments::arguments);
   }
 
+  @EnabledIfSystemProperty(named = VALIDATE_SEPARATELY_PROPERTY, matches = "true")
   @MethodSource("validateRuleCollectionTestCases")
   @ParameterizedTest
   void validateRuleCollection(Class<?> clazz) {
-    RefasterRuleCollection.validate(clazz);
+    if (PERFORMANCE_RULE_COLLECTIONS.contains(clazz)) {
+      RefasterRuleCollection.validate(clazz, PERFORMANCE_TOLERANCE);
+    } else {
+      RefasterRuleCollection.validate(clazz);
+    }
+  }
+
+  @DisabledIfSystemProperty(named = VALIDATE_SEPARATELY_PROPERTY, matches = "true")
+  @Test
+  void validateRuleCollections() {
+    // XXX: Drop the filter once we have added tests for AssertJ!
+    RefasterRuleCollection.validateAll(
+        RULE_COLLECTIONS.stream().filter(not(AssertJRules.class::equals)).collect(toImmutableSet()),
+        PERFORMANCE_RULE_COLLECTIONS,
+        PERFORMANCE_TOLERANCE);
   }
 }
@@ -0,0 +1,257 @@
+package tech.picnic.errorprone.utils;
+
+import static com.google.common.collect.ImmutableSetMultimap.toImmutableSetMultimap;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.api.MultiTaskListener;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.util.Optional;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An index of facts about a single compilation unit that are commonly required by multiple {@link
+ * com.google.errorprone.bugpatterns.BugChecker}s.
+ *
+ * <p>Each part of the index is computed lazily, at most once per compilation unit. The index of the
+ * compilation unit currently being analyzed is cached in the compiler's {@link Context}; it is
+ * evicted once analysis of said compilation unit completes.
+ */
+public final class CompilationUnitIndex {
+  private static final Context.Key<Cache> CACHE_KEY = new Context.Key<>();
+
+  private final CompilationUnitTree compilationUnit;
+  private final Supplier<Imports> imports;
+  private final Supplier<Declarations> declarations;
+  private final Supplier<Optional<SourceTokens>> sourceTokens;
+
+  private CompilationUnitIndex(CompilationUnitTree compilationUnit, Context context) {
+    this.compilationUnit = compilationUnit;
+    this.imports = Suppliers.memoize(() -> Imports.create(compilationUnit));
+    this.declarations = Suppliers.memoize(() -> Declarations.create(compilationUnit));
+    this.sourceTokens = Suppliers.memoize(() -> readSourceTokens(compilationUnit, context));
+  }
+
+  /**
+   * Returns the index of the compilation unit to which the given {@link VisitorState}'s path
+   * points.
+   *
+   * @param state The {@link VisitorState} identifying the compilation unit of interest.
+   * @return The index of the compilation unit, shared with all other callers that request it during
+   *     analysis of said compilation unit.
+   */
+  public static CompilationUnitIndex of(VisitorState state) {
+    return Cache.instance(state.context).get(state.getPath().getCompilationUnit());
+  }
+
+  /**
+   * Returns the static imports through which the given simple name is imported.
+   *
+   * @param simpleName The imported simple name, or {@code *} for on-demand imports.
+   * @return The matching static imports, in source order.
+   */
+  public ImmutableList<ImportTree> getStaticImports(String simpleName) {
+    return imports.get().staticImports.get(simpleName);
+  }
+
+  /**
+   * Returns the non-static imports through which the given simple name is imported.
+   *
+   * @param simpleName The imported simple name, or {@code *} for on-demand imports.
+   * @return The matching non-static imports, in source order.
+   */
+  public ImmutableList<ImportTree> getImports(String simpleName) {
+    return imports.get().imports.get(simpleName);
+  }
+
+  /**
+   * Returns the methods with the given name declared anywhere in the compilation unit.
+   *
+   * @param name The name of the methods of interest.
+   * @return The matching method declarations, in source order.
+   */
+  public ImmutableList<MethodTree> getMethods(String name) {
+    return declarations.get().methods.get(name);
+  }
+
+  /**
+   * Returns the identifiers in the compilation unit that refer to the given symbol.
+   *
+   * @param symbol The symbol of interest.
+   * @return The paths to the matching identifiers, in source order.
+   */
+  public ImmutableList<TreePath> getIdentifiers(Symbol symbol) {
+    return declarations.get().identifiers.get(symbol);
+  }
+
+  /**
+   * Returns the symbols with the given simple name that are referenced by at least one identifier
+   * in the compilation unit.
+   *
+   * @param simpleName The simple name of the symbols of interest.
+   * @return The matching symbols, in order of first reference.
+   */
+  public ImmutableSet<Symbol> getIdentifierSymbols(String simpleName) {
+    return declarations.get().identifierSymbols.get(simpleName);
+  }
+
+  /**
+   * Returns the source code and lazily lexed token stream of the compilation unit.
+   *
+   * @return The compilation unit's source code and tokens, unless its source code is unavailable.
+   * @see SourceTokens#of(VisitorState)
+   */
+  Optional<SourceTokens> getSourceTokens() {
+    return sourceTokens.get();
+  }
+
+  private static Optional<SourceTokens> readSourceTokens(
+      CompilationUnitTree compilationUnit, Context context) {
+    try {
+      CharSequence sourceCode =
+          compilationUnit.getSourceFile().getCharContent(/* ignoreEncodingErrors= */ false);
+      return Optional.ofNullable(sourceCode).map(source -> new SourceTokens(source, context));
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Returns all identifiers in the compilation unit that refer to a symbol.
+   *
+   * @return The paths to said identifiers, by referenced symbol.
+   */
+  public ImmutableListMultimap<Symbol, TreePath> getAllIdentifiers() {
+    return declarations.get().identifiers;
+  }
+
+  /** The imports of a compilation unit, by simple name. */
+  private static final class Imports {
+    private final ImmutableListMultimap<String, ImportTree> staticImports;
+    private final ImmutableListMultimap<String, ImportTree> imports;
+
+    private Imports(
+        ImmutableListMultimap<String, ImportTree> staticImports,
+        ImmutableListMultimap<String, ImportTree> imports) {
+      this.staticImports = staticImports;
+      this.imports = imports;
+    }
+
+    static Imports create(CompilationUnitTree compilationUnit) {
+      ImmutableListMultimap.Builder<String, ImportTree> staticImports =
+          ImmutableListMultimap.builder();
+      ImmutableListMultimap.Builder<String, ImportTree> imports = ImmutableListMultimap.builder();
+      for (ImportTree importTree : compilationUnit.getImports()) {
+        if (importTree.getQualifiedIdentifier() instanceof MemberSelectTree memberSelect) {
+          (importTree.isStatic() ? staticImports : imports)
+              .put(memberSelect.getIdentifier().toString(), importTree);
+        }
+      }
+      return new Imports(staticImports.build(), imports.build());
+    }
+  }
+
+  /** The method declarations and identifier references of a compilation unit. */
+  private static final class Declarations {
+    private final ImmutableListMultimap<String, MethodTree> methods;
+    private final ImmutableListMultimap<Symbol, TreePath> identifiers;
+    private final ImmutableSetMultimap<String, Symbol> identifierSymbols;
+
+    private Declarations(
+        ImmutableListMultimap<String, MethodTree> methods,
+        ImmutableListMultimap<Symbol, TreePath> identifiers) {
+      this.methods = methods;
+      this.identifiers = identifiers;
+      this.identifierSymbols =
+          identifiers.keySet().stream()
+              .collect(
+                  toImmutableSetMultimap(
+                      symbol -> symbol.getSimpleName().toString(), symbol -> symbol));
+    }
+
+    static Declarations create(CompilationUnitTree compilationUnit) {
+      ImmutableListMultimap.Builder<String, MethodTree> methods = ImmutableListMultimap.builder();
+      ImmutableListMultimap.Builder<Symbol, TreePath> identifiers = ImmutableListMultimap.builder();
+      new TreePathScanner<@Nullable Void, @Nullable Void>() {
+        @Override
+        public @Nullable Void visitMethod(MethodTree node, @Nullable Void unused) {
+          methods.put(node.getName().toString(), node);
+          return super.visitMethod(node, unused);
+        }
+
+        @Override
+        public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
+          Symbol symbol = ASTHelpers.getSymbol(node);
+          if (symbol != null) {
+            identifiers.put(symbol, getCurrentPath());
+          }
+          return super.visitIdentifier(node, unused);
+        }
+      }.scan(compilationUnit, null);
+      return new Declarations(methods.build(), identifiers.build());
+    }
+  }
+
+  /**
+   * Holds the index of the compilation unit currently being analyzed, and evicts it once analysis
+   * of said compilation unit completes.
+   */
+  private static final class Cache implements TaskListener {
+    private final Context context;
+    private @Nullable CompilationUnitIndex index;
+
+    private Cache(Context context) {
+      this.context = context;
+    }
+
+    static Cache instance(Context context) {
+      Cache cache = context.get(CACHE_KEY);
+      if (cache != null) {
+        return cache;
+      }
+
+      Cache newCache = new Cache(context);
+      context.put(CACHE_KEY, newCache);
+      MultiTaskListener.instance(context).add(newCache);
+      return newCache;
+    }
+
+    CompilationUnitIndex get(CompilationUnitTree compilationUnit) {
+      CompilationUnitIndex current = index;
+      if (current != null && current.compilationUnit.equals(compilationUnit)) {
+        return current;
+      }
+
+      CompilationUnitIndex newIndex = new CompilationUnitIndex(compilationUnit, context);
+      index = newIndex;
+      return newIndex;
+    }
+
+    @Override
+    public void finished(TaskEvent e) {
+      CompilationUnitIndex current = index;
+      if (e.getKind() == TaskEvent.Kind.ANALYZE
+          && current != null
+          && current.compilationUnit.equals(e.getCompilationUnit())) {
+        index = null;
+      }
+    }
+  }
+}
@@ -1,15 +1,25 @@
 package tech.picnic.errorprone.utils;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.errorprone.matchers.Matchers.anyOf;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.annotations.Var;
 import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /** A method invocation expression {@link Matcher} factory. */
@@ -31,29 +41,73 @@ public final class MethodMatcherFactory {
   /**
    * Creates a {@link Matcher} of methods with any of the given signatures.
    *
+   * <p>The returned matcher indexes the given signatures by method name and parameter count, such
+   * that for any given expression only the signatures sharing these properties with the referenced
+   * method are considered. As a result, its cost does not grow with the number of signatures.
+   *
    * @param signatures The method signatures of interest.
    * @return A new {@link Matcher} which accepts invocation expressions of any method identified by
    *     the given signatures.
    */
   public Matcher<ExpressionTree> create(Collection<String> signatures) {
-    return anyOf(
-        signatures.stream()
-            .map(MethodMatcherFactory::createMethodMatcher)
-            .collect(toImmutableSet()));
+    Table<String, Integer, List<Matcher<ExpressionTree>>> matchers = HashBasedTable.create();
+    for (String signature : signatures) {
+      java.util.regex.Matcher m = METHOD_SIGNATURE.matcher(signature);
+      checkArgument(m.matches(), "Not a valid method signature: %s", signature);
+      String methodName = m.group(2);
+      ImmutableList<String> parameterTypes =
+          ImmutableList.copyOf(ARGUMENT_TYPE_SPLITTER.split(m.group(3)));
+      @Var
+      List<Matcher<ExpressionTree>> candidates = matchers.get(methodName, parameterTypes.size());
+      if (candidates == null) {
+        candidates = new ArrayList<>();
+        matchers.put(methodName, parameterTypes.size(), candidates);
+      }
+      candidates.add(createMethodMatcher(m.group(1), methodName, parameterTypes));
+    }
+
+    ImmutableTable.Builder<String, Integer, Matcher<ExpressionTree>> index =
+        ImmutableTable.builder();
+    for (Table.Cell<String, Integer, List<Matcher<ExpressionTree>>> cell : matchers.cellSet()) {
+      index.put(cell.getRowKey(), cell.getColumnKey(), anyOf(cell.getValue()));
+    }
+    return new IndexedMethodMatcher(index.buildOrThrow());
   }
 
   // XXX: It seems parse errors are silently swallowed. Double-check; if true, file a ticket.
   // XXX: This (probably) doesn't work for methods with array type arguments; if true, implement a
   // fix.
-  private static Matcher<ExpressionTree> createMethodMatcher(CharSequence signature) {
-    java.util.regex.Matcher m = METHOD_SIGNATURE.matcher(signature);
-    checkArgument(m.matches(), "Not a valid method signature: %s", signature);
-    String className = m.group(1);
-    String methodName = m.group(2);
-    Iterable<String> parameterTypes = ARGUMENT_TYPE_SPLITTER.split(m.group(3));
-
+  private static Matcher<ExpressionTree> createMethodMatcher(
+      String className, String methodName, ImmutableList<String> parameterTypes) {
     return anyOf(
         instanceMethod().onDescendantOf(className).named(methodName).withParameters(parameterTypes),
         staticMethod().onClass(className).named(methodName).withParameters(parameterTypes));
   }
+
+  /**
+   * A {@link Matcher} that delegates to the matchers of the signatures with the same method name
+   * and parameter count as the referenced method, if any.
+   */
+  private static final class IndexedMethodMatcher implements Matcher<ExpressionTree> {
+    private static final long serialVersionUID = 1L;
+
+    /** The signature matchers, indexed by method name and parameter count. */
+    private final ImmutableTable<String, Integer, Matcher<ExpressionTree>> matchers;
+
+    IndexedMethodMatcher(ImmutableTable<String, Integer, Matcher<ExpressionTree>> matchers) {
+      this.matchers = matchers;
+    }
+
+    @Override
+    public boolean matches(ExpressionTree tree, VisitorState state) {
+      Symbol symbol = ASTHelpers.getSymbol(tree);
+      if (!(symbol instanceof MethodSymbol method)) {
+        return false;
+      }
+
+      Matcher<ExpressionTree> matcher =
+          matchers.get(method.getSimpleName().toString(), method.getParameters().size());
+      return matcher != null && matcher.matches(tree, state);
+    }
+  }
 }
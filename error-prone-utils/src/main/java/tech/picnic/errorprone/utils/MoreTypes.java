@@ -1,18 +1,18 @@
 package tech.picnic.errorprone.utils;
 
-import static java.util.stream.Collectors.toCollection;
-
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.suppliers.Suppliers;
 import com.sun.tools.javac.code.BoundKind;
 import com.sun.tools.javac.code.Type;
-import java.util.ArrayList;
+import com.sun.tools.javac.util.Context;
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.function.BiFunction;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A set of helper methods which together define a DSL for defining {@link Type types}.
@@ -21,13 +21,18 @@ import java.util.function.BiFunction;
  *
  * <pre>{@code
  * Supplier<Type> type =
- *     VisitorState.memoize(
- *         generic(
- *             type("reactor.core.publisher.Flux"),
- *             subOf(generic(type("org.reactivestreams.Publisher"), unbound()))));
+ *     generic(
+ *         type("reactor.core.publisher.Flux"),
+ *         subOf(generic(type("org.reactivestreams.Publisher"), unbound())));
  * }</pre>
  *
- * This statement produces a memoized supplier of the type {@code Flux<? extends Publisher<?>>}.
+ * This statement produces a supplier of the type {@code Flux<? extends Publisher<?>>}.
+ *
+ * <p>The suppliers produced by these methods are memoized: each resolves its type at most once per
+ * javac {@link Context}, after which repeated lookups within the same {@link Context} do not
+ * allocate. Structurally equal type descriptions, such as two separately constructed {@code
+ * generic(type("java.util.Optional"), unbound())} suppliers, resolve to the same {@link Type}
+ * instance. As such, there is no need to wrap them using {@link VisitorState#memoize(Supplier)}.
  */
 public final class MoreTypes {
   private MoreTypes() {}
@@ -44,7 +49,7 @@ public final class MoreTypes {
    *     null} otherwise.
    */
   public static Supplier<Type> type(String typeName) {
-    return Suppliers.typeFromString(typeName);
+    return new NamedType(typeName);
   }
 
   /**
@@ -60,17 +65,7 @@ public final class MoreTypes {
   @SafeVarargs
   @SuppressWarnings("varargs")
   public static Supplier<Type> generic(Supplier<Type> type, Supplier<Type>... typeArgs) {
-    return propagateNull(
-        type,
-        (state, baseType) -> {
-          List<Type> params =
-              Arrays.stream(typeArgs).map(s -> s.get(state)).collect(toCollection(ArrayList::new));
-          if (params.stream().anyMatch(Objects::isNull)) {
-            return null;
-          }
-
-          return state.getType(baseType, /* isArray= */ false, params);
-        });
+    return new GenericType(type, ImmutableList.copyOf(typeArgs));
   }
 
   /**
@@ -81,7 +76,7 @@ public final class MoreTypes {
    *     null} otherwise.
    */
   public static Supplier<Type> raw(Supplier<Type> type) {
-    return propagateNull(type, (state, baseType) -> baseType.tsym.erasure(state.getTypes()));
+    return new RawType(type);
   }
 
   /**
@@ -92,10 +87,7 @@ public final class MoreTypes {
    *     null} otherwise.
    */
   public static Supplier<Type> superOf(Supplier<Type> type) {
-    return propagateNull(
-        type,
-        (state, baseType) ->
-            new Type.WildcardType(baseType, BoundKind.SUPER, state.getSymtab().boundClass));
+    return new WildcardType(BoundKind.SUPER, type);
   }
 
   /**
@@ -106,11 +98,7 @@ public final class MoreTypes {
    *     null} otherwise.
    */
   public static Supplier<Type> subOf(Supplier<Type> type) {
-    return propagateNull(
-        type,
-        (state, baseType) ->
-            new Type.WildcardType(
-                type.get(state), BoundKind.EXTENDS, state.getSymtab().boundClass));
+    return new WildcardType(BoundKind.EXTENDS, type);
   }
 
   /**
@@ -119,14 +107,225 @@ public final class MoreTypes {
    * @return A supplier which returns the described type.
    */
   public static Supplier<Type> unbound() {
-    return state ->
-        new Type.WildcardType(
-            state.getSymtab().objectType, BoundKind.UNBOUND, state.getSymtab().boundClass);
+    return new WildcardType(BoundKind.UNBOUND, /* bound= */ null);
+  }
+
+  /**
+   * A supplier of a described type, which is resolved at most once per {@link Context}.
+   *
+   * <p>Implementations must define structural {@link Object#equals(Object)} and {@link
+   * Object#hashCode()} implementations, as these determine which descriptions share a resolved
+   * type.
+   */
+  private abstract static class TypeDescription implements Supplier<Type> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The most recent resolution of this description, if any. Like {@link
+     * VisitorState#memoize(Supplier)}, this reference is soft, so as not to retain compiler state
+     * after compilation completes.
+     */
+    private transient volatile @Nullable SoftReference<Resolution> resolution;
+
+    @Override
+    public final @Nullable Type get(VisitorState state) {
+      SoftReference<Resolution> reference = resolution;
+      Resolution current = reference == null ? null : reference.get();
+      if (current != null && current.context == state.context) {
+        return current.type;
+      }
+
+      Resolution newResolution = ResolutionCache.instance(state.context).resolve(this, state);
+      resolution = new SoftReference<>(newResolution);
+      return newResolution.type;
+    }
+
+    /**
+     * Resolves the described type, without consulting any cache.
+     *
+     * @param state The {@link VisitorState} in which to resolve the type.
+     * @return The described type if available in the given state, and {@code null} otherwise.
+     */
+    abstract @Nullable Type resolve(VisitorState state);
+  }
+
+  /** A description of the type with a given fully qualified name. */
+  private static final class NamedType extends TypeDescription {
+    private static final long serialVersionUID = 1L;
+
+    private final String typeName;
+
+    NamedType(String typeName) {
+      this.typeName = typeName;
+    }
+
+    @Override
+    @Nullable Type resolve(VisitorState state) {
+      return state.getTypeFromString(typeName);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      return obj instanceof NamedType other && typeName.equals(other.typeName);
+    }
+
+    @Override
+    public int hashCode() {
+      return typeName.hashCode();
+    }
   }
 
-  private static Supplier<Type> propagateNull(
-      Supplier<Type> type, BiFunction<VisitorState, Type, Type> transformer) {
-    return state ->
-        Optional.ofNullable(type.get(state)).map(t -> transformer.apply(state, t)).orElse(null);
+  /** A description of a generic type with given type arguments. */
+  private static final class GenericType extends TypeDescription {
+    private static final long serialVersionUID = 1L;
+
+    private final Supplier<Type> type;
+    private final ImmutableList<Supplier<Type>> typeArgs;
+    private final int hashCode;
+
+    GenericType(Supplier<Type> type, ImmutableList<Supplier<Type>> typeArgs) {
+      this.type = type;
+      this.typeArgs = typeArgs;
+      this.hashCode = Objects.hash(type, typeArgs);
+    }
+
+    @Override
+    @Nullable Type resolve(VisitorState state) {
+      Type baseType = type.get(state);
+      if (baseType == null) {
+        return null;
+      }
+
+      Type[] params = new Type[typeArgs.size()];
+      for (int i = 0; i < params.length; i++) {
+        Type param = typeArgs.get(i).get(state);
+        if (param == null) {
+          return null;
+        }
+        params[i] = param;
+      }
+
+      return state.getType(baseType, /* isArray= */ false, Arrays.asList(params));
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      return obj instanceof GenericType other
+          && hashCode == other.hashCode
+          && type.equals(other.type)
+          && typeArgs.equals(other.typeArgs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** A description of the erasure of a given type. */
+  private static final class RawType extends TypeDescription {
+    private static final long serialVersionUID = 1L;
+
+    private final Supplier<Type> type;
+
+    RawType(Supplier<Type> type) {
+      this.type = type;
+    }
+
+    @Override
+    @Nullable Type resolve(VisitorState state) {
+      Type baseType = type.get(state);
+      return baseType == null ? null : baseType.tsym.erasure(state.getTypes());
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      return obj instanceof RawType other && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * RawType.class.hashCode() + type.hashCode();
+    }
+  }
+
+  /** A description of a wildcard type, bound to a given type unless unbound. */
+  private static final class WildcardType extends TypeDescription {
+    private static final long serialVersionUID = 1L;
+
+    private final BoundKind kind;
+    private final @Nullable Supplier<Type> bound;
+
+    WildcardType(BoundKind kind, @Nullable Supplier<Type> bound) {
+      this.kind = kind;
+      this.bound = bound;
+    }
+
+    @Override
+    @Nullable Type resolve(VisitorState state) {
+      Type boundType = bound == null ? state.getSymtab().objectType : bound.get(state);
+      return boundType == null
+          ? null
+          : new Type.WildcardType(boundType, kind, state.getSymtab().boundClass);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      return obj instanceof WildcardType other
+          && kind == other.kind
+          && Objects.equals(bound, other.bound);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(kind, bound);
+    }
+  }
+
+  /** The outcome of resolving a {@link TypeDescription} in a given {@link Context}. */
+  private static final class Resolution {
+    private final Context context;
+    private final @Nullable Type type;
+
+    Resolution(Context context, @Nullable Type type) {
+      this.context = context;
+      this.type = type;
+    }
+  }
+
+  /**
+   * Interns the resolutions of structurally equal {@link TypeDescription}s within a single {@link
+   * Context}.
+   */
+  private static final class ResolutionCache {
+    private static final Context.Key<ResolutionCache> KEY = new Context.Key<>();
+
+    private final Map<TypeDescription, Resolution> resolutions = new HashMap<>();
+
+    static ResolutionCache instance(Context context) {
+      ResolutionCache cache = context.get(KEY);
+      if (cache != null) {
+        return cache;
+      }
+
+      ResolutionCache newCache = new ResolutionCache();
+      context.put(KEY, newCache);
+      return newCache;
+    }
+
+    Resolution resolve(TypeDescription description, VisitorState state) {
+      Resolution resolution = resolutions.get(description);
+      if (resolution != null) {
+        return resolution;
+      }
+
+      /*
+       * Resolution may recursively resolve nested descriptions, so `Map#computeIfAbsent` cannot be
+       * used here.
+       */
+      Resolution newResolution = new Resolution(state.context, description.resolve(state));
+      resolutions.put(description, newResolution);
+      return newResolution;
+    }
   }
 }
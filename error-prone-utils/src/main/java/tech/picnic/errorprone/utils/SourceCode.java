@@ -1,21 +1,16 @@
 package tech.picnic.errorprone.utils;
 
-import static com.sun.tools.javac.parser.Tokens.TokenKind.RPAREN;
+import static com.sun.tools.javac.parser.Tokens.TokenKind.LPAREN;
 import static com.sun.tools.javac.util.Position.NOPOS;
 import static java.util.stream.Collectors.joining;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.CharMatcher;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Streams;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.util.ErrorProneToken;
-import com.google.errorprone.util.ErrorProneTokens;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.Tree;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
-import com.sun.tools.javac.util.Position;
 import java.util.Optional;
 
 /**
@@ -23,9 +18,6 @@ import java.util.Optional;
  * AST nodes.
  */
 public final class SourceCode {
-  /** The complement of {@link CharMatcher#whitespace()}. */
-  private static final CharMatcher NON_WHITESPACE_MATCHER = CharMatcher.whitespace().negate();
-
   private SourceCode() {}
 
   /**
@@ -56,17 +48,16 @@ public final class SourceCode {
    *     SuggestedFix#delete(Tree)}.
    */
   public static SuggestedFix deleteWithTrailingWhitespace(Tree tree, VisitorState state) {
-    CharSequence sourceCode = state.getSourceCode();
+    Optional<SourceTokens> sourceTokens = SourceTokens.of(state);
     int endPos = state.getEndPosition(tree);
-    if (sourceCode == null || endPos == NOPOS) {
+    if (sourceTokens.isEmpty() || endPos == NOPOS) {
       /* We can't identify the trailing whitespace; delete just the tree. */
       return SuggestedFix.delete(tree);
     }
 
-    int whitespaceEndPos = NON_WHITESPACE_MATCHER.indexIn(sourceCode, endPos);
     return SuggestedFix.replace(
         ((DiagnosticPosition) tree).getStartPosition(),
-        whitespaceEndPos == -1 ? sourceCode.length() : whitespaceEndPos,
+        sourceTokens.orElseThrow().getNextNonWhitespacePosition(endPos),
         "");
   }
 
@@ -87,31 +78,31 @@ public final class SourceCode {
    * @return A non-{@code null} {@link SuggestedFix}.
    */
   public static SuggestedFix unwrapMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-    CharSequence sourceCode = state.getSourceCode();
+    Optional<SourceTokens> sourceTokens = SourceTokens.of(state);
     int startPosition = state.getEndPosition(tree.getMethodSelect());
     int endPosition = state.getEndPosition(tree);
 
-    if (sourceCode == null || startPosition == Position.NOPOS || endPosition == Position.NOPOS) {
+    if (sourceTokens.isEmpty() || startPosition == NOPOS || endPosition == NOPOS) {
       return unwrapMethodInvocationDroppingWhitespaceAndComments(tree, state);
     }
 
-    ImmutableList<ErrorProneToken> tokens =
-        ErrorProneTokens.getTokens(
-            sourceCode.subSequence(startPosition, endPosition).toString(), state.context);
-
-    Optional<Integer> leftParenPosition =
-        tokens.stream().findFirst().map(t -> startPosition + t.endPos());
-    Optional<Integer> rightParenPosition =
-        Streams.findLast(tokens.stream().filter(t -> t.kind() == RPAREN))
-            .map(t -> startPosition + t.pos());
-    if (leftParenPosition.isEmpty() || rightParenPosition.isEmpty()) {
+    SourceTokens tokens = sourceTokens.orElseThrow();
+    Optional<ErrorProneToken> leftParen =
+        tokens.getTokens(startPosition, endPosition).stream().findFirst();
+    Optional<ErrorProneToken> rightParen =
+        leftParen
+            .filter(t -> t.kind() == LPAREN)
+            .flatMap(t -> tokens.findMatchingParenthesis(t.pos()))
+            .filter(t -> t.endPos() <= endPosition);
+    if (leftParen.isEmpty() || rightParen.isEmpty()) {
       return unwrapMethodInvocationDroppingWhitespaceAndComments(tree, state);
     }
 
     return SuggestedFix.replace(
         tree,
-        sourceCode
-            .subSequence(leftParenPosition.orElseThrow(), rightParenPosition.orElseThrow())
+        tokens
+            .getSourceCode()
+            .subSequence(leftParen.orElseThrow().endPos(), rightParen.orElseThrow().pos())
             .toString());
   }
 
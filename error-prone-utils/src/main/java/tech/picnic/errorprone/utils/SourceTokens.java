@@ -0,0 +1,153 @@
+package tech.picnic.errorprone.utils;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.sun.tools.javac.parser.Tokens.TokenKind.EOF;
+import static com.sun.tools.javac.parser.Tokens.TokenKind.LPAREN;
+import static com.sun.tools.javac.parser.Tokens.TokenKind.RPAREN;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.util.ErrorProneToken;
+import com.google.errorprone.util.ErrorProneTokens;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Optional;
+
+/**
+ * The source code of a compilation unit, along with the token stream obtained by lexing it.
+ *
+ * <p>Instances are shared by all callers that request them while the associated compilation unit is
+ * analyzed; see {@link #of(VisitorState)}. The source code is lexed lazily, at most once. This
+ * enables fix generation logic to inspect the tokens of arbitrary source code ranges without
+ * repeatedly lexing (parts of) the same file.
+ */
+public final class SourceTokens {
+  /** The complement of {@link CharMatcher#whitespace()}. */
+  private static final CharMatcher NON_WHITESPACE_MATCHER = CharMatcher.whitespace().negate();
+
+  private final CharSequence sourceCode;
+  private final Supplier<TokenStream> tokenStream;
+
+  SourceTokens(CharSequence sourceCode, Context context) {
+    this.sourceCode = sourceCode;
+    this.tokenStream = Suppliers.memoize(() -> TokenStream.lex(sourceCode, context));
+  }
+
+  /**
+   * Returns the source code and token stream of the compilation unit to which the given {@link
+   * VisitorState}'s path points.
+   *
+   * @param state The {@link VisitorState} identifying the compilation unit of interest.
+   * @return The source code and token stream of the compilation unit, unless its source code is
+   *     unavailable.
+   */
+  public static Optional<SourceTokens> of(VisitorState state) {
+    return CompilationUnitIndex.of(state).getSourceTokens();
+  }
+
+  /**
+   * Returns the source code of the compilation unit.
+   *
+   * @return A non-{@code null} character sequence.
+   */
+  public CharSequence getSourceCode() {
+    return sourceCode;
+  }
+
+  /**
+   * Returns the tokens located entirely within the given range.
+   *
+   * @param startPosition The (inclusive) start position of the range of interest.
+   * @param endPosition The (exclusive) end position of the range of interest.
+   * @return The matching tokens, in source order.
+   */
+  public ImmutableList<ErrorProneToken> getTokens(int startPosition, int endPosition) {
+    TokenStream stream = tokenStream.get();
+    ImmutableList.Builder<ErrorProneToken> tokens = ImmutableList.builder();
+    for (int i = stream.indexOfFirstTokenAtOrAfter(startPosition);
+        i < stream.tokens.size() && stream.tokens.get(i).endPos() <= endPosition;
+        i++) {
+      tokens.add(stream.tokens.get(i));
+    }
+    return tokens.build();
+  }
+
+  /**
+   * Returns the position of the first non-whitespace character at or after the given position.
+   *
+   * @param position The position from which to start searching.
+   * @return The position of the first non-whitespace character, or the length of the source code if
+   *     there is no such character.
+   */
+  public int getNextNonWhitespacePosition(int position) {
+    int index = NON_WHITESPACE_MATCHER.indexIn(sourceCode, position);
+    return index < 0 ? sourceCode.length() : index;
+  }
+
+  /**
+   * Returns the parenthesis that matches the parenthesis token starting at the given position.
+   *
+   * @param position The start position of a {@code (} or {@code )} token.
+   * @return The matching {@code )} or {@code (} token, respectively, unless there is no parenthesis
+   *     token at the given position or if it is unbalanced.
+   */
+  public Optional<ErrorProneToken> findMatchingParenthesis(int position) {
+    TokenStream stream = tokenStream.get();
+    int index = stream.indexOfFirstTokenAtOrAfter(position);
+    if (index == stream.tokens.size() || stream.tokens.get(index).pos() != position) {
+      return Optional.empty();
+    }
+
+    int match = stream.matchingParentheses[index];
+    return match < 0 ? Optional.empty() : Optional.of(stream.tokens.get(match));
+  }
+
+  /** The tokens of a compilation unit, along with an index of matching parentheses. */
+  private static final class TokenStream {
+    private final ImmutableList<ErrorProneToken> tokens;
+    private final int[] startPositions;
+    private final int[] matchingParentheses;
+
+    private TokenStream(
+        ImmutableList<ErrorProneToken> tokens, int[] startPositions, int[] matchingParentheses) {
+      this.tokens = tokens;
+      this.startPositions = startPositions;
+      this.matchingParentheses = matchingParentheses;
+    }
+
+    static TokenStream lex(CharSequence sourceCode, Context context) {
+      ImmutableList<ErrorProneToken> tokens =
+          ErrorProneTokens.getTokens(sourceCode.toString(), context).stream()
+              .filter(t -> t.kind() != EOF)
+              .collect(toImmutableList());
+
+      int[] startPositions = new int[tokens.size()];
+      int[] matchingParentheses = new int[tokens.size()];
+      Arrays.fill(matchingParentheses, -1);
+      Deque<Integer> openParentheses = new ArrayDeque<>();
+      for (int i = 0; i < tokens.size(); i++) {
+        ErrorProneToken token = tokens.get(i);
+        startPositions[i] = token.pos();
+        if (token.kind() == LPAREN) {
+          openParentheses.push(i);
+        } else if (token.kind() == RPAREN && !openParentheses.isEmpty()) {
+          int open = openParentheses.pop();
+          matchingParentheses[open] = i;
+          matchingParentheses[i] = open;
+        }
+      }
+
+      return new TokenStream(tokens, startPositions, matchingParentheses);
+    }
+
+    int indexOfFirstTokenAtOrAfter(int position) {
+      int index = Arrays.binarySearch(startPositions, position);
+      return index < 0 ? -index - 1 : index;
+    }
+  }
+}
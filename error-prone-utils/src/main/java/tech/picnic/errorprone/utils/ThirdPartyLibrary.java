@@ -1,9 +1,10 @@
 package tech.picnic.errorprone.utils;
 
 import com.google.common.collect.ImmutableList;
+import com.google.errorprone.ErrorProneFlags;
 import com.google.errorprone.VisitorState;
+import com.google.errorprone.annotations.Var;
 import com.google.errorprone.bugpatterns.BugChecker;
-import com.google.errorprone.suppliers.Supplier;
 import com.sun.tools.javac.code.ClassFinder;
 import com.sun.tools.javac.code.Source;
 import com.sun.tools.javac.code.Symbol;
@@ -11,7 +12,10 @@ import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.code.Symbol.ModuleSymbol;
 import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Name;
+import java.util.HashMap;
+import java.util.Map;
 import javax.lang.model.element.Modifier;
 
 /**
@@ -19,7 +23,9 @@ import javax.lang.model.element.Modifier;
  * third-party libraries.
  *
  * <p>This class should be used by {@link BugChecker}s that may otherwise suggest the introduction
- * of code that depends on possibly-not-present third-party libraries.
+ * of code that depends on possibly-not-present third-party libraries. The outcome of each classpath
+ * probe is cached for the duration of the compilation, such that checkers can cheaply query the
+ * availability of the same libraries and types over and over.
  */
 // XXX: Consider giving users more fine-grained control. This would be beneficial in cases where a
 // dependency is on the classpath, but new usages are undesirable.
@@ -45,9 +51,9 @@ public enum ThirdPartyLibrary {
 
   private static final String IGNORE_CLASSPATH_COMPAT_FLAG =
       "ErrorProneSupport:IgnoreClasspathCompat";
+  private static final Context.Key<ProbeCache> PROBE_CACHE_KEY = new Context.Key<>();
 
-  @SuppressWarnings("ImmutableEnumChecker" /* Supplier is deterministic. */)
-  private final Supplier<Boolean> canUse;
+  private final String witnessFqcn;
 
   /**
    * Instantiates a {@link ThirdPartyLibrary} enum value.
@@ -56,7 +62,7 @@ public enum ThirdPartyLibrary {
    *     classpath iff the associated third-party library is on the classpath.
    */
   ThirdPartyLibrary(String witnessFqcn) {
-    this.canUse = VisitorState.memoize(state -> canIntroduceUsage(witnessFqcn, state));
+    this.witnessFqcn = witnessFqcn;
   }
 
   /**
@@ -67,18 +73,22 @@ public enum ThirdPartyLibrary {
    * @return {@code true} iff it is okay to assume or create a dependency on this library.
    */
   public boolean isIntroductionAllowed(VisitorState state) {
-    return canUse.get(state);
+    return canIntroduceUsage(witnessFqcn, state);
   }
 
   /**
    * Tells whether the given fully qualified type is available on the current class path.
    *
+   * <p>The outcome is cached for the remainder of the compilation, such that subsequent invocations
+   * for the same type are cheap.
+   *
    * @param typeName The type of interest.
    * @param state The context under consideration.
    * @return {@code true} iff it is okay to assume or create a dependency on this type.
    */
   public static boolean canIntroduceUsage(String typeName, VisitorState state) {
-    return shouldIgnoreClasspath(state) || isKnownClass(typeName, state);
+    ProbeCache cache = ProbeCache.instance(state);
+    return cache.ignoreClasspath || cache.isKnownClass(typeName, state);
   }
 
   /**
@@ -87,8 +97,10 @@ public enum ThirdPartyLibrary {
    * <p>The {@link VisitorState}'s symbol table is consulted first. If the type has not yet been
    * loaded, then an attempt is made to do so.
    */
-  private static boolean isKnownClass(String typeName, VisitorState state) {
-    return isPublicClassInSymbolTable(typeName, state) || canLoadPublicClass(typeName, state);
+  private static boolean probe(
+      String typeName, ModuleSymbol module, Name binaryName, VisitorState state) {
+    return isPublicClassInSymbolTable(typeName, state)
+        || canLoadPublicClass(module, binaryName, state);
   }
 
   private static boolean isPublicClassInSymbolTable(String typeName, VisitorState state) {
@@ -96,17 +108,10 @@ public enum ThirdPartyLibrary {
     return type != null && isPublic(type.tsym);
   }
 
-  private static boolean canLoadPublicClass(String typeName, VisitorState state) {
-    ClassFinder classFinder = ClassFinder.instance(state.context);
-    Symtab symtab = state.getSymtab();
-    // XXX: Drop support for targeting Java 8 once the oldest supported JDK drops such support.
-    ModuleSymbol module =
-        Source.instance(state.context).compareTo(Source.JDK9) < 0
-            ? symtab.noModule
-            : symtab.unnamedModule;
-    Name binaryName = state.binaryNameFromClassname(typeName);
+  private static boolean canLoadPublicClass(
+      ModuleSymbol module, Name binaryName, VisitorState state) {
     try {
-      return isPublic(classFinder.loadClass(module, binaryName));
+      return isPublic(ClassFinder.instance(state.context).loadClass(module, binaryName));
     } catch (
         @SuppressWarnings("java:S1166" /* Not exceptional. */)
         CompletionFailure e) {
@@ -119,11 +124,51 @@ public enum ThirdPartyLibrary {
     return symbol.getModifiers().contains(Modifier.PUBLIC);
   }
 
-  private static boolean shouldIgnoreClasspath(VisitorState state) {
-    return state
-        .errorProneOptions()
-        .getFlags()
-        .getBoolean(IGNORE_CLASSPATH_COMPAT_FLAG)
-        .orElse(Boolean.FALSE);
+  /**
+   * The outcome of all classpath probes performed during a single compilation, including negative
+   * ones, as well as the flags that influence such probes.
+   *
+   * <p>As the module in which classes are looked up is fixed for the duration of a compilation,
+   * probes are keyed by binary name only.
+   */
+  private static final class ProbeCache {
+    private final boolean ignoreClasspath;
+    private final ModuleSymbol module;
+    private final Map<Name, Boolean> knownClasses = new HashMap<>();
+
+    private ProbeCache(boolean ignoreClasspath, ModuleSymbol module) {
+      this.ignoreClasspath = ignoreClasspath;
+      this.module = module;
+    }
+
+    static ProbeCache instance(VisitorState state) {
+      ProbeCache cache = state.context.get(PROBE_CACHE_KEY);
+      if (cache != null) {
+        return cache;
+      }
+
+      ErrorProneFlags flags = state.errorProneOptions().getFlags();
+      Symtab symtab = state.getSymtab();
+      ProbeCache newCache =
+          new ProbeCache(
+              flags.getBoolean(IGNORE_CLASSPATH_COMPAT_FLAG).orElse(Boolean.FALSE),
+              // XXX: Drop support for targeting Java 8 once the oldest supported JDK drops such
+              // support.
+              Source.instance(state.context).compareTo(Source.JDK9) < 0
+                  ? symtab.noModule
+                  : symtab.unnamedModule);
+      state.context.put(PROBE_CACHE_KEY, newCache);
+      return newCache;
+    }
+
+    boolean isKnownClass(String typeName, VisitorState state) {
+      Name binaryName = state.binaryNameFromClassname(typeName);
+      @Var Boolean known = knownClasses.get(binaryName);
+      if (known == null) {
+        known = probe(typeName, module, binaryName, state);
+        knownClasses.put(binaryName, known);
+      }
+      return known;
+    }
   }
 }
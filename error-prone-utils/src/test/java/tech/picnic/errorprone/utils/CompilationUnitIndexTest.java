@@ -0,0 +1,84 @@
+package tech.picnic.errorprone.utils;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.MethodTree;
+import com.sun.tools.javac.code.Symbol;
+import org.junit.jupiter.api.Test;
+
+final class CompilationUnitIndexTest {
+  @Test
+  void matcher() {
+    CompilationTestHelper.newInstance(CompilationUnitIndexTestChecker.class, getClass())
+        .addSourceLines(
+            "A.java",
+            "import static java.util.Collections.*;",
+            "import static java.util.Objects.requireNonNull;",
+            "",
+            "import java.util.List;",
+            "import java.util.function.*;",
+            "",
+            "class A {",
+            "  // BUG: Diagnostic contains: methods=1, staticImports=1, imports=0, identifiers=0",
+            "  void requireNonNull(Object o) {}",
+            "",
+            "  // BUG: Diagnostic contains: methods=1, staticImports=0, imports=1, identifiers=0",
+            "  void List() {}",
+            "",
+            "  // BUG: Diagnostic contains: methods=3, staticImports=0, imports=0, identifiers=2",
+            "  void m() {}",
+            "",
+            "  // BUG: Diagnostic contains: methods=3, staticImports=0, imports=0, identifiers=0",
+            "  void m(int i) {",
+            "    m();",
+            "    m();",
+            "    new Object() {",
+            "      // BUG: Diagnostic contains: methods=3, staticImports=0, imports=0, identifiers=0",
+            "      void m(String s) {}",
+            "    };",
+            "  }",
+            "}")
+        .addSourceLines(
+            "B.java",
+            "class B {",
+            "  // BUG: Diagnostic contains: methods=1, staticImports=0, imports=0, identifiers=0",
+            "  void m() {}",
+            "}")
+        .doTest();
+  }
+
+  /**
+   * A {@link BugChecker} that flags each method declaration with a summary of the {@link
+   * CompilationUnitIndex} facts associated with its name and symbol.
+   */
+  @BugPattern(
+      summary = "Interacts with `CompilationUnitIndex` for testing purposes",
+      severity = ERROR)
+  public static final class CompilationUnitIndexTestChecker extends BugChecker
+      implements MethodTreeMatcher {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Description matchMethod(MethodTree tree, VisitorState state) {
+      String name = tree.getName().toString();
+      Symbol symbol = ASTHelpers.getSymbol(tree);
+      CompilationUnitIndex index = CompilationUnitIndex.of(state);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "methods=%s, staticImports=%s, imports=%s, identifiers=%s",
+                  index.getMethods(name).size(),
+                  index.getStaticImports(name).size(),
+                  index.getImports(name).size(),
+                  index.getIdentifiers(symbol).size()))
+          .build();
+    }
+  }
+}
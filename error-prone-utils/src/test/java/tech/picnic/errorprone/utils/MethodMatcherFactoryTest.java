@@ -9,11 +9,14 @@ import com.google.errorprone.BugPattern;
 import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MemberReferenceTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
 import com.sun.source.tree.MethodInvocationTree;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -28,6 +31,17 @@ final class MethodMatcherFactoryTest {
                   "com.example.A#m1()",
                   "com.example.A#m2(java.lang.String)",
                   "com.example.sub.B#m3(int,int)"));
+  private static final Matcher<ExpressionTree> MANY_SIGNATURES_TEST_MATCHER =
+      new MethodMatcherFactory()
+          .create(
+              ImmutableList.<String>builder()
+                  .addAll(
+                      IntStream.range(0, 1000)
+                          .mapToObj(i -> String.format("com.example.T%s#m%s(int)", i, i % 3))
+                          .iterator())
+                  .add("com.example.A#m1(java.lang.String)")
+                  .add("com.example.A#m1(java.lang.String,int)")
+                  .build());
 
   private static Stream<Arguments> createWithMalformedSignaturesTestCases() {
     /* { signatures } */
@@ -201,6 +215,64 @@ final class MethodMatcherFactoryTest {
         .doTest();
   }
 
+  @Test
+  void matcherWithManySignatures() {
+    CompilationTestHelper.newInstance(ManySignaturesMatchedMethodsFlagger.class, getClass())
+        .addSourceLines(
+            "com/example/A.java",
+            "package com.example;",
+            "",
+            "public class A {",
+            "  public void m1(int i) {}",
+            "",
+            "  public void m1(String s) {}",
+            "",
+            "  public void m1(String s, int i) {}",
+            "",
+            "  public void m1(int i, String s) {}",
+            "",
+            "  public void m2(String s) {}",
+            "}")
+        .addSourceLines(
+            "com/example/T1.java",
+            "package com.example;",
+            "",
+            "public class T1 {",
+            "  public static void m0(int i) {}",
+            "",
+            "  public static void m1(int i) {}",
+            "}")
+        .addSourceLines(
+            "External.java",
+            "import com.example.A;",
+            "import com.example.T1;",
+            "import java.util.function.Consumer;",
+            "",
+            "public class External {",
+            "  void invocations() {",
+            "    new A().m1(0);",
+            "    // BUG: Diagnostic contains:",
+            "    new A().m1(\"\");",
+            "    // BUG: Diagnostic contains:",
+            "    new A().m1(\"\", 0);",
+            "    new A().m1(0, \"\");",
+            "    new A().m2(\"\");",
+            "    T1.m0(0);",
+            "    // BUG: Diagnostic contains:",
+            "    T1.m1(0);",
+            "  }",
+            "",
+            "  void methodReferences() {",
+            "    // BUG: Diagnostic contains:",
+            "    Consumer<String> c1 = new A()::m1;",
+            "    Consumer<String> c2 = new A()::m2;",
+            "    // BUG: Diagnostic contains:",
+            "    Consumer<Integer> c3 = T1::m1;",
+            "  }",
+            "}")
+        .doTest();
+  }
+
   /** A {@link BugChecker} that flags method invocations matched by {@link #TEST_MATCHER}. */
   @BugPattern(severity = SUGGESTION, summary = "Flags methods matched by the test matcher.")
   public static final class MatchedMethodsFlagger extends BugChecker
@@ -216,4 +288,30 @@ final class MethodMatcherFactoryTest {
       return Description.NO_MATCH;
     }
   }
+
+  /**
+   * A {@link BugChecker} that flags method invocations and method references matched by {@link
+   * #MANY_SIGNATURES_TEST_MATCHER}.
+   */
+  @BugPattern(
+      severity = SUGGESTION,
+      summary = "Flags methods matched by the test matcher with many signatures.")
+  public static final class ManySignaturesMatchedMethodsFlagger extends BugChecker
+      implements MemberReferenceTreeMatcher, MethodInvocationTreeMatcher {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Description matchMemberReference(MemberReferenceTree tree, VisitorState state) {
+      return MANY_SIGNATURES_TEST_MATCHER.matches(tree, state)
+          ? describeMatch(tree)
+          : Description.NO_MATCH;
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return MANY_SIGNATURES_TEST_MATCHER.matches(tree, state)
+          ? describeMatch(tree)
+          : Description.NO_MATCH;
+    }
+  }
 }
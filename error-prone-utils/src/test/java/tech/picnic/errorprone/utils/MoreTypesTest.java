@@ -121,6 +121,20 @@ final class MoreTypesTest {
         .doTest();
   }
 
+  @Test
+  void structurallyEqualTypesShareInstance() {
+    CompilationTestHelper.newInstance(TypeIdentityFlagger.class, getClass())
+        .addSourceLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    // BUG: Diagnostic contains: Optional<? extends Number>: true, ? super Number: true, Nonexistent<?>: true",
+            "    toString();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
   /**
    * A {@link BugChecker} that flags method invocations that are a subtype of any type defined by
    * {@link #getTestTypes()}.
@@ -211,4 +225,43 @@ final class MoreTypesTest {
                       superOf(type(Short.class.getCanonicalName()))))));
     }
   }
+
+  /**
+   * A {@link BugChecker} that flags method invocations with, for each of a number of types, whether
+   * two separately constructed but structurally equal suppliers resolve to the same instance.
+   */
+  @BugPattern(summary = "Flags method invocations with type identity details", severity = ERROR)
+  public static final class TypeIdentityFlagger extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "Optional<? extends Number>: %s, ? super Number: %s, Nonexistent<?>: %s",
+                  isSameInstance(
+                      generic(
+                          type(Optional.class.getCanonicalName()),
+                          subOf(type(Number.class.getCanonicalName()))),
+                      generic(
+                          type(Optional.class.getCanonicalName()),
+                          subOf(type(Number.class.getCanonicalName()))),
+                      state),
+                  isSameInstance(
+                      superOf(type(Number.class.getCanonicalName())),
+                      superOf(type(Number.class.getCanonicalName())),
+                      state),
+                  generic(type("java.util.Nonexistent"), unbound()).get(state) == null))
+          .build();
+    }
+
+    @SuppressWarnings("ReferenceEquality" /* This method verifies instance identity. */)
+    private static boolean isSameInstance(
+        Supplier<Type> first, Supplier<Type> second, VisitorState state) {
+      Type type = first.get(state);
+      return type != null && type == second.get(state) && type == first.get(state);
+    }
+  }
 }
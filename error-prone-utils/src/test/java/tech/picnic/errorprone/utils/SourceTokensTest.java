@@ -0,0 +1,73 @@
+package tech.picnic.errorprone.utils;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static java.util.stream.Collectors.joining;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ErrorProneToken;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.MethodInvocationTree;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+final class SourceTokensTest {
+  @Test
+  void matcher() {
+    CompilationTestHelper.newInstance(SourceTokensTestChecker.class, getClass())
+        .addSourceLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    // BUG: Diagnostic contains: tokens=[LPAREN, RPAREN, SEMI], matchingParenthesisEnd=0, next=;",
+            "    toString()   ;",
+            "    // BUG: Diagnostic contains: tokens=[LPAREN, STRINGLITERAL, RPAREN, SEMI], matchingParenthesisEnd=0, next=/",
+            "    String.valueOf( /* ( */ \"(\") /* ) */ ;",
+            "    // BUG: Diagnostic contains: tokens=[LPAREN, LPAREN, INTLITERAL, RPAREN, RPAREN, SEMI], matchingParenthesisEnd=0, next=;",
+            "    Integer.valueOf( (1)",
+            "    );",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  /**
+   * A {@link BugChecker} that flags each method invocation statement with a summary of the tokens
+   * following its method select expression, as exposed by {@link SourceTokens}.
+   */
+  @BugPattern(summary = "Interacts with `SourceTokens` for testing purposes", severity = ERROR)
+  public static final class SourceTokensTestChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      if (!(state.getPath().getParentPath().getLeaf()
+          instanceof ExpressionStatementTree statement)) {
+        return Description.NO_MATCH;
+      }
+
+      SourceTokens sourceTokens = SourceTokens.of(state).orElseThrow();
+      int startPosition = state.getEndPosition(tree.getMethodSelect());
+      int endPosition = state.getEndPosition(tree);
+      ErrorProneToken leftParen = sourceTokens.getTokens(startPosition, endPosition).get(0);
+      Optional<ErrorProneToken> matchingParenthesis =
+          sourceTokens.findMatchingParenthesis(leftParen.pos());
+      int next = sourceTokens.getNextNonWhitespacePosition(endPosition);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "tokens=%s, matchingParenthesisEnd=%s, next=%s",
+                  sourceTokens.getTokens(startPosition, state.getEndPosition(statement)).stream()
+                      .map(t -> t.kind().name())
+                      .collect(joining(", ", "[", "]")),
+                  matchingParenthesis.map(t -> endPosition - t.endPos()).orElse(-1),
+                  sourceTokens.getSourceCode().charAt(next)))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.errorprone.CodeTransformer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.picnic.errorprone.refaster.RefasterRuleFormat;
+import tech.picnic.errorprone.refaster.runner.CodeTransformers;
+
+/**
+ * Measures the cost of loading all Refaster rules on the classpath in a freshly started JVM.
+ *
+ * <p>As {@link CodeTransformers} caches the rules it loads, each fork performs a single measurement
+ * only.
+ *
+ * <p>Additionally, the cost of decoding all rules is measured separately. As the associated classes
+ * are loaded while the rules are encoded, these measurements exclude class loading.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Fork(10)
+@Measurement(iterations = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+public class CodeTransformersBenchmark {
+  /**
+   * Loads all Refaster rules.
+   *
+   * @return The loaded rules.
+   */
+  @Benchmark
+  public ImmutableListMultimap<String, CodeTransformer> loadAllCodeTransformers() {
+    return CodeTransformers.getAllCodeTransformers();
+  }
+
+  /**
+   * Loads all Refaster rules, and reports the amount of heap memory retained by them.
+   *
+   * <p>As this benchmark includes garbage collection, its primary score is not meaningful; the
+   * {@link RetainedHeap#retainedHeapBytes} secondary result is. As this amount hardly varies, and
+   * JMH sums secondary results across forks, this benchmark is run in a single fork only.
+   *
+   * @param retainedHeap The state through which to report the amount of retained heap memory.
+   * @return The loaded rules.
+   */
+  @Benchmark
+  @Fork(1)
+  public ImmutableListMultimap<String, CodeTransformer> measureRetainedHeap(
+      RetainedHeap retainedHeap) {
+    long baseline = getUsedHeapAfterGc();
+    ImmutableListMultimap<String, CodeTransformer> rules =
+        CodeTransformers.getAllCodeTransformers();
+    retainedHeap.retainedHeapBytes = getUsedHeapAfterGc() - baseline;
+    return rules;
+  }
+
+  /**
+   * Decodes all Refaster rules.
+   *
+   * @param rules The encoded Refaster rules.
+   * @return The decoded rules.
+   * @throws IOException If a rule could not be decoded.
+   * @throws ClassNotFoundException If a rule references a class that is not on the classpath.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Fork(1)
+  @Measurement(iterations = 5)
+  @Warmup(iterations = 3)
+  public ImmutableList<CodeTransformer> decodeAllRules(EncodedRules rules)
+      throws IOException, ClassNotFoundException {
+    return rules.decode();
+  }
+
+  /**
+   * Decodes all Refaster rules, and reports the amount of heap memory retained by them.
+   *
+   * <p>As with {@link #measureRetainedHeap(RetainedHeap)}, only the {@link
+   * RetainedHeap#retainedHeapBytes} secondary result of this benchmark is meaningful.
+   *
+   * @param rules The encoded Refaster rules.
+   * @param retainedHeap The state through which to report the amount of retained heap memory.
+   * @return The decoded rules.
+   * @throws IOException If a rule could not be decoded.
+   * @throws ClassNotFoundException If a rule references a class that is not on the classpath.
+   */
+  @Benchmark
+  @Fork(1)
+  public ImmutableList<CodeTransformer> measureDecodedRetainedHeap(
+      EncodedRules rules, RetainedHeap retainedHeap) throws IOException, ClassNotFoundException {
+    long baseline = getUsedHeapAfterGc();
+    ImmutableList<CodeTransformer> decoded = rules.decode();
+    retainedHeap.retainedHeapBytes = getUsedHeapAfterGc() - baseline;
+    return decoded;
+  }
+
+  @SuppressWarnings("java:S1215" /* Garbage collection is required for accurate measurements. */)
+  private static long getUsedHeapAfterGc() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      memory.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  /** Reports the amount of heap memory retained by the loaded Refaster rules. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  @SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+  public static class RetainedHeap {
+    /** The number of bytes of heap memory retained by the loaded Refaster rules. */
+    @SuppressWarnings("checkstyle:VisibilityModifier" /* JMH requires a public field. */)
+    public long retainedHeapBytes;
+  }
+
+  /** All Refaster rules on the classpath, encoded using {@link RefasterRuleFormat}. */
+  @State(Scope.Benchmark)
+  @SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+  public static class EncodedRules {
+    private ImmutableList<byte[]> rules = ImmutableList.of();
+
+    /**
+     * Encodes all Refaster rules on the classpath.
+     *
+     * @throws IOException If a rule could not be encoded.
+     */
+    @Setup
+    public void setUp() throws IOException {
+      ImmutableList.Builder<byte[]> encoded = ImmutableList.builder();
+      for (CodeTransformer codeTransformer : CodeTransformers.getAllCodeTransformers().values()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RefasterRuleFormat.write(codeTransformer, out);
+        encoded.add(out.toByteArray());
+      }
+      rules = encoded.build();
+    }
+
+    final ImmutableList<CodeTransformer> decode() throws IOException, ClassNotFoundException {
+      ImmutableList.Builder<CodeTransformer> decoded =
+          ImmutableList.builderWithExpectedSize(rules.size());
+      for (byte[] rule : rules) {
+        decoded.add(RefasterRuleFormat.read(new ByteArrayInputStream(rule)));
+      }
+      return decoded.build();
+    }
+  }
+}
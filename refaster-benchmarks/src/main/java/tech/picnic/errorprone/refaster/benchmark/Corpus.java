@@ -0,0 +1,110 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.ClassPath;
+import com.google.common.reflect.ClassPath.ResourceInfo;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * The fixed set of source files against which Refaster rules are benchmarked.
+ *
+ * <p>The corpus consists of the Refaster rule test input files of {@code error-prone-contrib},
+ * which together contain at least one match for each of the rules defined in that module. Source
+ * files that fail to compile are excluded.
+ */
+final class Corpus {
+  private static final String RESOURCE_PREFIX = "tech/picnic/errorprone/refasterrules/";
+  private static final String RESOURCE_SUFFIX = "TestInput.java";
+
+  private Corpus() {}
+
+  /**
+   * Parses and attributes the corpus.
+   *
+   * @param listener The listener to which matches reported against the returned states are passed.
+   * @return For each compilation unit in the corpus, a {@link VisitorState} whose path points to
+   *     said compilation unit.
+   * @throws IOException If the corpus could not be read.
+   */
+  static ImmutableList<VisitorState> compile(DescriptionListener listener) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                compiler.getStandardFileManager(diagnostics, null, UTF_8),
+                diagnostics,
+                ImmutableList.of("-proc:none", "-classpath", System.getProperty("java.class.path")),
+                null,
+                loadSources());
+    ImmutableList<CompilationUnitTree> compilationUnits = ImmutableList.copyOf(task.parse());
+    task.analyze();
+
+    ImmutableSet<JavaFileObject> erroneousSources =
+        diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .map(Diagnostic::getSource)
+            .filter(Objects::nonNull)
+            .collect(toImmutableSet());
+
+    Context context = ((BasicJavacTask) task).getContext();
+    context.put(ErrorProneOptions.class, ErrorProneOptions.empty());
+    VisitorState state = VisitorState.createForCustomFindingCollection(context, listener);
+    ImmutableList<VisitorState> states =
+        compilationUnits.stream()
+            .filter(compilationUnit -> !erroneousSources.contains(compilationUnit.getSourceFile()))
+            .map(compilationUnit -> state.withPath(new TreePath(compilationUnit)))
+            .collect(toImmutableList());
+    checkState(!states.isEmpty(), "None of the corpus source files compiled successfully");
+    return states;
+  }
+
+  private static ImmutableList<JavaFileObject> loadSources() throws IOException {
+    ImmutableList.Builder<JavaFileObject> sources = ImmutableList.builder();
+    for (ResourceInfo resource : ClassPath.from(Corpus.class.getClassLoader()).getResources()) {
+      String resourceName = resource.getResourceName();
+      if (resourceName.startsWith(RESOURCE_PREFIX) && resourceName.endsWith(RESOURCE_SUFFIX)) {
+        sources.add(new SourceFile(resourceName, resource.asCharSource(UTF_8).read()));
+      }
+    }
+    return sources.build();
+  }
+
+  /** An in-memory source file. */
+  private static final class SourceFile extends SimpleJavaFileObject {
+    private final String content;
+
+    SourceFile(String name, String content) {
+      super(URI.create("string:///" + name), Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public String getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.errorprone.matchers.Matchers.anyOf;
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.annotations.Var;
+import com.google.errorprone.matchers.Matcher;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeInfo;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.picnic.errorprone.utils.MethodMatcherFactory;
+
+/**
+ * Measures the time it takes a {@link MethodMatcherFactory}-created {@link Matcher} to process all
+ * method invocations in the benchmark {@link Corpus}, as a function of the number of signatures it
+ * matches.
+ *
+ * <p>For comparison, the same signatures are also matched using a {@link
+ * com.google.errorprone.matchers.Matchers#anyOf disjunction} of individual method matchers, the
+ * cost of which grows linearly with the number of signatures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+public class MethodMatcherFactoryBenchmark {
+  /** The number of method signatures to match. */
+  @Param({"1", "10", "100", "1000", "5000"})
+  @SuppressWarnings("checkstyle:VisibilityModifier" /* JMH requires a non-private field. */)
+  public int signatureCount = 1;
+
+  private Matcher<ExpressionTree> indexedMatcher = (tree, state) -> false;
+  private Matcher<ExpressionTree> linearMatcher = (tree, state) -> false;
+  private ImmutableList<VisitorState> methodInvocations = ImmutableList.of();
+
+  /**
+   * Prepares the benchmark by creating the matchers under test and collecting the method
+   * invocations in the benchmark corpus.
+   *
+   * @throws IOException If the corpus could not be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    /*
+     * Besides a number of signatures that match nothing, the signatures include a few methods that
+     * are invoked by the corpus, such that the matchers do not only reject candidates.
+     */
+    ImmutableList<String> signatures =
+        ImmutableList.<String>builder()
+            .add("java.lang.String#valueOf(java.lang.Object)")
+            .add("java.util.Objects#requireNonNull(java.lang.Object)")
+            .add("java.util.Optional#of(java.lang.Object)")
+            .addAll(
+                IntStream.range(3, Math.max(3, signatureCount))
+                    .mapToObj(
+                        i -> String.format("com.example.Type%s#method%s(java.lang.String)", i, i))
+                    .iterator())
+            .build()
+            .subList(0, signatureCount);
+
+    indexedMatcher = new MethodMatcherFactory().create(signatures);
+    linearMatcher =
+        anyOf(
+            signatures.stream()
+                .map(MethodMatcherFactoryBenchmark::createMethodMatcher)
+                .collect(toImmutableList()));
+    methodInvocations =
+        Corpus.compile(description -> {}).stream()
+            .flatMap(state -> collectMethodInvocations(state).stream())
+            .collect(toImmutableList());
+  }
+
+  /**
+   * Applies the {@link MethodMatcherFactory}-created matcher to all method invocations in the
+   * benchmark corpus.
+   *
+   * @return The number of matched method invocations.
+   */
+  @Benchmark
+  public int indexedMatcher() {
+    return countMatches(indexedMatcher);
+  }
+
+  /**
+   * Applies a disjunction of individual method matchers to all method invocations in the benchmark
+   * corpus.
+   *
+   * @return The number of matched method invocations.
+   */
+  @Benchmark
+  public int linearMatcher() {
+    return countMatches(linearMatcher);
+  }
+
+  private int countMatches(Matcher<ExpressionTree> matcher) {
+    @Var int matches = 0;
+    for (VisitorState state : methodInvocations) {
+      if (matcher.matches((ExpressionTree) state.getPath().getLeaf(), state)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  private static Matcher<ExpressionTree> createMethodMatcher(String signature) {
+    int hash = signature.indexOf('#');
+    int parenthesis = signature.indexOf('(');
+    String className = signature.substring(0, hash);
+    String methodName = signature.substring(hash + 1, parenthesis);
+    String parameterType = signature.substring(parenthesis + 1, signature.length() - 1);
+    return anyOf(
+        instanceMethod().onDescendantOf(className).named(methodName).withParameters(parameterType),
+        staticMethod().onClass(className).named(methodName).withParameters(parameterType));
+  }
+
+  private static ImmutableList<VisitorState> collectMethodInvocations(VisitorState state) {
+    ImmutableList.Builder<VisitorState> methodInvocations = ImmutableList.builder();
+    new TreePathScanner<@Nullable Void, @Nullable Void>() {
+      @Override
+      public @Nullable Void visitMethodInvocation(
+          MethodInvocationTree node, @Nullable Void unused) {
+        /* Invocations of unresolvable methods are rejected by any method matcher. */
+        if (TreeInfo.symbol((JCTree) node.getMethodSelect()) instanceof MethodSymbol) {
+          methodInvocations.add(state.withPath(getCurrentPath()));
+        }
+        return super.visitMethodInvocation(node, unused);
+      }
+    }.scan(state.getPath(), null);
+    return methodInvocations.build();
+  }
+}
@@ -0,0 +1,124 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import static tech.picnic.errorprone.utils.MoreTypes.generic;
+import static tech.picnic.errorprone.utils.MoreTypes.raw;
+import static tech.picnic.errorprone.utils.MoreTypes.subOf;
+import static tech.picnic.errorprone.utils.MoreTypes.type;
+import static tech.picnic.errorprone.utils.MoreTypes.unbound;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.suppliers.Supplier;
+import com.sun.tools.javac.code.BoundKind;
+import com.sun.tools.javac.code.Type;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tech.picnic.errorprone.utils.MoreTypes;
+
+/**
+ * Measures the cost of repeatedly looking up {@link MoreTypes}-defined types, as done by the {@code
+ * FluxFlatMapUsage} and {@code NestedPublishers} checks for each method invocation they inspect.
+ *
+ * <p>For comparison, the same types are also constructed from scratch on each lookup, as the {@link
+ * MoreTypes} DSL did before it memoized its types. Run this benchmark with {@code -prof gc} to
+ * observe that, after warm-up, {@link MoreTypes}-based lookups do not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+public class MoreTypesBenchmark {
+  private static final String FLUX = "reactor.core.publisher.Flux";
+  private static final String PUBLISHER = "org.reactivestreams.Publisher";
+  private static final Supplier<Type> FLUX_OF_PUBLISHERS =
+      generic(type(FLUX), subOf(generic(type(PUBLISHER), unbound())));
+  private static final Supplier<Type> PUBLISHER_OF_PUBLISHERS =
+      generic(type(PUBLISHER), subOf(raw(type(PUBLISHER))));
+
+  private ImmutableList<VisitorState> states = ImmutableList.of();
+
+  /**
+   * Prepares the benchmark by compiling the benchmark corpus.
+   *
+   * @throws IOException If the corpus could not be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    states = Corpus.compile(description -> {});
+  }
+
+  /**
+   * Looks up the {@link MoreTypes}-defined types once for each compilation unit in the benchmark
+   * corpus.
+   *
+   * @param blackhole The {@link Blackhole} that consumes the resolved types.
+   */
+  @Benchmark
+  public void memoizedTypes(Blackhole blackhole) {
+    for (VisitorState state : states) {
+      blackhole.consume(FLUX_OF_PUBLISHERS.get(state));
+      blackhole.consume(PUBLISHER_OF_PUBLISHERS.get(state));
+    }
+  }
+
+  /**
+   * Constructs the same types from scratch once for each compilation unit in the benchmark corpus.
+   *
+   * @param blackhole The {@link Blackhole} that consumes the constructed types.
+   */
+  @Benchmark
+  @SuppressWarnings(
+      "MemoizeConstantVisitorStateLookups" /* This benchmark measures uncached lookups. */)
+  public void uncachedTypes(Blackhole blackhole) {
+    for (VisitorState state : states) {
+      blackhole.consume(
+          newGenericType(
+              state,
+              state.getTypeFromString(FLUX),
+              newExtendsWildcardType(
+                  state,
+                  newGenericType(
+                      state, state.getTypeFromString(PUBLISHER), newUnboundWildcardType(state)))));
+      Type publisher = state.getTypeFromString(PUBLISHER);
+      blackhole.consume(
+          newGenericType(
+              state,
+              publisher,
+              newExtendsWildcardType(
+                  state, publisher == null ? null : publisher.tsym.erasure(state.getTypes()))));
+    }
+  }
+
+  private static @Nullable Type newGenericType(
+      VisitorState state, @Nullable Type type, @Nullable Type typeArg) {
+    return type == null || typeArg == null
+        ? null
+        : state.getType(type, /* isArray= */ false, ImmutableList.of(typeArg));
+  }
+
+  private static @Nullable Type newExtendsWildcardType(VisitorState state, @Nullable Type type) {
+    return type == null
+        ? null
+        : new Type.WildcardType(type, BoundKind.EXTENDS, state.getSymtab().boundClass);
+  }
+
+  private static Type newUnboundWildcardType(VisitorState state) {
+    return new Type.WildcardType(
+        state.getSymtab().objectType, BoundKind.UNBOUND, state.getSymtab().boundClass);
+  }
+}
@@ -0,0 +1,78 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.picnic.errorprone.refaster.runner.Refaster;
+
+/**
+ * Measures the time it takes {@link Refaster#matchCompilationUnit} to process the benchmark {@link
+ * Corpus}.
+ *
+ * <p>The {@link #namePattern} parameter restricts the set of applied Refaster rules, such that the
+ * cost of individual rule collections can be determined. Additional patterns can be benchmarked
+ * using JMH's {@code -p namePattern=<someRegex>} option.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@SuppressWarnings("Nopen" /* JMH generates subclasses of this class. */)
+public class RefasterBenchmark {
+  /**
+   * The {@link Refaster#INCLUDED_RULES_PATTERN_FLAG} with which to configure {@link Refaster}; if
+   * empty, all Refaster rules are applied.
+   */
+  @Param({"", "AssertJ.*", "Collection.*", "Optional.*", "Reactor.*", "String.*"})
+  @SuppressWarnings("checkstyle:VisibilityModifier" /* JMH requires a non-private field. */)
+  public String namePattern = "";
+
+  private Refaster refaster = new Refaster();
+  private ImmutableList<VisitorState> compilationUnits = ImmutableList.of();
+  private long matchCount;
+
+  /**
+   * Prepares the benchmark by configuring {@link Refaster} and compiling the benchmark corpus.
+   *
+   * @throws IOException If the corpus could not be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    refaster =
+        new Refaster(
+            namePattern.isEmpty()
+                ? ErrorProneFlags.empty()
+                : ErrorProneFlags.fromMap(
+                    ImmutableMap.of(Refaster.INCLUDED_RULES_PATTERN_FLAG, namePattern)));
+    compilationUnits = Corpus.compile(description -> matchCount++);
+  }
+
+  /**
+   * Applies {@link Refaster} to all compilation units in the benchmark corpus.
+   *
+   * @return The total number of matches reported so far.
+   */
+  @Benchmark
+  public long matchCompilationUnits() {
+    for (VisitorState state : compilationUnits) {
+      refaster.matchCompilationUnit(state.getPath().getCompilationUnit(), state);
+    }
+    return matchCount;
+  }
+}
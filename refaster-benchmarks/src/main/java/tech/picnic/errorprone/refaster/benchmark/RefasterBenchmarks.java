@@ -0,0 +1,50 @@
+package tech.picnic.errorprone.refaster.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the Refaster benchmarks defined in this module.
+ *
+ * <p>This class accepts the same arguments as JMH's own {@link Main}. Unless specified otherwise,
+ * results are written to {@code jmh-result.json} in JSON format, such that they can be compared
+ * across releases. The forked benchmark JVMs are configured to allow access to the {@code javac}
+ * internals on which Error Prone relies.
+ */
+public final class RefasterBenchmarks {
+  private static final ImmutableList<String> DEFAULT_ARGUMENTS =
+      ImmutableList.of(
+          "-rf",
+          "json",
+          "-jvmArgsAppend",
+          String.join(
+              " ",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+              "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+              "--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED"));
+
+  private RefasterBenchmarks() {}
+
+  /**
+   * Runs the benchmarks selected by the given arguments.
+   *
+   * @param args Any JMH command line arguments; these take precedence over the defaults.
+   * @throws IOException If the benchmarks could not be run.
+   */
+  public static void main(String... args) throws IOException {
+    Main.main(
+        ImmutableList.<String>builder()
+            .addAll(DEFAULT_ARGUMENTS)
+            .add(args)
+            .build()
+            .toArray(String[]::new));
+  }
+}
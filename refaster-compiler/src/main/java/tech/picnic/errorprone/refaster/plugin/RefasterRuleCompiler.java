@@ -1,6 +1,7 @@
 package tech.picnic.errorprone.refaster.plugin;
 
 import com.google.auto.service.AutoService;
+import com.google.errorprone.annotations.Var;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.Plugin;
 import com.sun.tools.javac.api.BasicJavacTask;
@@ -9,9 +10,34 @@ import com.sun.tools.javac.api.BasicJavacTask;
  * A variant of {@code com.google.errorprone.refaster.RefasterRuleCompiler} that outputs a {@code
  * fully/qualified/Class.refaster} file for each compiled {@code fully.qualified.Class} that
  * contains a Refaster rule.
+ *
+ * <p>The following plugin arguments are supported, e.g. by passing {@code
+ * -Xplugin:"RefasterRuleCompiler MaxRuleCost=100"}:
+ *
+ * <ul>
+ *   <li>{@code MaxRuleCost=<cost>}: causes compilation to fail for any Refaster rule of which the
+ *       estimated matching cost exceeds the given value. See {@link
+ *       tech.picnic.errorprone.refaster.RefasterRuleCosts}.
+ *   <li>{@code CostReport=true}: causes a {@code fully/qualified/Class.refaster-cost} file with a
+ *       breakdown of the estimated matching cost to be written next to each {@code .refaster} file.
+ *   <li>{@code RuleArchive=true}: causes all Refaster rules compiled as part of the same
+ *       compilation to be bundled into a single {@value
+ *       tech.picnic.errorprone.refaster.RefasterRuleArchive#RESOURCE_NAME} file, rather than
+ *       written to separate {@code .refaster} files.
+ *   <li>{@code Incremental=true}: causes Refaster rules to be recompiled only if their source code
+ *       or the compiler configuration changed since they were last compiled. This speeds up
+ *       repeated compilation of large rule collections of which only few rules change.
+ * </ul>
+ *
+ * <p>Other arguments are ignored.
  */
 @AutoService(Plugin.class)
 public final class RefasterRuleCompiler implements Plugin {
+  private static final String MAX_RULE_COST_ARG = "MaxRuleCost=";
+  private static final String COST_REPORT_ARG = "CostReport=";
+  private static final String RULE_ARCHIVE_ARG = "RuleArchive=";
+  private static final String INCREMENTAL_ARG = "Incremental=";
+
   /** Instantiates a new {@link RefasterRuleCompiler} instance. */
   public RefasterRuleCompiler() {}
 
@@ -22,8 +48,29 @@ public final class RefasterRuleCompiler implements Plugin {
 
   @Override
   public void init(JavacTask javacTask, String... args) {
+    @Var int maxRuleCost = Integer.MAX_VALUE;
+    @Var boolean costReport = false;
+    @Var boolean ruleArchive = false;
+    @Var boolean incremental = false;
+    for (String arg : args) {
+      if (arg.startsWith(MAX_RULE_COST_ARG)) {
+        maxRuleCost = Integer.parseInt(arg.substring(MAX_RULE_COST_ARG.length()));
+      } else if (arg.startsWith(COST_REPORT_ARG)) {
+        costReport = Boolean.parseBoolean(arg.substring(COST_REPORT_ARG.length()));
+      } else if (arg.startsWith(RULE_ARCHIVE_ARG)) {
+        ruleArchive = Boolean.parseBoolean(arg.substring(RULE_ARCHIVE_ARG.length()));
+      } else if (arg.startsWith(INCREMENTAL_ARG)) {
+        incremental = Boolean.parseBoolean(arg.substring(INCREMENTAL_ARG.length()));
+      }
+    }
+
     javacTask.addTaskListener(
-        new RefasterRuleCompilerTaskListener(((BasicJavacTask) javacTask).getContext()));
+        new RefasterRuleCompilerTaskListener(
+            ((BasicJavacTask) javacTask).getContext(),
+            maxRuleCost,
+            costReport,
+            ruleArchive,
+            incremental));
   }
 
   @Override
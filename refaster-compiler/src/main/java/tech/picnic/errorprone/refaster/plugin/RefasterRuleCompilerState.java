@@ -0,0 +1,127 @@
+package tech.picnic.errorprone.refaster.plugin;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.HashCode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Utility class for reading and writing the state that enables {@link
+ * RefasterRuleCompilerTaskListener} to skip the recompilation of unchanged Refaster rules.
+ *
+ * <p>Such state is stored as the {@value #RESOURCE_NAME} resource. For each top-level class from
+ * which Refaster rules were compiled, it records the class's source file, a hash of the inputs of
+ * the compilation and the names of the resulting rule resources.
+ */
+final class RefasterRuleCompilerState {
+  /** The name of the class output resource that holds the compiler state. */
+  static final String RESOURCE_NAME = "META-INF/refaster/compiler-state";
+
+  private static final String HEADER = "# Refaster rule compiler state, format version 3";
+  private static final int FIELD_COUNT = 4;
+  private static final char FIELD_SEPARATOR = '\t';
+  private static final char VALUE_SEPARATOR = ',';
+  private static final Splitter FIELD_SPLITTER = Splitter.on(FIELD_SEPARATOR);
+  private static final Splitter VALUE_SPLITTER = Splitter.on(VALUE_SEPARATOR).omitEmptyStrings();
+  private static final Joiner FIELD_JOINER = Joiner.on(FIELD_SEPARATOR);
+  private static final Joiner VALUE_JOINER = Joiner.on(VALUE_SEPARATOR);
+
+  private RefasterRuleCompilerState() {}
+
+  /**
+   * Writes the given compiler state, ordered by class name.
+   *
+   * @param classes A mapping from the flat names of top-level classes to the associated state.
+   * @param writer The target to which to write the state.
+   * @throws IOException If the state could not be written.
+   */
+  static void write(Map<String, CompiledClass> classes, Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write('\n');
+    for (Map.Entry<String, CompiledClass> entry : ImmutableSortedMap.copyOf(classes).entrySet()) {
+      FIELD_JOINER.appendTo(
+          writer,
+          entry.getKey(),
+          entry.getValue().sourceFile(),
+          entry.getValue().inputHash(),
+          VALUE_JOINER.join(entry.getValue().ruleResources()));
+      writer.write('\n');
+    }
+  }
+
+  /**
+   * Reads compiler state previously written by {@link #write(Map, Writer)}.
+   *
+   * @param reader The source from which to read the state.
+   * @return A mapping from the flat names of top-level classes to the associated state, unless the
+   *     state was written using an unsupported format.
+   * @throws IOException If the state could not be read.
+   */
+  static Optional<ImmutableMap<String, CompiledClass>> read(Reader reader) throws IOException {
+    BufferedReader lines = new BufferedReader(reader);
+    if (!HEADER.equals(lines.readLine())) {
+      return Optional.empty();
+    }
+
+    ImmutableMap.Builder<String, CompiledClass> classes = ImmutableMap.builder();
+    for (String line : lines.lines().filter(l -> !l.isEmpty()).collect(toImmutableList())) {
+      List<String> fields = FIELD_SPLITTER.splitToList(line);
+      if (fields.size() != FIELD_COUNT) {
+        throw new IllegalArgumentException(String.format("Malformed state entry '%s'", line));
+      }
+
+      classes.put(
+          fields.get(0),
+          CompiledClass.create(
+              URI.create(fields.get(1)),
+              HashCode.fromString(fields.get(2)),
+              ImmutableSet.copyOf(VALUE_SPLITTER.split(fields.get(3)))));
+    }
+    return Optional.of(classes.buildOrThrow());
+  }
+
+  /** Describes the Refaster rules compiled from a single top-level class. */
+  @AutoValue
+  abstract static class CompiledClass {
+    /**
+     * Returns the source file from which the Refaster rules were compiled.
+     *
+     * @return The source file's URI.
+     */
+    abstract URI sourceFile();
+
+    /**
+     * Returns a hash of the inputs from which the Refaster rules were compiled.
+     *
+     * @return A hash of the class's source code and the relevant compiler configuration.
+     */
+    abstract HashCode inputHash();
+
+    /**
+     * Returns the names of the resources of the compiled Refaster rules.
+     *
+     * @return The resource names, as listed in the {@value
+     *     tech.picnic.errorprone.refaster.RefasterRuleIndex#RESOURCE_NAME} resource.
+     */
+    abstract ImmutableSet<String> ruleResources();
+
+    static CompiledClass create(
+        URI sourceFile, HashCode inputHash, ImmutableSet<String> ruleResources) {
+      return new AutoValue_RefasterRuleCompilerState_CompiledClass(
+          sourceFile, inputHash, ruleResources);
+    }
+  }
+}
@@ -1,9 +1,24 @@
 package tech.picnic.errorprone.refaster.plugin;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Streams;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
 import com.google.errorprone.CodeTransformer;
 import com.google.errorprone.refaster.RefasterRuleBuilderScanner;
 import com.google.errorprone.refaster.UTemplater;
@@ -22,55 +37,191 @@ import com.sun.tools.javac.code.Symbol.PackageSymbol;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Options;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import org.jspecify.annotations.Nullable;
 import tech.picnic.errorprone.refaster.AnnotatedCompositeCodeTransformer;
+import tech.picnic.errorprone.refaster.RefasterRuleArchive;
+import tech.picnic.errorprone.refaster.RefasterRuleCosts;
+import tech.picnic.errorprone.refaster.RefasterRuleCosts.TemplateCost;
+import tech.picnic.errorprone.refaster.RefasterRuleFormat;
+import tech.picnic.errorprone.refaster.RefasterRuleIdentifiers;
+import tech.picnic.errorprone.refaster.RefasterRuleIndex;
+import tech.picnic.errorprone.refaster.RefasterRuleTypes;
+import tech.picnic.errorprone.refaster.plugin.RefasterRuleCompilerState.CompiledClass;
 
 /**
  * A variant of {@code com.google.errorprone.refaster.RefasterRuleCompilerAnalyzer} that stores
  * compiled Refaster rules in a {@code .refaster} file next to the compiled {@code .class} file,
  * rather than at a fixed location.
  *
- * <p>This {@link TaskListener} thus supports compilation of multiple Refaster rules.
+ * <p>This {@link TaskListener} thus supports compilation of multiple Refaster rules. Upon
+ * completion of the compilation, a {@value RefasterRuleIndex#RESOURCE_NAME} file listing all
+ * compiled rules is written as well. Depending on configuration, the compiled rules are instead
+ * bundled into a single {@value RefasterRuleArchive#RESOURCE_NAME} file, written alongside the
+ * index; this way the rules can be loaded without looking up a separate resource for each of them.
+ *
+ * <p>Additionally, the cost of matching each rule is estimated using {@link RefasterRuleCosts}.
+ * Depending on configuration, a breakdown of this estimate is written next to the {@code .refaster}
+ * file, and rules of which the estimated cost exceeds a given maximum are rejected.
+ *
+ * <p>Finally, this {@link TaskListener} optionally skips the recompilation of top-level classes of
+ * which neither the source code nor the compiler configuration (including the class path) changed
+ * since their Refaster rules were last compiled, provided that the associated output is still
+ * present. To this end a {@value RefasterRuleCompilerState#RESOURCE_NAME} file is maintained.
+ * Changes to the content of class path entries are detected based on file sizes and modification
+ * times. The output associated with classes of which the source file no longer exists is removed.
+ *
+ * <p>Index and archive entries written by an earlier compilation are retained, so that rules of
+ * classes that are not part of the current compilation remain discoverable. Entries of a recompiled
+ * top-level class are replaced by the rules it currently defines, while entries of which the
+ * associated class file no longer exists are dropped.
  */
 final class RefasterRuleCompilerTaskListener implements TaskListener {
+  private static final String REFASTER_RULE_SUFFIX = ".refaster";
+  private static final String COST_REPORT_SUFFIX = ".refaster-cost";
+  private static final String CLASS_FILE_SUFFIX = ".class";
+
   private final Context context;
+  private final int maxRuleCost;
+  private final boolean costReport;
+  private final boolean ruleArchive;
+  private final boolean incremental;
+  private final Map<String, RefasterRuleIndex.Entry> indexEntries = new HashMap<>();
+  private final Map<String, ByteSource> archiveEntries = new HashMap<>();
+  private final Map<String, CompiledClass> compiledClasses = new HashMap<>();
+  private final Set<String> recompiledClasses = new HashSet<>();
+  private final Supplier<ImmutableMap<String, RefasterRuleIndex.Entry>> previousIndex =
+      Suppliers.memoize(this::readPreviousIndex);
+  private final Supplier<ImmutableMap<String, ByteSource>> previousArchive =
+      Suppliers.memoize(this::readPreviousArchive);
+  private final Supplier<ImmutableMap<String, CompiledClass>> previousState =
+      Suppliers.memoize(this::readPreviousState);
+  private final Supplier<HashCode> configurationHash = Suppliers.memoize(this::hashConfiguration);
+  private final Supplier<ImmutableMap<String, CompiledClass>> removedClasses =
+      Suppliers.memoize(this::findRemovedClasses);
+  private final Supplier<ImmutableSet<String>> obsoleteRuleResources =
+      Suppliers.memoize(this::findObsoleteRuleResources);
 
-  RefasterRuleCompilerTaskListener(Context context) {
+  RefasterRuleCompilerTaskListener(
+      Context context,
+      int maxRuleCost,
+      boolean costReport,
+      boolean ruleArchive,
+      boolean incremental) {
     this.context = context;
+    this.maxRuleCost = maxRuleCost;
+    this.costReport = costReport;
+    this.ruleArchive = ruleArchive;
+    this.incremental = incremental;
   }
 
   @Override
   public void finished(TaskEvent taskEvent) {
-    if (taskEvent.getKind() != Kind.ANALYZE || JavaCompiler.instance(context).errorCount() > 0) {
+    if (JavaCompiler.instance(context).errorCount() > 0) {
+      return;
+    }
+
+    if (taskEvent.getKind() == Kind.COMPILATION) {
+      try {
+        outputIndex();
+        outputArchive();
+        outputState();
+        deleteRemovedOutputs();
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            "Failed to persist Refaster rule index, archive or compiler state", e);
+      }
+      return;
+    }
+
+    if (taskEvent.getKind() != Kind.ANALYZE) {
       return;
     }
 
     ClassTree tree = JavacTrees.instance(context).getTree(taskEvent.getTypeElement());
-    if (tree == null || !containsRefasterRules(tree)) {
+    if (tree == null) {
       return;
     }
 
-    ImmutableMap<ClassTree, CodeTransformer> rules = compileRefasterRules(tree);
-    for (Map.Entry<ClassTree, CodeTransformer> rule : rules.entrySet()) {
+    String className = ASTHelpers.getSymbol(tree).flatName().toString();
+    if (!containsRefasterRules(tree)) {
+      /* Any rules previously compiled from this class no longer exist. */
+      recompiledClasses.add(className);
+      return;
+    }
+
+    @Nullable HashCode inputHash = incremental ? hashInputs(taskEvent) : null;
+    if (inputHash != null) {
+      @Nullable CompiledClass previous = previousState.get().get(className);
+      if (previous != null && previous.inputHash().equals(inputHash) && hasOutputs(previous)) {
+        compiledClasses.put(className, previous);
+        return;
+      }
+    }
+
+    recompiledClasses.add(className);
+    ImmutableMap<ClassTree, AnnotatedCompositeCodeTransformer> rules = compileRefasterRules(tree);
+    ImmutableSet.Builder<String> ruleResources = ImmutableSet.builder();
+    for (Map.Entry<ClassTree, AnnotatedCompositeCodeTransformer> rule : rules.entrySet()) {
+      ImmutableList<TemplateCost> costs = RefasterRuleCosts.estimate(rule.getValue());
       try {
-        outputCodeTransformer(rule.getValue(), getOutputFile(taskEvent, rule.getKey()));
+        if (ruleArchive) {
+          archiveEntries.put(
+              getResourceName(ASTHelpers.getSymbol(rule.getKey())), serialize(rule.getValue()));
+        } else {
+          outputCodeTransformer(
+              rule.getValue(), getOutputFile(taskEvent, rule.getKey(), REFASTER_RULE_SUFFIX));
+        }
+        if (costReport) {
+          outputCostReport(costs, getOutputFile(taskEvent, rule.getKey(), COST_REPORT_SUFFIX));
+        }
       } catch (IOException e) {
         throw new UncheckedIOException("Failed to persist compiled Refaster rules", e);
       }
+      registerIndexEntry(rule.getKey(), rule.getValue());
+      ruleResources.add(getResourceName(ASTHelpers.getSymbol(rule.getKey())));
+      reportExcessiveCost(taskEvent, rule.getKey(), costs);
+    }
+
+    if (inputHash != null) {
+      compiledClasses.put(
+          className,
+          CompiledClass.create(
+              taskEvent.getSourceFile().toUri(), inputHash, ruleResources.build()));
     }
   }
 
-  private ImmutableMap<ClassTree, CodeTransformer> compileRefasterRules(ClassTree tree) {
-    ImmutableMap.Builder<ClassTree, CodeTransformer> rules = ImmutableMap.builder();
+  private ImmutableMap<ClassTree, AnnotatedCompositeCodeTransformer> compileRefasterRules(
+      ClassTree tree) {
+    ImmutableMap.Builder<ClassTree, AnnotatedCompositeCodeTransformer> rules =
+        ImmutableMap.builder();
     new TreeScanner<@Nullable Void, ImmutableClassToInstanceMap<Annotation>>() {
       @Override
       public @Nullable Void visitClass(
@@ -92,14 +243,363 @@ final class RefasterRuleCompilerTaskListener implements TaskListener {
     return rules.buildOrThrow();
   }
 
-  private FileObject getOutputFile(TaskEvent taskEvent, ClassTree tree) throws IOException {
+  private void registerIndexEntry(ClassTree tree, AnnotatedCompositeCodeTransformer rule) {
+    ClassSymbol symbol = ASTHelpers.getSymbol(tree);
+    String resourceName = getResourceName(symbol);
+
+    indexEntries.put(
+        resourceName,
+        RefasterRuleIndex.Entry.create(
+            toSimpleFlatName(symbol).toString(),
+            resourceName,
+            rule.getDefaultSeverity(),
+            RefasterRuleIdentifiers.extract(rule),
+            RefasterRuleTypes.extract(rule),
+            rule.hasOnlineDocumentation()));
+  }
+
+  /**
+   * Emits an error if the estimated cost of matching the given rule exceeds the configured maximum.
+   */
+  private void reportExcessiveCost(
+      TaskEvent taskEvent, ClassTree tree, ImmutableList<TemplateCost> costs) {
+    int cost = RefasterRuleCosts.sum(costs);
+    if (cost > maxRuleCost) {
+      JavacTrees.instance(context)
+          .printMessage(
+              Diagnostic.Kind.ERROR,
+              String.format(
+                  "Refaster rule %s has an estimated matching cost of %s, which exceeds the configured maximum of %s",
+                  toSimpleFlatName(ASTHelpers.getSymbol(tree)), cost, maxRuleCost),
+              tree,
+              taskEvent.getCompilationUnit());
+    }
+  }
+
+  /**
+   * Writes an index of all Refaster rules compiled as part of the current compilation.
+   *
+   * <p>Entries of a pre-existing index in the same output location are retained, unless they are
+   * obsolete. This way rules compiled in an earlier, partial compilation remain discoverable.
+   *
+   * @see #findObsoleteRuleResources()
+   */
+  private void outputIndex() throws IOException {
+    Map<String, RefasterRuleIndex.Entry> entries = new HashMap<>(previousIndex.get());
+    if (!entries.keySet().removeAll(obsoleteRuleResources.get()) && indexEntries.isEmpty()) {
+      return;
+    }
+    entries.putAll(indexEntries);
+
+    JavaFileManager fileManager = context.get(JavaFileManager.class);
+    FileObject target =
+        fileManager.getFileForOutput(
+            StandardLocation.CLASS_OUTPUT, "", RefasterRuleIndex.RESOURCE_NAME, null);
+    try (Writer writer = new OutputStreamWriter(target.openOutputStream(), UTF_8)) {
+      RefasterRuleIndex.write(entries.values(), writer);
+    }
+  }
+
+  /**
+   * Writes an archive of all Refaster rules compiled as part of the current compilation, if so
+   * configured.
+   *
+   * <p>As with the index, entries of a pre-existing archive in the same output location are
+   * retained, unless they are obsolete.
+   */
+  private void outputArchive() throws IOException {
+    Map<String, ByteSource> entries = new HashMap<>(previousArchive.get());
+    if (!entries.keySet().removeAll(obsoleteRuleResources.get()) && archiveEntries.isEmpty()) {
+      return;
+    }
+    entries.putAll(archiveEntries);
+
+    JavaFileManager fileManager = context.get(JavaFileManager.class);
+    FileObject target =
+        fileManager.getFileForOutput(
+            StandardLocation.CLASS_OUTPUT, "", RefasterRuleArchive.RESOURCE_NAME, null);
+    try (OutputStream output = target.openOutputStream()) {
+      RefasterRuleArchive.write(entries, output);
+    }
+  }
+
+  /**
+   * Writes the state required to skip the recompilation of unchanged classes in a subsequent
+   * compilation, if so configured.
+   */
+  private void outputState() throws IOException {
+    if (!incremental) {
+      return;
+    }
+
+    Map<String, CompiledClass> classes = new HashMap<>(previousState.get());
+    if (!classes.keySet().removeAll(Sets.union(removedClasses.get().keySet(), recompiledClasses))
+        && compiledClasses.isEmpty()) {
+      return;
+    }
+    classes.putAll(compiledClasses);
+
+    FileObject target =
+        context
+            .get(JavaFileManager.class)
+            .getFileForOutput(
+                StandardLocation.CLASS_OUTPUT, "", RefasterRuleCompilerState.RESOURCE_NAME, null);
+    try (Writer writer = new OutputStreamWriter(target.openOutputStream(), UTF_8)) {
+      RefasterRuleCompilerState.write(classes, writer);
+    }
+  }
+
+  /** Deletes the separately stored compiled rules and cost reports of obsolete rules. */
+  private void deleteRemovedOutputs() throws IOException {
+    JavaFileManager fileManager = context.get(JavaFileManager.class);
+    for (String resourceName : obsoleteRuleResources.get()) {
+      for (String name : ImmutableList.of(resourceName, toCostReportName(resourceName))) {
+        FileObject file = fileManager.getFileForInput(StandardLocation.CLASS_OUTPUT, "", name);
+        if (file != null) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the previously compiled classes that were not part of the current
+   * compilation, and of which the source file no longer exists.
+   *
+   * <p>Only classes recorded by the compiler state are considered, so in non-incremental mode no
+   * classes are considered removed.
+   */
+  private ImmutableMap<String, CompiledClass> findRemovedClasses() {
+    if (!incremental) {
+      return ImmutableMap.of();
+    }
+
+    return ImmutableMap.copyOf(
+        Maps.filterEntries(
+            previousState.get(),
+            e -> !compiledClasses.containsKey(e.getKey()) && !exists(e.getValue().sourceFile())));
+  }
+
+  /**
+   * Returns the names of the previously compiled rules that were not compiled again as part of the
+   * current compilation, and that no longer exist.
+   *
+   * <p>A rule is considered to no longer exist if its class was removed, if its top-level class was
+   * recompiled (as then all of its current rules were compiled again), or if its class file no
+   * longer exists. The latter condition also covers removed classes in non-incremental mode.
+   */
+  private ImmutableSet<String> findObsoleteRuleResources() {
+    return Streams.concat(
+            removedClasses.get().values().stream()
+                .flatMap(compiledClass -> compiledClass.ruleResources().stream()),
+            Stream.concat(
+                    previousIndex.get().keySet().stream(), previousArchive.get().keySet().stream())
+                .filter(
+                    resourceName ->
+                        isOfRecompiledClass(resourceName)
+                            || !existsInClassOutput(toClassFileName(resourceName))))
+        .filter(resourceName -> !indexEntries.containsKey(resourceName))
+        .collect(toImmutableSet());
+  }
+
+  /** Tells whether the given rule is (nested in) a top-level class compiled by this compilation. */
+  private boolean isOfRecompiledClass(String resourceName) {
+    String name = resourceName.substring(0, resourceName.length() - REFASTER_RULE_SUFFIX.length());
+    int nestingSeparator = name.indexOf('$', name.lastIndexOf('/') + 1);
+    String topLevelName = nestingSeparator < 0 ? name : name.substring(0, nestingSeparator);
+    return recompiledClasses.contains(topLevelName.replace('/', '.'));
+  }
+
+  private static boolean exists(URI sourceFile) {
+    return !"file".equals(sourceFile.getScheme()) || Files.exists(Path.of(sourceFile));
+  }
+
+  private ImmutableMap<String, RefasterRuleIndex.Entry> readPreviousIndex() {
+    Map<String, RefasterRuleIndex.Entry> entries = new HashMap<>();
+    readPreviousOutput(
+            RefasterRuleIndex.RESOURCE_NAME,
+            input -> RefasterRuleIndex.read(new InputStreamReader(input, UTF_8)))
+        .ifPresent(es -> es.forEach(e -> entries.put(e.resourceName(), e)));
+    return ImmutableMap.copyOf(entries);
+  }
+
+  private ImmutableMap<String, ByteSource> readPreviousArchive() {
+    return readPreviousOutput(
+            RefasterRuleArchive.RESOURCE_NAME,
+            input -> RefasterRuleArchive.read(ByteBuffer.wrap(ByteStreams.toByteArray(input))))
+        .orElseGet(ImmutableMap::of);
+  }
+
+  private ImmutableMap<String, CompiledClass> readPreviousState() {
+    return readPreviousOutput(
+            RefasterRuleCompilerState.RESOURCE_NAME,
+            input -> RefasterRuleCompilerState.read(new InputStreamReader(input, UTF_8)))
+        .orElseGet(ImmutableMap::of);
+  }
+
+  /**
+   * Reads the given resource as written to the class output location by an earlier compilation, if
+   * any.
+   */
+  private <T> Optional<T> readPreviousOutput(String resourceName, OutputReader<T> reader) {
+    try {
+      FileObject existing =
+          context
+              .get(JavaFileManager.class)
+              .getFileForInput(StandardLocation.CLASS_OUTPUT, "", resourceName);
+      if (existing == null) {
+        return Optional.empty();
+      }
+
+      try (InputStream input = existing.openInputStream()) {
+        return reader.read(input);
+      }
+    } catch (NoSuchFileException | FileNotFoundException e) {
+      /* There is no pre-existing output. */
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + resourceName, e);
+    }
+  }
+
+  /**
+   * Tells whether all output associated with the given previously compiled class is still present.
+   */
+  private boolean hasOutputs(CompiledClass compiledClass) {
+    return compiledClass.ruleResources().stream()
+        .allMatch(
+            resourceName ->
+                previousIndex.get().containsKey(resourceName)
+                    && (ruleArchive
+                        ? previousArchive.get().containsKey(resourceName)
+                        : existsInClassOutput(resourceName))
+                    && (!costReport || existsInClassOutput(toCostReportName(resourceName))));
+  }
+
+  private static String toClassFileName(String resourceName) {
+    return resourceName.substring(0, resourceName.length() - REFASTER_RULE_SUFFIX.length())
+        + CLASS_FILE_SUFFIX;
+  }
+
+  private static String toCostReportName(String resourceName) {
+    return resourceName.substring(0, resourceName.length() - REFASTER_RULE_SUFFIX.length())
+        + COST_REPORT_SUFFIX;
+  }
+
+  private boolean existsInClassOutput(String resourceName) {
+    try {
+      return context
+              .get(JavaFileManager.class)
+              .getFileForInput(StandardLocation.CLASS_OUTPUT, "", resourceName)
+          != null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to locate " + resourceName, e);
+    }
+  }
+
+  /**
+   * Computes a hash of the inputs from which the Refaster rules in the given compilation unit are
+   * compiled.
+   */
+  private HashCode hashInputs(TaskEvent taskEvent) {
+    try {
+      return Hashing.sha256()
+          .newHasher()
+          .putBytes(configurationHash.get().asBytes())
+          .putString(
+              taskEvent.getSourceFile().getCharContent(/* ignoreEncodingErrors= */ true), UTF_8)
+          .hash();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + taskEvent.getSourceFile().getName(), e);
+    }
+  }
+
+  /**
+   * Computes a hash of the configuration that may affect the compilation of any Refaster rule: the
+   * Java runtime version, the configuration of this plugin, all compiler options and the content of
+   * the class path.
+   */
+  private HashCode hashConfiguration() {
+    Options options = Options.instance(context);
+    Hasher hasher =
+        Hashing.sha256()
+            .newHasher()
+            .putString(Runtime.version().toString(), UTF_8)
+            .putInt(maxRuleCost)
+            .putBoolean(costReport)
+            .putBoolean(ruleArchive);
+    for (String key : ImmutableSortedSet.copyOf(options.keySet())) {
+      hasher
+          .putString(key, UTF_8)
+          .putByte((byte) 0)
+          .putString(Strings.nullToEmpty(options.get(key)), UTF_8)
+          .putByte((byte) 0);
+    }
+    try {
+      hashClassPath(hasher);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to inspect class path", e);
+    }
+    return hasher.hash();
+  }
+
+  /**
+   * Adds the size and modification time of each file on the class path to the given {@link Hasher},
+   * such that changes to class path entries at an unchanged location are detected.
+   *
+   * <p>The class output location is skipped, as it contains the output of the compilation itself.
+   */
+  private void hashClassPath(Hasher hasher) throws IOException {
+    if (!(context.get(JavaFileManager.class) instanceof StandardJavaFileManager fileManager)) {
+      return;
+    }
+
+    Iterable<? extends Path> classPath =
+        fileManager.getLocationAsPaths(StandardLocation.CLASS_PATH);
+    if (classPath == null) {
+      return;
+    }
+
+    Iterable<? extends Path> classOutput =
+        fileManager.getLocationAsPaths(StandardLocation.CLASS_OUTPUT);
+    ImmutableSet<Path> excluded =
+        classOutput == null
+            ? ImmutableSet.of()
+            : Streams.stream(classOutput).map(Path::toAbsolutePath).collect(toImmutableSet());
+    for (Path entry : classPath) {
+      if (!excluded.contains(entry.toAbsolutePath())) {
+        hasher.putString(entry.toString(), UTF_8).putByte((byte) 0);
+        if (Files.isDirectory(entry)) {
+          try (Stream<Path> files = Files.walk(entry)) {
+            for (Path file :
+                files.filter(Files::isRegularFile).sorted().collect(toImmutableList())) {
+              hashFile(hasher, file);
+            }
+          }
+        } else if (Files.isRegularFile(entry)) {
+          hashFile(hasher, entry);
+        }
+      }
+    }
+  }
+
+  private static void hashFile(Hasher hasher, Path file) throws IOException {
+    hasher
+        .putString(file.toString(), UTF_8)
+        .putByte((byte) 0)
+        .putLong(Files.size(file))
+        .putLong(Files.getLastModifiedTime(file).toMillis());
+  }
+
+  private FileObject getOutputFile(TaskEvent taskEvent, ClassTree tree, String suffix)
+      throws IOException {
     ClassSymbol symbol = ASTHelpers.getSymbol(tree);
 
     JavaFileManager fileManager = context.get(JavaFileManager.class);
     return fileManager.getFileForOutput(
         StandardLocation.CLASS_OUTPUT,
         toPackageName(symbol),
-        toSimpleFlatName(symbol) + ".refaster",
+        toSimpleFlatName(symbol) + suffix,
         taskEvent.getSourceFile());
   }
 
@@ -137,16 +637,60 @@ final class RefasterRuleCompilerTaskListener implements TaskListener {
     return enclosingPackage == null ? "" : enclosingPackage.toString();
   }
 
+  private static String getResourceName(ClassSymbol symbol) {
+    String packagePath = toPackageName(symbol).replace('.', '/');
+    return (packagePath.isEmpty() ? "" : packagePath + '/')
+        + toSimpleFlatName(symbol)
+        + REFASTER_RULE_SUFFIX;
+  }
+
   private static CharSequence toSimpleFlatName(ClassSymbol symbol) {
     Name flatName = symbol.flatName();
     int lastDot = flatName.lastIndexOf((byte) '.');
     return lastDot < 0 ? flatName : flatName.subSequence(lastDot + 1, flatName.length());
   }
 
+  /**
+   * Writes a tab-separated breakdown of the estimated cost of matching each of a rule's before
+   * templates, followed by the rule's total estimated cost.
+   */
+  private static void outputCostReport(ImmutableList<TemplateCost> costs, FileObject target)
+      throws IOException {
+    try (Writer writer = new OutputStreamWriter(target.openOutputStream(), UTF_8)) {
+      writer.write("# template\troot\talternatives\trepeated\tconstraints\tcost\n");
+      for (int i = 0; i < costs.size(); i++) {
+        TemplateCost cost = costs.get(i);
+        writer.write(
+            String.join(
+                "\t",
+                String.valueOf(i),
+                cost.root().name(),
+                String.valueOf(cost.alternatives()),
+                String.valueOf(cost.repeatedParameters()),
+                String.valueOf(cost.matchesConstraints()),
+                String.valueOf(cost.cost())));
+        writer.write('\n');
+      }
+      writer.write("total\t\t\t\t\t" + RefasterRuleCosts.sum(costs) + '\n');
+    }
+  }
+
+  private static ByteSource serialize(CodeTransformer codeTransformer) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    RefasterRuleFormat.write(codeTransformer, output);
+    return ByteSource.wrap(output.toByteArray());
+  }
+
   private static void outputCodeTransformer(CodeTransformer codeTransformer, FileObject target)
       throws IOException {
-    try (ObjectOutput output = new ObjectOutputStream(target.openOutputStream())) {
-      output.writeObject(codeTransformer);
+    try (OutputStream output = target.openOutputStream()) {
+      RefasterRuleFormat.write(codeTransformer, output);
     }
   }
+
+  /** Reads a previously written output resource. */
+  @FunctionalInterface
+  private interface OutputReader<T> {
+    Optional<T> read(InputStream input) throws IOException;
+  }
 }
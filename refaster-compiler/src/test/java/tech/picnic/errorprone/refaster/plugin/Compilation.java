@@ -0,0 +1,57 @@
+package tech.picnic.errorprone.refaster.plugin;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.FileManagers;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.file.JavacFileManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+
+/** Utility class for compiling source files using the {@link RefasterRuleCompiler} plugin. */
+final class Compilation {
+  private Compilation() {}
+
+  /**
+   * Compiles the given source files using the {@link RefasterRuleCompiler} plugin.
+   *
+   * @param outputDirectory The directory to which to write class files and compiled rules.
+   * @param javacOptions Additional compiler options.
+   * @param pluginArgs The arguments to pass to the {@link RefasterRuleCompiler} plugin.
+   * @param sourceFiles The source files to compile.
+   * @return The diagnostics reported during compilation.
+   * @throws IOException If the source files could not be read.
+   */
+  static ImmutableList<Diagnostic<? extends JavaFileObject>> compile(
+      Path outputDirectory,
+      ImmutableList<String> javacOptions,
+      ImmutableList<String> pluginArgs,
+      Path... sourceFiles)
+      throws IOException {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (JavacFileManager fileManager = FileManagers.testFileManager()) {
+      JavacTool.create()
+          .getTask(
+              null,
+              fileManager,
+              diagnostics,
+              ImmutableList.<String>builder()
+                  .add("-d", outputDirectory.toString(), "-proc:none")
+                  .addAll(javacOptions)
+                  .add(
+                      String.join(
+                          " ",
+                          ImmutableList.<String>builder()
+                              .add("-Xplugin:RefasterRuleCompiler")
+                              .addAll(pluginArgs)
+                              .build()))
+                  .build(),
+              ImmutableList.of(),
+              fileManager.getJavaFileObjects(sourceFiles))
+          .call();
+    }
+    return ImmutableList.copyOf(diagnostics.getDiagnostics());
+  }
+}
@@ -0,0 +1,62 @@
+package tech.picnic.errorprone.refaster.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import org.junit.jupiter.api.Test;
+import tech.picnic.errorprone.refaster.plugin.RefasterRuleCompilerState.CompiledClass;
+
+final class RefasterRuleCompilerStateTest {
+  @Test
+  void writeAndRead() throws IOException {
+    ImmutableMap<String, CompiledClass> classes =
+        ImmutableMap.of(
+            "pkg.BRules",
+            CompiledClass.create(
+                URI.create("file:///src/pkg/BRules.java"),
+                HashCode.fromInt(2),
+                ImmutableSet.of("pkg/BRules$First.refaster", "pkg/BRules$Second.refaster")),
+            "pkg.ARules",
+            CompiledClass.create(
+                URI.create("file:///src/pkg/ARules.java"), HashCode.fromInt(1), ImmutableSet.of()));
+
+    StringWriter writer = new StringWriter();
+    RefasterRuleCompilerState.write(classes, writer);
+
+    assertThat(writer.toString())
+        .isEqualTo(
+            """
+            # Refaster rule compiler state, format version 3
+            pkg.ARules\tfile:///src/pkg/ARules.java\t01000000\t
+            pkg.BRules\tfile:///src/pkg/BRules.java\t02000000\tpkg/BRules$First.refaster,pkg/BRules$Second.refaster
+            """);
+    assertThat(RefasterRuleCompilerState.read(new StringReader(writer.toString())))
+        .hasValue(classes);
+  }
+
+  @Test
+  void readUnsupportedFormat() throws IOException {
+    assertThat(
+            RefasterRuleCompilerState.read(
+                new StringReader("# Refaster rule compiler state, format version 2\n")))
+        .isEmpty();
+  }
+
+  @Test
+  void readMalformedEntry() {
+    assertThatThrownBy(
+            () ->
+                RefasterRuleCompilerState.read(
+                    new StringReader(
+                        "# Refaster rule compiler state, format version 3\npkg.ARules\t01000000\n")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Malformed state entry 'pkg.ARules\t01000000'");
+  }
+}
@@ -0,0 +1,323 @@
+package tech.picnic.errorprone.refaster.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.picnic.errorprone.refaster.RefasterRuleArchive;
+import tech.picnic.errorprone.refaster.RefasterRuleIndex;
+
+final class RefasterRuleCompilerTest {
+  private static final ImmutableList<String> INCREMENTAL = ImmutableList.of("Incremental=true");
+
+  @Test
+  void unsupportedArgumentsAreIgnored(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of("Unsupported=true", "foo"), sourceFile))
+        .isEmpty();
+    assertThat(getRule(directory, "ARules")).exists();
+  }
+
+  @Test
+  void maxRuleCostExceeded(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of("MaxRuleCost=0"), sourceFile))
+        .singleElement()
+        .satisfies(
+            d -> assertThat(d.getKind()).isEqualTo(Diagnostic.Kind.ERROR),
+            d ->
+                assertThat(d.getMessage(Locale.ROOT))
+                    .isEqualTo(
+                        "Refaster rule ARules$StringIsEmptyRule has an estimated matching cost of 1, which exceeds the configured maximum of 0"));
+  }
+
+  @Test
+  void maxRuleCostNotExceeded(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of("MaxRuleCost=1"), sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).exists();
+  }
+
+  @Test
+  void costReport(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of("CostReport=true"), sourceFile)).isEmpty();
+    assertThat(getCostReport(directory, "ARules"))
+        .content(UTF_8)
+        .isEqualTo(
+            """
+            # template\troot\talternatives\trepeated\tconstraints\tcost
+            0\tSELECTIVE_EXPRESSION\t1\t0\t0\t1
+            total\t\t\t\t\t1
+            """);
+  }
+
+  @Test
+  void costReportDisabledByDefault(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of(), sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).exists();
+    assertThat(getCostReport(directory, "ARules")).doesNotExist();
+  }
+
+  @Test
+  void nonIncrementalCompilationRecompilesUnchangedClasses(@TempDir Path directory)
+      throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, ImmutableList.of(), sourceFile)).isEmpty();
+    truncate(getRule(directory, "ARules"));
+
+    assertThat(compile(directory, ImmutableList.of(), sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).isNotEmptyFile();
+    assertThat(directory.resolve(RefasterRuleCompilerState.RESOURCE_NAME)).doesNotExist();
+  }
+
+  @Test
+  void incrementalCompilationSkipsUnchangedClasses(@TempDir Path directory) throws IOException {
+    Path first = writeRules(directory, "ARules");
+    Path second = writeRules(directory, "BRules");
+
+    assertThat(compile(directory, INCREMENTAL, first, second)).isEmpty();
+    assertThat(directory.resolve(RefasterRuleCompilerState.RESOURCE_NAME)).exists();
+    truncate(getRule(directory, "ARules"));
+    truncate(getRule(directory, "BRules"));
+    Files.writeString(second, "// Modified.\n", UTF_8, APPEND);
+
+    assertThat(compile(directory, INCREMENTAL, first, second)).isEmpty();
+    assertThat(getRule(directory, "ARules")).isEmptyFile();
+    assertThat(getRule(directory, "BRules")).isNotEmptyFile();
+  }
+
+  @Test
+  void incrementalCompilationRecompilesClassesWithMissingOutput(@TempDir Path directory)
+      throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, INCREMENTAL, sourceFile)).isEmpty();
+    Files.delete(getRule(directory, "ARules"));
+
+    assertThat(compile(directory, INCREMENTAL, sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).isNotEmptyFile();
+  }
+
+  @Test
+  void incrementalCompilationRecompilesOnChangedOptions(@TempDir Path directory)
+      throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+
+    assertThat(compile(directory, INCREMENTAL, sourceFile)).isEmpty();
+    truncate(getRule(directory, "ARules"));
+
+    assertThat(
+            compile(directory, ImmutableList.of("Incremental=true", "CostReport=true"), sourceFile))
+        .isEmpty();
+    assertThat(getRule(directory, "ARules")).isNotEmptyFile();
+    assertThat(getCostReport(directory, "ARules")).exists();
+  }
+
+  @Test
+  void incrementalCompilationRecompilesOnChangedClassPathContent(@TempDir Path directory)
+      throws IOException {
+    Path sourceFile = writeRules(directory, "ARules");
+    Path library = Files.createDirectories(directory.resolve("lib"));
+    Path libraryFile = Files.writeString(library.resolve("resource.txt"), "v1", UTF_8);
+    /* The class output directory is on the class path, as is the case for Maven builds. */
+    ImmutableList<String> javacOptions =
+        ImmutableList.of(
+            "-classpath",
+            String.join(
+                File.pathSeparator,
+                System.getProperty("java.class.path"),
+                library.toString(),
+                directory.toString()));
+
+    assertThat(Compilation.compile(directory, javacOptions, INCREMENTAL, sourceFile)).isEmpty();
+    truncate(getRule(directory, "ARules"));
+
+    assertThat(Compilation.compile(directory, javacOptions, INCREMENTAL, sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).isEmptyFile();
+
+    Files.writeString(libraryFile, "v2.0", UTF_8);
+
+    assertThat(Compilation.compile(directory, javacOptions, INCREMENTAL, sourceFile)).isEmpty();
+    assertThat(getRule(directory, "ARules")).isNotEmptyFile();
+  }
+
+  @Test
+  void incrementalCompilationRemovesOutputOfDeletedClasses(@TempDir Path directory)
+      throws IOException {
+    Path first = writeRules(directory, "ARules");
+    Path second = writeRules(directory, "BRules");
+    ImmutableList<String> pluginArgs = ImmutableList.of("Incremental=true", "CostReport=true");
+
+    assertThat(compile(directory, pluginArgs, first, second)).isEmpty();
+    Files.delete(second);
+
+    assertThat(compile(directory, pluginArgs, first)).isEmpty();
+    assertThat(getRule(directory, "ARules")).exists();
+    assertThat(getRule(directory, "BRules")).doesNotExist();
+    assertThat(getCostReport(directory, "BRules")).doesNotExist();
+    assertThat(directory.resolve("META-INF/refaster/index"))
+        .content(UTF_8)
+        .contains("ARules$StringIsEmptyRule")
+        .doesNotContain("BRules");
+    assertThat(directory.resolve(RefasterRuleCompilerState.RESOURCE_NAME))
+        .content(UTF_8)
+        .contains("pkg.ARules")
+        .doesNotContain("BRules");
+  }
+
+  @Test
+  void incrementalCompilationRetainsOutputOfClassesNotCompiled(@TempDir Path directory)
+      throws IOException {
+    Path first = writeRules(directory, "ARules");
+    Path second = writeRules(directory, "BRules");
+
+    assertThat(compile(directory, INCREMENTAL, first, second)).isEmpty();
+
+    assertThat(compile(directory, INCREMENTAL, first)).isEmpty();
+    assertThat(getRule(directory, "BRules")).exists();
+    assertThat(directory.resolve("META-INF/refaster/index"))
+        .content(UTF_8)
+        .contains("BRules$StringIsEmptyRule");
+  }
+
+  @Test
+  void nonIncrementalCompilationDropsRulesOfDeletedClasses(@TempDir Path directory)
+      throws IOException {
+    Path first = writeRules(directory, "ARules");
+    Path second = writeRules(directory, "BRules");
+
+    assertThat(compile(directory, ImmutableList.of(), first, second)).isEmpty();
+    Files.delete(second);
+    Files.delete(directory.resolve("pkg/BRules.class"));
+    Files.delete(directory.resolve("pkg/BRules$StringIsEmptyRule.class"));
+
+    assertThat(compile(directory, ImmutableList.of(), first)).isEmpty();
+    assertThat(getRule(directory, "BRules")).doesNotExist();
+    assertThat(directory.resolve(RefasterRuleIndex.RESOURCE_NAME))
+        .content(UTF_8)
+        .contains("ARules$StringIsEmptyRule")
+        .doesNotContain("BRules");
+  }
+
+  @Test
+  void compilationDropsRulesRemovedFromRecompiledClass(@TempDir Path directory) throws IOException {
+    Path sourceFile = writeRules(directory, "ARules", "StringIsEmptyRule", "OtherRule");
+
+    assertThat(compile(directory, ImmutableList.of(), sourceFile)).isEmpty();
+    assertThat(directory.resolve("pkg/ARules$OtherRule.refaster")).exists();
+    assertThat(writeRules(directory, "ARules")).isEqualTo(sourceFile);
+
+    assertThat(compile(directory, ImmutableList.of(), sourceFile)).isEmpty();
+    assertThat(directory.resolve("pkg/ARules$OtherRule.refaster")).doesNotExist();
+    assertThat(directory.resolve(RefasterRuleIndex.RESOURCE_NAME))
+        .content(UTF_8)
+        .contains("ARules$StringIsEmptyRule")
+        .doesNotContain("OtherRule");
+  }
+
+  @Test
+  void incrementalCompilationDropsArchivedRulesRemovedFromRecompiledClass(@TempDir Path directory)
+      throws IOException {
+    Path sourceFile = writeRules(directory, "ARules", "StringIsEmptyRule", "OtherRule");
+    ImmutableList<String> pluginArgs = ImmutableList.of("Incremental=true", "RuleArchive=true");
+
+    assertThat(compile(directory, pluginArgs, sourceFile)).isEmpty();
+    assertThat(readArchive(directory))
+        .containsOnlyKeys("pkg/ARules$StringIsEmptyRule.refaster", "pkg/ARules$OtherRule.refaster");
+    assertThat(writeRules(directory, "ARules")).isEqualTo(sourceFile);
+
+    assertThat(compile(directory, pluginArgs, sourceFile)).isEmpty();
+    assertThat(readArchive(directory)).containsOnlyKeys("pkg/ARules$StringIsEmptyRule.refaster");
+    assertThat(directory.resolve(RefasterRuleIndex.RESOURCE_NAME))
+        .content(UTF_8)
+        .doesNotContain("OtherRule");
+  }
+
+  private static ImmutableList<Diagnostic<? extends JavaFileObject>> compile(
+      Path directory, ImmutableList<String> pluginArgs, Path... sourceFiles) throws IOException {
+    return Compilation.compile(directory, ImmutableList.of(), pluginArgs, sourceFiles);
+  }
+
+  private static Path getRule(Path directory, String className) {
+    return directory.resolve("pkg/" + className + "$StringIsEmptyRule.refaster");
+  }
+
+  private static Path getCostReport(Path directory, String className) {
+    return directory.resolve("pkg/" + className + "$StringIsEmptyRule.refaster-cost");
+  }
+
+  private static void truncate(Path file) throws IOException {
+    Files.write(file, new byte[0]);
+  }
+
+  private static ImmutableMap<String, ByteSource> readArchive(Path directory) throws IOException {
+    return RefasterRuleArchive.read(
+            ByteBuffer.wrap(
+                Files.readAllBytes(directory.resolve(RefasterRuleArchive.RESOURCE_NAME))))
+        .orElseThrow();
+  }
+
+  private static Path writeRules(Path directory, String className) throws IOException {
+    return writeRules(directory, className, "StringIsEmptyRule");
+  }
+
+  private static Path writeRules(Path directory, String className, String... ruleNames)
+      throws IOException {
+    Path sourceFile = directory.resolve("src/pkg/" + className + ".java");
+    Files.createDirectories(sourceFile.getParent());
+    return Files.writeString(
+        sourceFile,
+        """
+        package pkg;
+
+        import com.google.errorprone.refaster.annotation.AfterTemplate;
+        import com.google.errorprone.refaster.annotation.BeforeTemplate;
+
+        final class %s {
+        %s}
+        """
+            .formatted(
+                className,
+                Arrays.stream(ruleNames)
+                    .map(
+                        """
+                          static final class %s {
+                            @BeforeTemplate
+                            boolean before(String string) {
+                              return string.length() == 0;
+                            }
+
+                            @AfterTemplate
+                            boolean after(String string) {
+                              return string.isEmpty();
+                            }
+                          }
+                        """
+                            ::formatted)
+                    .collect(joining())),
+        UTF_8);
+  }
+}
@@ -0,0 +1,207 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.StandardSystemProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Utility class for enumerating and scanning the file system locations that make up a class path.
+ *
+ * <p>Unlike {@link com.google.common.reflect.ClassPath}, which always scans all entries of a class
+ * path, this class allows individual entries to be scanned. Like {@link
+ * com.google.common.reflect.ClassPath}, it considers the entries of all {@link URLClassLoader}s in
+ * the class loader hierarchy, the entries of the system class path, and the entries referenced by
+ * the {@code Class-Path} manifest attribute of JAR files. Entries that do not reside on the file
+ * system are ignored.
+ */
+final class ClassPathEntries {
+  private static final Splitter CLASS_PATH_SPLITTER =
+      Splitter.on(File.pathSeparatorChar).omitEmptyStrings();
+  private static final Splitter CLASS_PATH_ATTRIBUTE_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+  private ClassPathEntries() {}
+
+  /**
+   * Returns the class path entries visible to the given {@link ClassLoader}.
+   *
+   * @param classLoader The {@link ClassLoader} of interest.
+   * @return The absolute and normalized paths of the directories and JAR files that make up the
+   *     class path, in class loader delegation order.
+   */
+  static ImmutableSet<Path> of(ClassLoader classLoader) {
+    Set<Path> entries = new LinkedHashSet<>();
+    addEntries(classLoader, entries);
+    return ImmutableSet.copyOf(entries);
+  }
+
+  /**
+   * Returns the resources provided by the given class path entry whose name has the given suffix.
+   *
+   * @param entry A directory or JAR file that is part of the class path.
+   * @param suffix The suffix of the resources of interest.
+   * @return The URLs of the matching resources, by resource name.
+   */
+  static ImmutableSortedMap<String, URL> findResources(Path entry, String suffix) {
+    try {
+      if (Files.isDirectory(entry)) {
+        return findDirectoryResources(entry, suffix);
+      }
+      if (Files.isRegularFile(entry)) {
+        return findJarResources(entry, suffix);
+      }
+      return ImmutableSortedMap.of();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to scan class path entry " + entry, e);
+    }
+  }
+
+  /**
+   * Returns the class path entry that provides the given resource, if it resides on the file
+   * system.
+   *
+   * @param resource The URL of a resource.
+   * @param resourceName The name of the resource.
+   * @return The absolute and normalized path of the directory or JAR file that provides the
+   *     resource, unless it does not reside on the file system.
+   */
+  static Optional<Path> getEntry(URL resource, String resourceName) {
+    String location = resource.toString();
+    String entry = location.substring(0, location.length() - resourceName.length());
+    return toPath(
+        URI.create(
+            entry.startsWith("jar:") && entry.endsWith("!/")
+                ? entry.substring("jar:".length(), entry.length() - "!/".length())
+                : entry));
+  }
+
+  private static void addEntries(ClassLoader classLoader, Set<Path> entries) {
+    ClassLoader parent = classLoader.getParent();
+    if (parent != null) {
+      addEntries(parent, entries);
+    }
+
+    if (classLoader instanceof URLClassLoader urlClassLoader) {
+      for (URL url : urlClassLoader.getURLs()) {
+        toPath(url).ifPresent(entry -> addEntry(entry, entries));
+      }
+    } else if (classLoader.equals(ClassLoader.getSystemClassLoader())) {
+      for (String entry :
+          CLASS_PATH_SPLITTER.split(StandardSystemProperty.JAVA_CLASS_PATH.value())) {
+        toPath(entry).ifPresent(path -> addEntry(path, entries));
+      }
+    }
+  }
+
+  private static void addEntry(Path entry, Set<Path> entries) {
+    Path normalized = entry.toAbsolutePath().normalize();
+    if (entries.add(normalized) && Files.isRegularFile(normalized)) {
+      for (URI reference : getManifestClassPath(normalized)) {
+        toPath(reference).ifPresent(referencedEntry -> addEntry(referencedEntry, entries));
+      }
+    }
+  }
+
+  private static ImmutableList<URI> getManifestClassPath(Path jarFile) {
+    try (JarFile jar = new JarFile(jarFile.toFile())) {
+      Manifest manifest = jar.getManifest();
+      String classPath =
+          manifest == null
+              ? null
+              : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+      if (classPath == null) {
+        return ImmutableList.of();
+      }
+
+      URI base = jarFile.toUri();
+      return CLASS_PATH_ATTRIBUTE_SPLITTER
+          .splitToStream(classPath)
+          .map(base::resolve)
+          .collect(toImmutableList());
+    } catch (IOException | IllegalArgumentException e) {
+      /* This is not a (valid) JAR file; it does not reference other entries. */
+      return ImmutableList.of();
+    }
+  }
+
+  private static ImmutableSortedMap<String, URL> findDirectoryResources(
+      Path directory, String suffix) throws IOException {
+    ImmutableSortedMap.Builder<String, URL> resources = ImmutableSortedMap.naturalOrder();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (file.getFileName().toString().endsWith(suffix) && Files.isRegularFile(file)) {
+          resources.put(
+              directory.relativize(file).toString().replace(File.separatorChar, '/'),
+              file.toUri().toURL());
+        }
+      }
+    }
+    return resources.buildOrThrow();
+  }
+
+  private static ImmutableSortedMap<String, URL> findJarResources(Path jarFile, String suffix)
+      throws IOException {
+    ImmutableSortedMap.Builder<String, URL> resources = ImmutableSortedMap.naturalOrder();
+    try (JarFile jar = new JarFile(jarFile.toFile())) {
+      for (Enumeration<JarEntry> jarEntries = jar.entries(); jarEntries.hasMoreElements(); ) {
+        JarEntry jarEntry = jarEntries.nextElement();
+        if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(suffix)) {
+          resources.put(
+              jarEntry.getName(),
+              URI.create("jar:" + jarFile.toUri() + "!/" + jarEntry.getName()).toURL());
+        }
+      }
+    }
+    return resources.buildOrThrow();
+  }
+
+  private static Optional<Path> toPath(String path) {
+    try {
+      return Optional.of(Path.of(path));
+    } catch (InvalidPathException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static Optional<Path> toPath(URL url) {
+    try {
+      return toPath(url.toURI());
+    } catch (URISyntaxException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static Optional<Path> toPath(URI uri) {
+    if (!"file".equals(uri.getScheme())) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(Path.of(uri).toAbsolutePath().normalize());
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+}
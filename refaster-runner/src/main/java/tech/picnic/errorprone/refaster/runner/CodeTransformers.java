@@ -1,25 +1,55 @@
 package tech.picnic.errorprone.refaster.runner;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.reflect.ClassPath;
-import com.google.common.reflect.ClassPath.ResourceInfo;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Resources;
 import com.google.errorprone.CodeTransformer;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UncheckedIOException;
-import java.util.NoSuchElementException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
+import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.refaster.RefasterRuleArchive;
+import tech.picnic.errorprone.refaster.RefasterRuleFormat;
+import tech.picnic.errorprone.refaster.RefasterRuleIndex;
 
 /**
- * Scans the classpath for {@value #REFASTER_RULE_SUFFIX} files and loads them as {@link
- * CodeTransformer}s.
+ * Locates compiled Refaster rules on the classpath and loads them as {@link CodeTransformer}s.
+ *
+ * <p>Rules are preferably located using the {@value RefasterRuleIndex#RESOURCE_NAME} resources
+ * written by the Refaster rule compiler; this way each rule's metadata is known up front, and each
+ * rule is only deserialized once it is actually needed. Rules listed in such an index are read from
+ * the {@value RefasterRuleArchive#RESOURCE_NAME} resource in the same classpath entry, if present,
+ * and from separate resources otherwise. Classpath entries without an index, such as those produced
+ * by older versions of the Refaster rule compiler, are scanned for {@value #REFASTER_RULE_SUFFIX}
+ * files instead. If multiple classpath entries provide a rule resource with the same name, then
+ * only the first one is considered.
  */
 public final class CodeTransformers {
   private static final String REFASTER_RULE_SUFFIX = ".refaster";
+  private static final Supplier<ImmutableList<RefasterRuleResource>> ALL_RULES =
+      Suppliers.memoize(CodeTransformers::loadAllRules);
   private static final Supplier<ImmutableListMultimap<String, CodeTransformer>>
       ALL_CODE_TRANSFORMERS = Suppliers.memoize(CodeTransformers::loadAllCodeTransformers);
 
@@ -37,73 +67,204 @@ public final class CodeTransformers {
   }
 
   /**
-   * Scans the classpath for compiled Refaster rules and returns the associated deserialized {@link
-   * CodeTransformer}s, indexed by their name.
+   * Returns all Refaster rules found on the classpath, without necessarily deserializing them.
    *
-   * @return A mapping from Refaster rule names to associated {@link CodeTransformer}s.
+   * <p>This method returns a cached view; all invocations except the first are very cheap.
+   *
+   * @return The Refaster rules found on the classpath.
    */
+  static ImmutableList<RefasterRuleResource> getAllRules() {
+    return ALL_RULES.get();
+  }
+
   private static ImmutableListMultimap<String, CodeTransformer> loadAllCodeTransformers() {
     ImmutableListMultimap.Builder<String, CodeTransformer> transformers =
         ImmutableListMultimap.builder();
+    for (RefasterRuleResource rule : getAllRules()) {
+      rule.codeTransformer().ifPresent(transformer -> transformers.put(rule.name(), transformer));
+    }
+    return transformers.build();
+  }
+
+  private static ImmutableList<RefasterRuleResource> loadAllRules() {
+    return loadAllRules(CodeTransformers.class.getClassLoader());
+  }
 
-    for (ResourceInfo resource : getClassPathResources()) {
-      getRefasterRuleName(resource)
-          .ifPresent(
-              ruleName ->
-                  loadCodeTransformer(resource)
-                      .ifPresent(transformer -> transformers.put(ruleName, transformer)));
+  /**
+   * Returns all Refaster rules that can be located using the given {@link ClassLoader}.
+   *
+   * @param classLoader The {@link ClassLoader} through which to locate Refaster rules.
+   * @return The indexed Refaster rules, followed by the Refaster rules found in classpath entries
+   *     without an index; each identified by a unique resource name.
+   */
+  @VisibleForTesting
+  static ImmutableList<RefasterRuleResource> loadAllRules(ClassLoader classLoader) {
+    ImmutableList<URL> indices = getResources(classLoader, RefasterRuleIndex.RESOURCE_NAME);
+    Map<String, RefasterRuleResource> rules = new LinkedHashMap<>();
+    loadIndexedRules(indices, classLoader, rules);
+    scanUnindexedClassPathEntries(
+        indices.stream()
+            .flatMap(
+                index -> ClassPathEntries.getEntry(index, RefasterRuleIndex.RESOURCE_NAME).stream())
+            .collect(toImmutableSet()),
+        classLoader,
+        rules);
+    return ImmutableList.copyOf(rules.values());
+  }
+
+  /**
+   * Adds the Refaster rules listed by the given {@value RefasterRuleIndex#RESOURCE_NAME} resources
+   * to the given map, keyed by resource name.
+   *
+   * <p>If multiple classpath entries provide the same rule resource, then only the first one is
+   * considered, consistent with the way in which the class loader resolves resources.
+   */
+  private static void loadIndexedRules(
+      ImmutableList<URL> indices,
+      ClassLoader classLoader,
+      Map<String, RefasterRuleResource> rules) {
+    ImmutableMap<String, URL> archives =
+        Maps.uniqueIndex(
+            getResources(classLoader, RefasterRuleArchive.RESOURCE_NAME),
+            archive -> getClassPathEntry(archive, RefasterRuleArchive.RESOURCE_NAME));
+    for (URL index : indices) {
+      @Nullable URL archive =
+          archives.get(getClassPathEntry(index, RefasterRuleIndex.RESOURCE_NAME));
+      ImmutableMap<String, ByteSource> archivedRules =
+          archive == null ? ImmutableMap.of() : readArchive(archive);
+      for (RefasterRuleIndex.Entry entry : readIndex(index)) {
+        if (!rules.containsKey(entry.resourceName())) {
+          getContent(entry.resourceName(), archivedRules, classLoader)
+              .ifPresent(
+                  content ->
+                      rules.put(
+                          entry.resourceName(),
+                          RefasterRuleResource.indexed(
+                              entry,
+                              content,
+                              () -> loadCodeTransformer(content, entry.resourceName()))));
+        }
+      }
     }
+  }
 
-    return transformers.build();
+  private static ImmutableList<URL> getResources(ClassLoader classLoader, String resourceName) {
+    try {
+      return ImmutableList.copyOf(Collections.list(classLoader.getResources(resourceName)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to locate " + resourceName + " resources", e);
+    }
+  }
+
+  /**
+   * Returns the location of the classpath entry that provides the given resource, such that
+   * resources provided by the same classpath entry can be correlated.
+   */
+  private static String getClassPathEntry(URL resource, String resourceName) {
+    String location = resource.toString();
+    return location.substring(0, location.length() - resourceName.length());
+  }
+
+  private static Optional<ByteSource> getContent(
+      String resourceName,
+      ImmutableMap<String, ByteSource> archivedRules,
+      ClassLoader classLoader) {
+    ByteSource archivedRule = archivedRules.get(resourceName);
+    if (archivedRule != null) {
+      return Optional.of(archivedRule);
+    }
+
+    return Optional.ofNullable(classLoader.getResource(resourceName)).map(Resources::asByteSource);
   }
 
-  private static ImmutableSet<ResourceInfo> getClassPathResources() {
+  /**
+   * Reads the table of contents of the given {@link RefasterRuleArchive}, without decoding any of
+   * the rules it contains.
+   *
+   * <p>Archives located on the file system are memory-mapped, such that the rules that are not
+   * needed are never read. Other archives, such as those contained in a JAR file, are read into
+   * memory once.
+   */
+  private static ImmutableMap<String, ByteSource> readArchive(URL archive) {
     try {
-      return ClassPath.from(CodeTransformers.class.getClassLoader()).getResources();
+      /* Archives of an unsupported format are ignored. */
+      return RefasterRuleArchive.read(toByteBuffer(archive)).orElseGet(ImmutableMap::of);
     } catch (IOException e) {
-      throw new UncheckedIOException("Failed to scan classpath for resources", e);
+      throw new UncheckedIOException("Failed to read Refaster rule archive " + archive, e);
     }
   }
 
-  private static Optional<String> getRefasterRuleName(ResourceInfo resource) {
-    String resourceName = resource.getResourceName();
-    if (!resourceName.endsWith(REFASTER_RULE_SUFFIX)) {
-      return Optional.empty();
+  private static ByteBuffer toByteBuffer(URL resource) throws IOException {
+    if ("file".equals(resource.getProtocol())) {
+      try (FileChannel channel = FileChannel.open(Path.of(resource.toURI()))) {
+        return channel.map(MapMode.READ_ONLY, 0, channel.size());
+      } catch (URISyntaxException e) {
+        throw new IOException("Invalid file URL " + resource, e);
+      }
     }
 
+    return ByteBuffer.wrap(Resources.toByteArray(resource));
+  }
+
+  private static ImmutableList<RefasterRuleIndex.Entry> readIndex(URL index) {
+    try (Reader reader = new InputStreamReader(index.openStream(), UTF_8)) {
+      /* Indices of an unsupported format are ignored. */
+      return RefasterRuleIndex.read(reader).orElseGet(ImmutableList::of);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Refaster rule index " + index, e);
+    }
+  }
+
+  /**
+   * Adds the {@value #REFASTER_RULE_SUFFIX} resources provided by classpath entries other than the
+   * given ones to the given map, unless a rule with the same resource name is already present.
+   *
+   * <p>Only the classpath entries without an index are scanned; if all classpath entries that
+   * provide Refaster rules have an index, then this is cheap.
+   */
+  private static void scanUnindexedClassPathEntries(
+      ImmutableSet<Path> indexedClassPathEntries,
+      ClassLoader classLoader,
+      Map<String, RefasterRuleResource> rules) {
+    for (Path entry : ClassPathEntries.of(classLoader)) {
+      if (!indexedClassPathEntries.contains(entry)) {
+        ClassPathEntries.findResources(entry, REFASTER_RULE_SUFFIX)
+            .forEach(
+                (resourceName, url) ->
+                    rules.computeIfAbsent(
+                        resourceName,
+                        name ->
+                            RefasterRuleResource.unindexed(
+                                getRefasterRuleName(name),
+                                Resources.asByteSource(url),
+                                () ->
+                                    loadCodeTransformer(
+                                        Resources.asByteSource(url), url.toString()))));
+      }
+    }
+  }
+
+  private static String getRefasterRuleName(String resourceName) {
     int lastPathSeparator = resourceName.lastIndexOf('/');
     int beginIndex = lastPathSeparator < 0 ? 0 : (lastPathSeparator + 1);
     int endIndex = resourceName.length() - REFASTER_RULE_SUFFIX.length();
-    return Optional.of(resourceName.substring(beginIndex, endIndex));
+    return resourceName.substring(beginIndex, endIndex);
   }
 
   @SuppressWarnings({
     "java:S1166" /* The caught exception's stack traces are not relevant. */,
-    "java:S2147" /* The `catch` clauses have distinct comments. */,
     "key-to-resolve-AnnotationUseStyle-and-TrailingComment-check-conflict"
   })
-  private static Optional<CodeTransformer> loadCodeTransformer(ResourceInfo resource) {
-    try (InputStream in = resource.url().openStream();
-        ObjectInputStream ois = new ObjectInputStream(in)) {
-      @SuppressWarnings("BanSerializableRead" /* Part of the Refaster API. */)
-      CodeTransformer codeTransformer = (CodeTransformer) ois.readObject();
-      return Optional.of(codeTransformer);
-    } catch (NoSuchElementException e) {
-      /*
-       * For some reason we can't load the resource; skip it. This issue has been observed when
-       * executing the code using Maven Surefire, in which case `ResourceInfo` may reference a path
-       * relative to the current working directory, even though the current working directory is not
-       */
-      // XXX: This appears to be a bug in Guava's ClassPath implementation. Consider migrating to
-      // ClassGraph.
-      // XXX: Should we log this?
-      return Optional.empty();
+  private static Optional<CodeTransformer> loadCodeTransformer(
+      ByteSource content, String description) {
+    try (InputStream in = content.openStream()) {
+      return Optional.of(RefasterRuleFormat.read(in));
     } catch (ClassCastException e) {
       /* This resource does not appear to be compatible with the current classpath. */
       // XXX: Should we log this?
       return Optional.empty();
     } catch (ClassNotFoundException | IOException e) {
-      throw new IllegalStateException("Can't load `CodeTransformer` from " + resource, e);
+      throw new IllegalStateException("Can't load `CodeTransformer` from " + description, e);
     }
   }
 }
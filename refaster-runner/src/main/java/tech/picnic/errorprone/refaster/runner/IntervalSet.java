@@ -0,0 +1,75 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * A mutable set of half-open {@code int} intervals, represented as a sorted sequence of disjoint
+ * intervals.
+ *
+ * <p>Compared to a Guava {@link com.google.common.collect.TreeRangeSet} of {@link Integer}s, this
+ * class avoids boxing and the allocation of {@link com.google.common.collect.Range} instances.
+ */
+final class IntervalSet {
+  private static final int INITIAL_CAPACITY = 16;
+
+  /* Interval `i` spans `[starts[i], ends[i])`; intervals are disjoint and ordered. */
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] ends = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /**
+   * Tells whether the given non-empty interval shares at least one position with this set.
+   *
+   * @param start The inclusive start of the interval.
+   * @param end The exclusive end of the interval.
+   * @return {@code true} iff the interval intersects this set.
+   */
+  boolean intersects(int start, int end) {
+    checkArgument(start < end, "Interval [%s, %s) is empty", start, end);
+    /* Only the last interval starting before `end` may overlap. */
+    int candidate = countStartsBefore(end) - 1;
+    return candidate >= 0 && ends[candidate] > start;
+  }
+
+  /**
+   * Adds the given non-empty interval to this set, coalescing it with any overlapping or adjacent
+   * intervals.
+   *
+   * @param start The inclusive start of the interval.
+   * @param end The exclusive end of the interval.
+   */
+  void add(int start, int end) {
+    checkArgument(start < end, "Interval [%s, %s) is empty", start, end);
+
+    /* The intervals in `[first, last)` overlap with or are adjacent to the new interval. */
+    int first = countEndsBefore(start);
+    int last = countStartsBefore(end + 1);
+    int mergedStart = first < last ? Math.min(start, starts[first]) : start;
+    int mergedEnd = first < last ? Math.max(end, ends[last - 1]) : end;
+
+    int newSize = size - (last - first) + 1;
+    if (newSize > starts.length) {
+      starts = Arrays.copyOf(starts, starts.length * 2);
+      ends = Arrays.copyOf(ends, ends.length * 2);
+    }
+    System.arraycopy(starts, last, starts, first + 1, size - last);
+    System.arraycopy(ends, last, ends, first + 1, size - last);
+    starts[first] = mergedStart;
+    ends[first] = mergedEnd;
+    size = newSize;
+  }
+
+  /** Returns the number of intervals that start strictly before the given position. */
+  private int countStartsBefore(int position) {
+    int index = Arrays.binarySearch(starts, 0, size, position);
+    return index < 0 ? -index - 1 : index;
+  }
+
+  /** Returns the number of intervals that end strictly before the given position. */
+  private int countEndsBefore(int position) {
+    int index = Arrays.binarySearch(ends, 0, size, position);
+    return index < 0 ? -index - 1 : index;
+  }
+}
@@ -0,0 +1,107 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.annotations.Var;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A node in an immutable prefix tree with {@link String}-labeled edges, in which each node may hold
+ * zero or more values.
+ *
+ * <p>Values are registered under one or more <em>paths</em>, each consisting of a set of edge
+ * labels. A value is reachable for a given set of candidate edges if all labels of at least one of
+ * its paths are contained in that set.
+ *
+ * @param <T> The type of values stored in the tree.
+ */
+@AutoValue
+abstract class Node<T> {
+  abstract ImmutableMap<String, Node<T>> children();
+
+  abstract ImmutableList<T> values();
+
+  /**
+   * Creates a prefix tree that indexes the given values by their associated paths.
+   *
+   * @param <T> The type of values stored in the tree.
+   * @param values The values to index.
+   * @param pathExtractor A function that returns the set of paths under which a given value should
+   *     be registered. A value without any path is not registered at all, while a value associated
+   *     with the empty path is always reachable.
+   * @return A non-{@code null} prefix tree.
+   */
+  static <T> Node<T> create(
+      Iterable<T> values, Function<? super T, ? extends Set<? extends Set<String>>> pathExtractor) {
+    BuildNode<T> tree = new BuildNode<>();
+    for (T value : values) {
+      for (Set<String> path : pathExtractor.apply(value)) {
+        /*
+         * Sorting the edge labels causes paths with a common (sub)set of labels to share a prefix,
+         * and guarantees that all paths with the same set of labels end up in the same node.
+         */
+        tree.register(ImmutableList.sortedCopyOf(path), value);
+      }
+    }
+    return tree.immutable();
+  }
+
+  /**
+   * Passes all values reachable through the given candidate edges to the given sink.
+   *
+   * <p>A value registered under multiple matching paths is passed to the sink multiple times.
+   *
+   * @param candidateEdges The edge labels that may be traversed.
+   * @param sink The consumer of reachable values.
+   */
+  void collectReachableValues(Set<String> candidateEdges, Consumer<T> sink) {
+    values().forEach(sink);
+
+    /* Iterate over the smaller of the two collections of edges. */
+    ImmutableMap<String, Node<T>> children = children();
+    if (candidateEdges.size() < children.size()) {
+      for (String edge : candidateEdges) {
+        Node<T> child = children.get(edge);
+        if (child != null) {
+          child.collectReachableValues(candidateEdges, sink);
+        }
+      }
+    } else {
+      for (Map.Entry<String, Node<T>> child : children.entrySet()) {
+        if (candidateEdges.contains(child.getKey())) {
+          child.getValue().collectReachableValues(candidateEdges, sink);
+        }
+      }
+    }
+  }
+
+  /** A mutable counterpart of {@link Node}, used during tree construction. */
+  private static final class BuildNode<T> {
+    private final Map<String, BuildNode<T>> children = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    private void register(ImmutableList<String> path, T value) {
+      @Var BuildNode<T> node = this;
+      for (String edge : path) {
+        node = node.children.computeIfAbsent(edge, k -> new BuildNode<>());
+      }
+      node.values.add(value);
+    }
+
+    private Node<T> immutable() {
+      ImmutableMap.Builder<String, Node<T>> immutableChildren =
+          ImmutableMap.builderWithExpectedSize(children.size());
+      for (Map.Entry<String, BuildNode<T>> child : children.entrySet()) {
+        immutableChildren.put(child.getKey(), child.getValue().immutable());
+      }
+      return new AutoValue_Node<>(immutableChildren.buildOrThrow(), ImmutableList.copyOf(values));
+    }
+  }
+}
@@ -1,47 +1,40 @@
 package tech.picnic.errorprone.refaster.runner;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableRangeSet.toImmutableRangeSet;
 import static com.google.errorprone.BugPattern.LinkType.NONE;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static com.google.errorprone.BugPattern.StandardTags.SIMPLIFICATION;
-import static java.util.function.Predicate.not;
 
 import com.google.auto.service.AutoService;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableRangeSet;
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeSet;
-import com.google.common.collect.TreeRangeSet;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.CodeTransformer;
-import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.ErrorProneFlags;
 import com.google.errorprone.ErrorProneOptions.Severity;
 import com.google.errorprone.SubContext;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.annotations.Var;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.bugpatterns.BugChecker.CompilationUnitTreeMatcher;
-import com.google.errorprone.fixes.Replacement;
 import com.google.errorprone.matchers.Description;
 import com.sun.source.tree.CompilationUnitTree;
-import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
+import com.sun.tools.javac.util.Context;
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 import javax.inject.Inject;
+import org.jspecify.annotations.Nullable;
+import tech.picnic.errorprone.utils.ThirdPartyLibrary;
 
 /**
  * A {@link BugChecker} that flags code that can be simplified using Refaster rules located on the
@@ -49,7 +42,27 @@ import javax.inject.Inject;
  *
  * <p>This checker locates all {@code *.refaster} classpath resources and assumes that they contain
  * a {@link CodeTransformer}. The set of loaded Refaster rules can be restricted by passing {@code
- * -XepOpt:Refaster:NamePattern=<someRegex>}.
+ * -XepOpt:Refaster:NamePattern=<someRegex>}, {@code -XepOpt:Refaster:Collections=<name>,...},
+ * {@code -XepOpt:Refaster:MinimumSeverity=<SUGGESTION|WARNING|ERROR>} and/or {@code
+ * -XepOpt:Refaster:RequireOnlineDocumentation=true}. These filters are evaluated against the rule
+ * index generated at build time, such that rules that are not selected are never deserialized.
+ *
+ * <p>To limit the cost of matching, each compilation unit is only matched against the subset of
+ * rules whose {@link com.google.errorprone.refaster.annotation.BeforeTemplate before templates}
+ * reference exclusively identifiers that occur in the compilation unit. Rules are deserialized only
+ * once they are first selected. Additionally, once per compilation, rules whose before templates
+ * all reference types that are absent from the classpath (e.g. because the rule targets a library
+ * that is not a dependency of the code being compiled) are disabled altogether. This behavior can
+ * be disabled by passing {@code -XepOpt:ErrorProneSupport:IgnoreClasspathCompat=true}.
+ *
+ * <p>Per-rule and per-rule collection performance statistics can be written to a JSON file by
+ * passing {@code -XepOpt:Refaster:ProfileOutput=<path>}.
+ *
+ * <p>Compilation units that are not matched by any rule can be recorded in an on-disk cache by
+ * passing {@code -XepOpt:Refaster:CacheDirectory=<path>}; subsequent compilations of the same
+ * source code against the same rules, flags and classpath then skip these compilation units
+ * altogether. The maximum number of retained cache entries can be configured by passing {@code
+ * -XepOpt:Refaster:CacheMaxEntries=<count>}. See {@link RefasterNoMatchCache} for details.
  */
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -62,10 +75,57 @@ public final class Refaster extends BugChecker implements CompilationUnitTreeMat
   /** Flag to pass a pattern that restricts which Refaster rules are loaded. */
   public static final String INCLUDED_RULES_PATTERN_FLAG = "Refaster:NamePattern";
 
+  /**
+   * Flag to pass a comma-separated list of Refaster rule collection names (i.e. the simple names of
+   * top-level Refaster rule classes), restricting which Refaster rules are loaded.
+   */
+  public static final String INCLUDED_COLLECTIONS_FLAG = "Refaster:Collections";
+
+  /**
+   * Flag to pass the minimum default {@link SeverityLevel} of the Refaster rules to be loaded;
+   * rules with a lower default severity are ignored.
+   */
+  public static final String MINIMUM_SEVERITY_FLAG = "Refaster:MinimumSeverity";
+
+  /**
+   * Flag to indicate that only Refaster rules annotated with {@code @OnlineDocumentation} should be
+   * loaded.
+   */
+  public static final String REQUIRE_ONLINE_DOCUMENTATION_FLAG =
+      "Refaster:RequireOnlineDocumentation";
+
+  /**
+   * Flag to pass the path of a file to which per-rule and per-rule collection performance
+   * statistics are written in JSON format, once compilation completes.
+   */
+  public static final String PROFILE_OUTPUT_FLAG = "Refaster:ProfileOutput";
+
+  /**
+   * Flag to pass the path of a directory in which to record compilation units that are not matched
+   * by any Refaster rule, such that later compilations can skip them.
+   */
+  public static final String CACHE_DIRECTORY_FLAG = "Refaster:CacheDirectory";
+
+  /**
+   * Flag to pass the maximum number of entries retained by the cache configured using {@link
+   * #CACHE_DIRECTORY_FLAG}.
+   */
+  public static final String CACHE_MAX_ENTRIES_FLAG = "Refaster:CacheMaxEntries";
+
+  private static final int DEFAULT_CACHE_MAX_ENTRIES = 100_000;
   private static final long serialVersionUID = 1L;
 
+  private final ImmutableList<RefasterRuleResource> rules;
+
   @SuppressWarnings({"java:S1948", "serial"} /* Concrete instance will be `Serializable`. */)
-  private final CodeTransformer codeTransformer;
+  private final Context.Key<RefasterRuleSelector> ruleSelectorKey = new Context.Key<>();
+
+  @SuppressWarnings({"java:S1948", "serial"} /* Concrete instance will be `Serializable`. */)
+  private final Context.Key<RefasterNoMatchCache> noMatchCacheKey = new Context.Key<>();
+
+  private final @Nullable String profileOutput;
+  private final @Nullable String cacheDirectory;
+  private final int cacheMaxEntries;
 
   /** Instantiates a default {@link Refaster} instance. */
   public Refaster() {
@@ -80,54 +140,113 @@ public final class Refaster extends BugChecker implements CompilationUnitTreeMat
   @Inject
   @VisibleForTesting
   public Refaster(ErrorProneFlags flags) {
-    codeTransformer = createCompositeCodeTransformer(flags);
+    rules = getConfiguredRules(flags);
+    profileOutput = flags.get(PROFILE_OUTPUT_FLAG).orElse(null);
+    cacheDirectory = flags.get(CACHE_DIRECTORY_FLAG).orElse(null);
+    cacheMaxEntries = flags.getInteger(CACHE_MAX_ENTRIES_FLAG).orElse(DEFAULT_CACHE_MAX_ENTRIES);
   }
 
   @CanIgnoreReturnValue
   @Override
   public Description matchCompilationUnit(CompilationUnitTree tree, VisitorState state) {
-    /* First, collect all matches. */
-    List<Description> matches = new ArrayList<>();
-    codeTransformer.apply(state.getPath(), new SubContext(state.context), matches::add);
+    @Nullable RefasterRuleProfiler profiler = getProfiler(state);
+    @Nullable RefasterNoMatchCache cache = getNoMatchCache(state);
+    @Nullable HashCode cacheKey = cache == null ? null : cache.getKey(tree).orElse(null);
+    if (cache != null && cacheKey != null && cache.contains(cacheKey)) {
+      /* This compilation unit is known not to be matched by any rule. */
+      return Description.NO_MATCH;
+    }
+
+    /* First, collect all matches of the rules that may apply to this compilation unit. */
+    SubContext context = new SubContext(state.context);
+    RefasterMatchResolver matches =
+        new RefasterMatchResolver(
+            ((JCCompilationUnit) tree).endPositions,
+            ruleName -> {
+              if (profiler != null) {
+                profiler.recordDiscardedMatch(ruleName);
+              }
+            });
+    for (RefasterRuleResource rule : getRuleSelector(state).selectCandidateRules(tree)) {
+      Optional<CodeTransformer> transformer = rule.codeTransformer();
+      if (transformer.isPresent()) {
+        DescriptionListener listener = match -> matches.add(match, rule.name());
+        if (profiler == null) {
+          transformer.orElseThrow().apply(state.getPath(), context, listener);
+        } else {
+          int matchCount = matches.getReceivedMatchCount();
+          long start = System.nanoTime();
+          transformer.orElseThrow().apply(state.getPath(), context, listener);
+          profiler.recordApplication(
+              rule.name(), System.nanoTime() - start, matches.getReceivedMatchCount() - matchCount);
+        }
+      }
+    }
+
+    if (cache != null && cacheKey != null && matches.getReceivedMatchCount() == 0) {
+      cache.add(cacheKey);
+    }
 
-    /* Then apply them. */
-    applyMatches(matches, ((JCCompilationUnit) tree).endPositions, state);
+    /* Then apply those that do not conflict with a preferred match. */
+    Optional<SeverityLevel> severityOverride = getSeverityOverride(state);
+    for (Description match : matches.selectMatches()) {
+      state.reportMatch(augmentDescription(match, severityOverride));
+    }
 
     /* Any matches were already reported by the code above, directly to the `VisitorState`. */
     return Description.NO_MATCH;
   }
 
   /**
-   * Reports a subset of the given matches, such that no two reported matches suggest a replacement
-   * of the same part of the source code.
+   * Returns the {@link RefasterRuleSelector} associated with the current compilation, creating it
+   * if necessary.
    *
-   * <p>In the common case all matches will be reported. In case of overlap the match that replaces
-   * the largest piece of source code is preferred. In case two matches wish to replace exactly the
-   * same piece of code, preference is given to the match that suggests the shortest replacement.
+   * <p>The returned selector considers only those Refaster rules that may match code compiled
+   * against the current classpath.
    */
-  // XXX: This selection logic solves an issue described in
-  // https://github.com/google/error-prone/issues/559. Consider contributing it back upstream.
-  private void applyMatches(
-      Iterable<Description> allMatches, EndPosTable endPositions, VisitorState state) {
-    ImmutableList<Description> byReplacementSize =
-        ImmutableList.sortedCopyOf(
-            Comparator.<Description>comparingInt(d -> getReplacedCodeSize(d, endPositions))
-                .reversed()
-                .thenComparingInt(d -> getInsertedCodeSize(d, endPositions)),
-            allMatches);
-
-    RangeSet<Integer> replacedSections = TreeRangeSet.create();
-    for (Description description : byReplacementSize) {
-      ImmutableRangeSet<Integer> ranges = getReplacementRanges(description, endPositions);
-      if (ranges.asRanges().stream().noneMatch(replacedSections::intersects)) {
-        /*
-         * This suggested fix does not overlap with any ("larger") replacement seen until now, so
-         * apply it.
-         */
-        state.reportMatch(augmentDescription(description, getSeverityOverride(state)));
-        replacedSections.addAll(ranges);
-      }
+  private RefasterRuleSelector getRuleSelector(VisitorState state) {
+    @Var RefasterRuleSelector ruleSelector = state.context.get(ruleSelectorKey);
+    if (ruleSelector == null) {
+      ruleSelector = RefasterRuleSelector.create(filterByClasspath(rules, state));
+      state.context.put(ruleSelectorKey, ruleSelector);
     }
+    return ruleSelector;
+  }
+
+  private static ImmutableList<RefasterRuleResource> filterByClasspath(
+      ImmutableList<RefasterRuleResource> rules, VisitorState state) {
+    return rules.stream()
+        .filter(
+            rule ->
+                rule.requiredTypes().stream()
+                    .anyMatch(
+                        types ->
+                            types.stream()
+                                .allMatch(t -> ThirdPartyLibrary.canIntroduceUsage(t, state))))
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Returns the {@link RefasterNoMatchCache} associated with the current compilation, creating it
+   * if necessary, unless no cache directory is configured.
+   */
+  private @Nullable RefasterNoMatchCache getNoMatchCache(VisitorState state) {
+    if (cacheDirectory == null) {
+      return null;
+    }
+
+    @Var RefasterNoMatchCache cache = state.context.get(noMatchCacheKey);
+    if (cache == null) {
+      cache = RefasterNoMatchCache.create(Path.of(cacheDirectory), cacheMaxEntries, rules, state);
+      state.context.put(noMatchCacheKey, cache);
+    }
+    return cache;
+  }
+
+  private @Nullable RefasterRuleProfiler getProfiler(VisitorState state) {
+    return profileOutput == null
+        ? null
+        : RefasterRuleProfiler.instance(state.context, Path.of(profileOutput));
   }
 
   private Optional<SeverityLevel> getSeverityOverride(VisitorState state) {
@@ -171,45 +290,45 @@ public final class Refaster extends BugChecker implements CompilationUnitTreeMat
         .build();
   }
 
-  private static int getReplacedCodeSize(Description description, EndPosTable endPositions) {
-    return getReplacements(description, endPositions).mapToInt(Replacement::length).sum();
-  }
+  /**
+   * Returns the Refaster rules selected by the given flags.
+   *
+   * <p>The filters are evaluated against the rules' metadata, such that rules that are not selected
+   * are never deserialized. Cheaper, name-based filters are applied first.
+   */
+  private static ImmutableList<RefasterRuleResource> getConfiguredRules(ErrorProneFlags flags) {
+    @Var Predicate<RefasterRuleResource> filter = rule -> true;
 
-  // XXX: It might be nicer to prefer the shortest replacement _post formatting_.
-  private static int getInsertedCodeSize(Description description, EndPosTable endPositions) {
-    return getReplacements(description, endPositions).mapToInt(r -> r.replaceWith().length()).sum();
-  }
+    Optional<Pattern> nameFilter = flags.get(INCLUDED_RULES_PATTERN_FLAG).map(Pattern::compile);
+    if (nameFilter.isPresent()) {
+      Pattern pattern = nameFilter.orElseThrow();
+      filter = filter.and(rule -> pattern.matcher(rule.name()).matches());
+    }
 
-  private static ImmutableRangeSet<Integer> getReplacementRanges(
-      Description description, EndPosTable endPositions) {
-    return getReplacements(description, endPositions)
-        .map(Replacement::range)
-        .filter(not(Range::isEmpty))
-        .collect(toImmutableRangeSet());
-  }
+    ImmutableSet<String> collections = flags.getSetOrEmpty(INCLUDED_COLLECTIONS_FLAG);
+    if (!collections.isEmpty()) {
+      filter = filter.and(rule -> collections.contains(getCollectionName(rule)));
+    }
 
-  private static Stream<Replacement> getReplacements(
-      Description description, EndPosTable endPositions) {
-    return description.fixes.stream().flatMap(fix -> fix.getReplacements(endPositions).stream());
-  }
+    Optional<SeverityLevel> minimumSeverity =
+        flags.getEnum(MINIMUM_SEVERITY_FLAG, SeverityLevel.class);
+    if (minimumSeverity.isPresent()) {
+      SeverityLevel threshold = minimumSeverity.orElseThrow();
+      filter = filter.and(rule -> rule.severity().compareTo(threshold) <= 0);
+    }
+
+    if (flags.getBoolean(REQUIRE_ONLINE_DOCUMENTATION_FLAG).orElse(false)) {
+      filter = filter.and(RefasterRuleResource::hasOnlineDocumentation);
+    }
 
-  private static CodeTransformer createCompositeCodeTransformer(ErrorProneFlags flags) {
-    ImmutableListMultimap<String, CodeTransformer> allTransformers =
-        CodeTransformers.getAllCodeTransformers();
-    return CompositeCodeTransformer.compose(
-        flags
-            .get(INCLUDED_RULES_PATTERN_FLAG)
-            .map(Pattern::compile)
-            .<ImmutableCollection<CodeTransformer>>map(
-                nameFilter -> filterCodeTransformers(allTransformers, nameFilter))
-            .orElseGet(allTransformers::values));
+    return CodeTransformers.getAllRules().stream().filter(filter).collect(toImmutableList());
   }
 
-  private static ImmutableList<CodeTransformer> filterCodeTransformers(
-      ImmutableListMultimap<String, CodeTransformer> transformers, Pattern nameFilter) {
-    return transformers.entries().stream()
-        .filter(e -> nameFilter.matcher(e.getKey()).matches())
-        .map(Map.Entry::getValue)
-        .collect(toImmutableList());
+  /**
+   * Returns the name of the top-level Refaster rule collection class that defines the given rule.
+   */
+  private static String getCollectionName(RefasterRuleResource rule) {
+    int separator = rule.name().indexOf('$');
+    return separator < 0 ? rule.name() : rule.name().substring(0, separator);
   }
 }
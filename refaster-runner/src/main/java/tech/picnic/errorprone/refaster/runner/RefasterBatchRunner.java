@@ -0,0 +1,256 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.annotations.Var;
+import com.google.errorprone.apply.PatchFileDestination;
+import com.google.errorprone.apply.SourceFile;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A command line tool that applies {@link Refaster} to all source files in one or more source
+ * trees, using multiple threads.
+ *
+ * <p>The source files are partitioned into groups of roughly equal size, each of which is processed
+ * by a separate thread using {@link RefasterFixedPoint}, i.e. using a dedicated compiler instance.
+ * Source files outside a given partition are made available to the compiler through the source
+ * path, so that they can be referenced, but they are not attributed.
+ *
+ * <p>Usage:
+ *
+ * <pre>{@code
+ * java tech.picnic.errorprone.refaster.runner.RefasterBatchRunner \
+ *   --source-root=<directory>... [--threads=<count>] [--max-iterations=<count>] \
+ *   [--patch=<file>] [-XepOpt:<flag>=<value>...] [<javac option>...]
+ * }</pre>
+ *
+ * <p>If {@code --patch} is specified, a unified diff of all changes is written to the given file,
+ * with paths relative to the current working directory. Otherwise the source files are modified in
+ * place.
+ */
+public final class RefasterBatchRunner {
+  /** The command line option used to specify a source tree to be processed; may be repeated. */
+  public static final String SOURCE_ROOT_OPTION = "--source-root=";
+
+  /** The command line option used to configure the number of worker threads. */
+  public static final String THREADS_OPTION = "--threads=";
+
+  /**
+   * The command line option used to request that a unified diff is written to the given file,
+   * rather than modifying the source files in place.
+   */
+  public static final String PATCH_OPTION = "--patch=";
+
+  private static final System.Logger LOG = System.getLogger(RefasterBatchRunner.class.getName());
+
+  private RefasterBatchRunner() {}
+
+  /**
+   * Applies {@link Refaster} to the specified source trees.
+   *
+   * @param args The command line arguments; see the class documentation.
+   * @throws IOException If a source file could not be read or written.
+   * @throws InterruptedException If interrupted while waiting for the worker threads.
+   */
+  public static void main(String... args) throws IOException, InterruptedException {
+    ImmutableList.Builder<Path> sourceRoots = ImmutableList.builder();
+    @Var int threads = Runtime.getRuntime().availableProcessors();
+    @Var int maxIterations = RefasterFixedPoint.DEFAULT_MAX_ITERATIONS;
+    @Var
+    @Nullable Path patchFile = null;
+    ImmutableList.Builder<String> otherArgs = ImmutableList.builder();
+    for (String arg : args) {
+      if (arg.startsWith(SOURCE_ROOT_OPTION)) {
+        sourceRoots.add(Path.of(arg.substring(SOURCE_ROOT_OPTION.length())));
+      } else if (arg.startsWith(THREADS_OPTION)) {
+        threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+      } else if (arg.startsWith(RefasterFixedPoint.MAX_ITERATIONS_OPTION)) {
+        maxIterations =
+            Integer.parseInt(arg.substring(RefasterFixedPoint.MAX_ITERATIONS_OPTION.length()));
+      } else if (arg.startsWith(PATCH_OPTION)) {
+        patchFile = Path.of(arg.substring(PATCH_OPTION.length()));
+      } else {
+        otherArgs.add(arg);
+      }
+    }
+
+    ImmutableMap<Path, String> changes =
+        apply(
+            sourceRoots.build(),
+            ErrorProneOptions.processArgs(otherArgs.build()),
+            threads,
+            maxIterations);
+
+    if (patchFile == null) {
+      for (Map.Entry<Path, String> change : changes.entrySet()) {
+        Files.writeString(change.getKey(), change.getValue(), UTF_8);
+      }
+    } else {
+      writePatch(patchFile, changes);
+    }
+
+    LOG.log(Level.INFO, "Modified {0} source file(s)", changes.size());
+  }
+
+  /**
+   * Applies {@link Refaster} to all source files in the given source trees.
+   *
+   * @param sourceRoots The source trees to process.
+   * @param errorProneOptions The Error Prone options that configure {@link Refaster}, along with
+   *     any additional compiler options, such as the classpath.
+   * @param threads The number of source file partitions to process concurrently.
+   * @param maxIterations The maximum number of times to match and modify any source file.
+   * @return A mapping from modified source files to their new content, sorted by path.
+   * @throws IOException If a source file could not be read.
+   * @throws InterruptedException If interrupted while waiting for the worker threads.
+   */
+  static ImmutableSortedMap<Path, String> apply(
+      ImmutableList<Path> sourceRoots,
+      ErrorProneOptions errorProneOptions,
+      int threads,
+      int maxIterations)
+      throws IOException, InterruptedException {
+    checkArgument(!sourceRoots.isEmpty(), "At least one source root must be specified");
+    checkArgument(threads > 0, "The number of threads must be positive");
+
+    ImmutableList<String> javacOptions =
+        ImmutableList.<String>builder()
+            .addAll(errorProneOptions.getRemainingArgs())
+            .add("-sourcepath")
+            .add(sourceRoots.stream().map(Path::toString).collect(joining(File.pathSeparator)))
+            .build();
+    ImmutableList<ImmutableSet<Path>> partitions = partition(findSourceFiles(sourceRoots), threads);
+
+    ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
+    try {
+      List<Future<RefasterFixedPoint.Result>> results = new ArrayList<>();
+      for (ImmutableSet<Path> partition : partitions) {
+        results.add(
+            executor.submit(
+                () ->
+                    RefasterFixedPoint.create(errorProneOptions, javacOptions, maxIterations)
+                        .apply(partition)));
+      }
+
+      ImmutableSortedMap.Builder<Path, String> changes = ImmutableSortedMap.naturalOrder();
+      for (Future<RefasterFixedPoint.Result> result : results) {
+        RefasterFixedPoint.Result outcome = getResult(result);
+        if (!outcome.converged()) {
+          LOG.log(Level.WARNING, "No fixed point reached after {0} iteration(s)", maxIterations);
+        }
+        changes.putAll(outcome.changes());
+      }
+      return changes.buildOrThrow();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Splits the given source files into at most the given number of partitions, such that the total
+   * size of the source files in each partition is roughly equal.
+   *
+   * <p>Source files are assigned largest-first to the partition with the smallest total size.
+   */
+  static ImmutableList<ImmutableSet<Path>> partition(
+      ImmutableMap<Path, Long> sourceFiles, int count) {
+    int partitionCount = Math.max(1, Math.min(count, sourceFiles.size()));
+    List<List<Path>> partitions = new ArrayList<>(partitionCount);
+    long[] sizes = new long[partitionCount];
+    for (int i = 0; i < partitionCount; i++) {
+      partitions.add(new ArrayList<>());
+    }
+
+    sourceFiles.entrySet().stream()
+        .sorted(Map.Entry.<Path, Long>comparingByValue().reversed())
+        .forEach(
+            sourceFile -> {
+              int smallest = indexOfMinimum(sizes);
+              partitions.get(smallest).add(sourceFile.getKey());
+              sizes[smallest] += sourceFile.getValue();
+            });
+
+    return partitions.stream().map(ImmutableSet::copyOf).collect(toImmutableList());
+  }
+
+  private static int indexOfMinimum(long[] values) {
+    @Var int index = 0;
+    for (int i = 1; i < values.length; i++) {
+      if (values[i] < values[index]) {
+        index = i;
+      }
+    }
+    return index;
+  }
+
+  /** Returns the sizes of all source files in the given source trees, by path. */
+  private static ImmutableMap<Path, Long> findSourceFiles(ImmutableList<Path> sourceRoots)
+      throws IOException {
+    ImmutableMap.Builder<Path, Long> sourceFiles = ImmutableMap.builder();
+    for (Path sourceRoot : sourceRoots) {
+      try (Stream<Path> paths = Files.walk(sourceRoot)) {
+        for (Path path :
+            paths
+                .filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                .collect(toImmutableSet())) {
+          sourceFiles.put(path, Files.size(path));
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+    return sourceFiles.buildKeepingLast();
+  }
+
+  private static RefasterFixedPoint.Result getResult(Future<RefasterFixedPoint.Result> result)
+      throws IOException, InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      throw new IllegalStateException("Failed to apply Refaster rules", e.getCause());
+    }
+  }
+
+  private static void writePatch(Path patchFile, ImmutableMap<Path, String> changes)
+      throws IOException {
+    Path baseDirectory = Path.of("").toAbsolutePath();
+    PatchFileDestination destination = new PatchFileDestination(baseDirectory, baseDirectory);
+    try (Writer writer = Files.newBufferedWriter(patchFile, UTF_8)) {
+      for (Map.Entry<Path, String> change : changes.entrySet()) {
+        Path path = change.getKey().toAbsolutePath();
+        destination.writeFile(new SourceFile(path.toString(), change.getValue()));
+        @Nullable String diff = destination.patchFile(path.toUri());
+        if (diff != null) {
+          writer.write(diff);
+        }
+      }
+    }
+  }
+}
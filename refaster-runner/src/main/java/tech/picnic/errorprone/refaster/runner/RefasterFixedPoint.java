@@ -0,0 +1,340 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.annotations.Var;
+import com.google.errorprone.apply.DescriptionBasedDiff;
+import com.google.errorprone.apply.ImportOrganizer;
+import com.google.errorprone.apply.SourceFile;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Applies {@link Refaster} to a set of source files until no further matches are found, without
+ * writing intermediate results to disk.
+ *
+ * <p>Each iteration parses all source files, but attributes and matches only the source files that
+ * were modified by the previous iteration. The suggested fixes are applied in memory, in the same
+ * way as Error Prone's {@code -XepPatchChecks} mode would apply them, with static imports placed
+ * first. Source files that fail to compile are left untouched.
+ *
+ * <p>This class can be invoked from the command line as follows:
+ *
+ * <pre>{@code
+ * java tech.picnic.errorprone.refaster.runner.RefasterFixedPoint \
+ *   [--max-iterations=<count>] [-XepOpt:<flag>=<value>...] [<javac option>...] <source file>...
+ * }</pre>
+ *
+ * <p>In that case, once a fixed point is reached, all modified source files are overwritten.
+ */
+public final class RefasterFixedPoint {
+  /** The command line option used to configure the maximum number of iterations. */
+  public static final String MAX_ITERATIONS_OPTION = "--max-iterations=";
+
+  /** The maximum number of iterations performed if not configured otherwise. */
+  static final int DEFAULT_MAX_ITERATIONS = 10;
+
+  private static final System.Logger LOG = System.getLogger(RefasterFixedPoint.class.getName());
+
+  private final ErrorProneOptions errorProneOptions;
+  private final ImmutableList<String> javacOptions;
+  private final int maxIterations;
+  private final Refaster refaster;
+
+  private RefasterFixedPoint(
+      ErrorProneOptions errorProneOptions, ImmutableList<String> javacOptions, int maxIterations) {
+    this.errorProneOptions = errorProneOptions;
+    this.javacOptions = javacOptions;
+    this.maxIterations = maxIterations;
+    this.refaster = new Refaster(errorProneOptions.getFlags());
+  }
+
+  /**
+   * Creates a {@link RefasterFixedPoint} instance.
+   *
+   * @param errorProneOptions The Error Prone options that configure {@link Refaster}.
+   * @param javacOptions The options with which to compile the source files, such as the classpath.
+   * @param maxIterations The maximum number of times to match and modify any source file.
+   * @return A non-{@code null} {@link RefasterFixedPoint}.
+   */
+  public static RefasterFixedPoint create(
+      ErrorProneOptions errorProneOptions, ImmutableList<String> javacOptions, int maxIterations) {
+    checkArgument(maxIterations > 0, "The maximum number of iterations must be positive");
+    return new RefasterFixedPoint(errorProneOptions, javacOptions, maxIterations);
+  }
+
+  /**
+   * Applies {@link Refaster} to the given source files and writes back the result.
+   *
+   * @param args The command line arguments; see the class documentation.
+   * @throws IOException If a source file could not be read or written.
+   */
+  public static void main(String... args) throws IOException {
+    @Var int maxIterations = DEFAULT_MAX_ITERATIONS;
+    ImmutableList.Builder<String> otherArgs = ImmutableList.builder();
+    for (String arg : args) {
+      if (arg.startsWith(MAX_ITERATIONS_OPTION)) {
+        maxIterations = Integer.parseInt(arg.substring(MAX_ITERATIONS_OPTION.length()));
+      } else {
+        otherArgs.add(arg);
+      }
+    }
+
+    ErrorProneOptions errorProneOptions = ErrorProneOptions.processArgs(otherArgs.build());
+    ImmutableList<String> remainingArgs = errorProneOptions.getRemainingArgs();
+    Result result =
+        create(
+                errorProneOptions,
+                remainingArgs.stream().filter(a -> !isSourceFile(a)).collect(toImmutableList()),
+                maxIterations)
+            .apply(
+                remainingArgs.stream()
+                    .filter(RefasterFixedPoint::isSourceFile)
+                    .map(Path::of)
+                    .collect(toImmutableSet()));
+
+    for (Map.Entry<Path, String> change : result.changes().entrySet()) {
+      Files.writeString(change.getKey(), change.getValue(), UTF_8);
+    }
+
+    LOG.log(
+        Level.INFO,
+        "Modified {0} source file(s) in {1} iteration(s)",
+        result.changes().size(),
+        result.iterations());
+    if (!result.converged()) {
+      LOG.log(Level.WARNING, "No fixed point reached after {0} iteration(s)", maxIterations);
+    }
+  }
+
+  /**
+   * Repeatedly applies {@link Refaster} to the given source files, until no further matches are
+   * found or the maximum number of iterations is reached.
+   *
+   * @param sourceFiles The source files to refactor, along with any other source files required to
+   *     compile them.
+   * @return The outcome of the refactoring operation.
+   * @throws IOException If a source file could not be read.
+   */
+  public Result apply(ImmutableSet<Path> sourceFiles) throws IOException {
+    Map<Path, String> sources = new LinkedHashMap<>();
+    for (Path sourceFile : sourceFiles) {
+      sources.put(sourceFile, Files.readString(sourceFile, UTF_8));
+    }
+    ImmutableMap<Path, String> originalSources = ImmutableMap.copyOf(sources);
+
+    @Var ImmutableSet<Path> pending = sourceFiles;
+    @Var int iterations = 0;
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+      while (!pending.isEmpty() && iterations < maxIterations) {
+        pending = applyOnce(compiler, fileManager, sources, pending);
+        iterations++;
+      }
+    }
+
+    return Result.create(
+        sources.entrySet().stream()
+            .filter(e -> !e.getValue().equals(originalSources.get(e.getKey())))
+            .collect(toImmutableMap(Map.Entry::getKey, Map.Entry::getValue)),
+        iterations,
+        pending.isEmpty());
+  }
+
+  /**
+   * Compiles the given sources, and applies the fixes suggested by {@link Refaster} to those
+   * associated with the given pending source files.
+   *
+   * <p>The given file manager is shared by all iterations, such that the classpath is opened only
+   * once. The compiler state created by this iteration is released before returning.
+   *
+   * @return The subset of pending source files that were modified.
+   */
+  private ImmutableSet<Path> applyOnce(
+      JavaCompiler compiler,
+      StandardJavaFileManager fileManager,
+      Map<Path, String> sources,
+      ImmutableSet<Path> pending) {
+    /* The compiler wraps the provided file objects, so they are identified by their URI instead. */
+    ImmutableMap<URI, InMemorySourceFile> files =
+        sources.entrySet().stream()
+            .map(e -> new InMemorySourceFile(e.getKey(), e.getValue()))
+            .collect(toImmutableMap(InMemorySourceFile::toUri, file -> file));
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            compiler.getTask(
+                null,
+                fileManager,
+                diagnostics,
+                ImmutableList.<String>builder().addAll(javacOptions).add("-proc:none").build(),
+                null,
+                files.values());
+    Context context = task.getContext();
+    context.put(ErrorProneOptions.class, errorProneOptions);
+    try {
+      return analyzeAndFix(task, files, pending, sources, diagnostics);
+    } finally {
+      com.sun.tools.javac.main.JavaCompiler.instance(context).close();
+    }
+  }
+
+  private ImmutableSet<Path> analyzeAndFix(
+      JavacTaskImpl task,
+      ImmutableMap<URI, InMemorySourceFile> files,
+      ImmutableSet<Path> pending,
+      Map<Path, String> sources,
+      DiagnosticCollector<JavaFileObject> diagnostics) {
+    Context context = task.getContext();
+    Trees trees = Trees.instance(task);
+    task.parse();
+    ImmutableList<Element> pendingTypes =
+        ImmutableList.copyOf(task.enter()).stream()
+            .filter(type -> isPending(trees.getPath(type), files, pending))
+            .collect(toImmutableList());
+    ImmutableSet<CompilationUnitTree> analyzedUnits =
+        ImmutableList.copyOf(task.analyze(pendingTypes)).stream()
+            .map(type -> trees.getPath(type))
+            .filter(Objects::nonNull)
+            .map(TreePath::getCompilationUnit)
+            .collect(toImmutableSet());
+
+    ImmutableSet<URI> erroneousSources =
+        diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .map(Diagnostic::getSource)
+            .filter(Objects::nonNull)
+            .map(JavaFileObject::toUri)
+            .collect(toImmutableSet());
+
+    ImmutableSet.Builder<Path> modified = ImmutableSet.builder();
+    for (CompilationUnitTree compilationUnit : analyzedUnits) {
+      URI uri = compilationUnit.getSourceFile().toUri();
+      InMemorySourceFile sourceFile = files.get(uri);
+      if (sourceFile != null && !erroneousSources.contains(uri)) {
+        String newSource = applyFixes(compilationUnit, sourceFile, context);
+        if (!newSource.equals(sourceFile.content)) {
+          sources.put(sourceFile.path, newSource);
+          modified.add(sourceFile.path);
+        }
+      }
+    }
+    return modified.build();
+  }
+
+  private String applyFixes(
+      CompilationUnitTree compilationUnit, InMemorySourceFile source, Context context) {
+    DescriptionBasedDiff diff =
+        DescriptionBasedDiff.create(
+            (JCCompilationUnit) compilationUnit, ImportOrganizer.STATIC_FIRST_ORGANIZER);
+    refaster.matchCompilationUnit(
+        compilationUnit,
+        VisitorState.createConfiguredForCompilation(
+                context, diff, ImmutableMap.of(), errorProneOptions)
+            .withPath(new TreePath(compilationUnit)));
+    if (diff.isEmpty()) {
+      return source.content;
+    }
+
+    SourceFile sourceFile = new SourceFile(source.path.toString(), source.content);
+    diff.applyDifferences(sourceFile);
+    return sourceFile.getSourceText();
+  }
+
+  private static boolean isPending(
+      @Nullable TreePath path,
+      ImmutableMap<URI, InMemorySourceFile> files,
+      ImmutableSet<Path> pending) {
+    if (path == null) {
+      return false;
+    }
+
+    InMemorySourceFile sourceFile = files.get(path.getCompilationUnit().getSourceFile().toUri());
+    return sourceFile != null && pending.contains(sourceFile.path);
+  }
+
+  private static boolean isSourceFile(String arg) {
+    return arg.endsWith(".java") && !arg.startsWith("-");
+  }
+
+  /** The outcome of a {@link RefasterFixedPoint#apply(ImmutableSet)} invocation. */
+  @AutoValue
+  public abstract static class Result {
+    Result() {}
+
+    /**
+     * Returns the modified source files.
+     *
+     * @return A mapping from source file paths to their new content.
+     */
+    public abstract ImmutableMap<Path, String> changes();
+
+    /**
+     * Returns the number of iterations performed.
+     *
+     * @return The number of times that at least one source file was compiled and matched.
+     */
+    public abstract int iterations();
+
+    /**
+     * Tells whether a fixed point was reached.
+     *
+     * @return {@code false} iff the last iteration still modified one or more source files.
+     */
+    public abstract boolean converged();
+
+    private static Result create(
+        ImmutableMap<Path, String> changes, int iterations, boolean converged) {
+      return new AutoValue_RefasterFixedPoint_Result(changes, iterations, converged);
+    }
+  }
+
+  /** An in-memory representation of a source file. */
+  private static final class InMemorySourceFile extends SimpleJavaFileObject {
+    private final Path path;
+    private final String content;
+
+    InMemorySourceFile(Path path, String content) {
+      super(path.toAbsolutePath().toUri(), Kind.SOURCE);
+      this.path = path;
+      this.content = content;
+    }
+
+    @Override
+    public String getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Comparator.comparingInt;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.annotations.Var;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.matchers.Description;
+import com.sun.tools.javac.tree.EndPosTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Selects a subset of Refaster matches, such that no two selected matches suggest a replacement of
+ * the same part of the source code.
+ *
+ * <p>In case of overlap the match that replaces the largest piece of source code is preferred. In
+ * case two matches wish to replace exactly the same piece of code, preference is given to the match
+ * that suggests the shortest replacement, and subsequently to the match that was received first.
+ *
+ * <p>The properties of each match that are relevant to conflict resolution are computed as soon as
+ * it is received. The selection itself is deferred until all matches have been received, as a match
+ * that conflicts with a preferred match may still be selected if that preferred match is in turn
+ * superseded.
+ */
+// XXX: This selection logic solves an issue described in
+// https://github.com/google/error-prone/issues/559. Consider contributing it back upstream.
+final class RefasterMatchResolver {
+  private static final Comparator<Match> PREFERENCE =
+      comparingInt(Match::replacedCodeSize).reversed().thenComparingInt(Match::insertedCodeSize);
+
+  private final EndPosTable endPositions;
+  private final Consumer<String> discardedMatchListener;
+  private final List<Match> receivedMatches = new ArrayList<>();
+
+  /**
+   * Instantiates a new {@link RefasterMatchResolver}.
+   *
+   * @param endPositions The end positions of the compilation unit being matched.
+   * @param discardedMatchListener The listener notified of the name of the Refaster rule that
+   *     produced a match, each time such a match is discarded in favour of another match.
+   */
+  RefasterMatchResolver(EndPosTable endPositions, Consumer<String> discardedMatchListener) {
+    this.endPositions = endPositions;
+    this.discardedMatchListener = discardedMatchListener;
+  }
+
+  /**
+   * Registers the given match as a candidate for selection.
+   *
+   * @param description The match to consider.
+   * @param ruleName The name of the Refaster rule that produced the match.
+   */
+  void add(Description description, String ruleName) {
+    receivedMatches.add(Match.create(description, ruleName, endPositions));
+  }
+
+  /**
+   * Returns the number of matches passed to {@link #add(Description, String)}.
+   *
+   * @return A non-negative number.
+   */
+  int getReceivedMatchCount() {
+    return receivedMatches.size();
+  }
+
+  /**
+   * Selects a non-conflicting subset of the received matches, notifying the discarded match
+   * listener of each match that is not selected.
+   *
+   * @return The selected matches, in order of preference.
+   */
+  ImmutableList<Description> selectMatches() {
+    IntervalSet replacedSections = new IntervalSet();
+    ImmutableList.Builder<Description> selectedMatches = ImmutableList.builder();
+    /* The sort is stable, such that matches received first are preferred. */
+    for (Match match : ImmutableList.sortedCopyOf(PREFERENCE, receivedMatches)) {
+      if (match.intersects(replacedSections)) {
+        discardedMatchListener.accept(match.ruleName);
+      } else {
+        match.addTo(replacedSections);
+        selectedMatches.add(match.description);
+      }
+    }
+    return selectedMatches.build();
+  }
+
+  /**
+   * A {@link Description} along with the properties of its suggested replacements that are relevant
+   * to conflict resolution, computed once.
+   */
+  private static final class Match {
+    private final Description description;
+    private final String ruleName;
+    private final int replacedCodeSize;
+    private final int insertedCodeSize;
+    /* The disjoint, non-empty replaced intervals, stored in order as `[start, end)` pairs. */
+    private final int[] replacedIntervals;
+
+    private Match(
+        Description description,
+        String ruleName,
+        int replacedCodeSize,
+        int insertedCodeSize,
+        int[] replacedIntervals) {
+      this.description = description;
+      this.ruleName = ruleName;
+      this.replacedCodeSize = replacedCodeSize;
+      this.insertedCodeSize = insertedCodeSize;
+      this.replacedIntervals = replacedIntervals;
+    }
+
+    static Match create(Description description, String ruleName, EndPosTable endPositions) {
+      ImmutableList<Replacement> replacements =
+          description.fixes.stream()
+              .flatMap(fix -> fix.getReplacements(endPositions).stream())
+              .collect(toImmutableList());
+      return new Match(
+          description,
+          ruleName,
+          replacements.stream().mapToInt(Replacement::length).sum(),
+          // XXX: It might be nicer to prefer the shortest replacement _post formatting_.
+          replacements.stream().mapToInt(r -> r.replaceWith().length()).sum(),
+          coalesce(replacements));
+    }
+
+    int replacedCodeSize() {
+      return replacedCodeSize;
+    }
+
+    int insertedCodeSize() {
+      return insertedCodeSize;
+    }
+
+    /** Tells whether any of the intervals replaced by this match intersect the given set. */
+    boolean intersects(IntervalSet intervals) {
+      for (int i = 0; i < replacedIntervals.length; i += 2) {
+        if (intervals.intersects(replacedIntervals[i], replacedIntervals[i + 1])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Adds the intervals replaced by this match to the given set. */
+    void addTo(IntervalSet intervals) {
+      for (int i = 0; i < replacedIntervals.length; i += 2) {
+        intervals.add(replacedIntervals[i], replacedIntervals[i + 1]);
+      }
+    }
+
+    private static int[] coalesce(ImmutableList<Replacement> replacements) {
+      ImmutableList<Replacement> nonEmpty =
+          replacements.stream()
+              .filter(r -> r.length() > 0)
+              .sorted(comparingInt(Replacement::startPosition))
+              .collect(toImmutableList());
+
+      int[] intervals = new int[nonEmpty.size() * 2];
+      @Var int size = 0;
+      for (Replacement replacement : nonEmpty) {
+        if (size > 0 && intervals[size - 1] >= replacement.startPosition()) {
+          intervals[size - 1] = Math.max(intervals[size - 1], replacement.endPosition());
+        } else {
+          intervals[size++] = replacement.startPosition();
+          intervals[size++] = replacement.endPosition();
+        }
+      }
+      return size == intervals.length ? intervals : Arrays.copyOf(intervals, size);
+    }
+  }
+}
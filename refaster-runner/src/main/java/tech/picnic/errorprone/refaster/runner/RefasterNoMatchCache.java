@@ -0,0 +1,351 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Map.Entry.comparingByValue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskEvent.Kind;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.api.MultiTaskListener;
+import com.sun.tools.javac.code.Source;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An on-disk record of compilation units that are known not to be matched by any Refaster rule.
+ *
+ * <p>Each entry is an empty file named after a hash of a compilation unit's source code and a
+ * fingerprint of the other inputs that determine whether a Refaster rule may match it: the names
+ * and serialized form of the loaded rules, the relevant Error Prone flags, the classpath, the
+ * source level and the Java runtime version. Entries are never modified once created, so a single
+ * cache directory may safely be shared by concurrent compilations.
+ *
+ * <p>Looking up an entry updates its modification time, if possible. Once a compilation that added
+ * entries completes, the least recently used entries are evicted such that the cache does not
+ * exceed its configured size. Failure to update or add entries, such as in the case of a read-only
+ * cache directory, is not considered an error.
+ *
+ * <p>Changes to the content of classpath entries are detected based on file sizes and modification
+ * times. The class output location is not covered by the fingerprint, as it contains the output of
+ * the compilation itself. Note that the fingerprint does not cover the other compilation units
+ * compiled alongside a given compilation unit either. Changes to those may thus go unnoticed,
+ * causing Refaster matches to be missed until the compilation unit itself changes.
+ */
+final class RefasterNoMatchCache {
+  /** The version of the cache key format; to be incremented when the fingerprint changes. */
+  private static final String FORMAT_VERSION = "refaster-no-match-cache-v1";
+
+  private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+  /** The flags that do not influence whether a Refaster rule matches a compilation unit. */
+  private static final ImmutableSet<String> IGNORED_FLAGS =
+      ImmutableSet.of(
+          Refaster.PROFILE_OUTPUT_FLAG,
+          Refaster.CACHE_DIRECTORY_FLAG,
+          Refaster.CACHE_MAX_ENTRIES_FLAG);
+
+  private final Path directory;
+  private final int maxEntries;
+  private final HashCode fingerprint;
+  private boolean modified = false;
+
+  /**
+   * Instantiates a {@link RefasterNoMatchCache}.
+   *
+   * @param directory The directory in which to store cache entries.
+   * @param maxEntries The maximum number of entries retained once eviction takes place.
+   * @param fingerprint The fingerprint of all inputs other than the compilation unit's source code
+   *     that determine whether a Refaster rule may match it.
+   */
+  RefasterNoMatchCache(Path directory, int maxEntries, HashCode fingerprint) {
+    this.directory = directory;
+    this.maxEntries = maxEntries;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Creates a {@link RefasterNoMatchCache} for the current compilation, which evicts least recently
+   * used entries once the compilation completes.
+   *
+   * @param directory The directory in which to store cache entries.
+   * @param maxEntries The maximum number of entries retained once eviction takes place.
+   * @param rules The Refaster rules against which compilation units are matched.
+   * @param state The {@link VisitorState} of the current compilation.
+   * @return A non-{@code null} {@link RefasterNoMatchCache}.
+   */
+  static RefasterNoMatchCache create(
+      Path directory,
+      int maxEntries,
+      ImmutableList<RefasterRuleResource> rules,
+      VisitorState state) {
+    RefasterNoMatchCache cache =
+        new RefasterNoMatchCache(directory, maxEntries, computeFingerprint(rules, state));
+    MultiTaskListener.instance(state.context)
+        .add(
+            new TaskListener() {
+              @Override
+              public void finished(TaskEvent taskEvent) {
+                if (taskEvent.getKind() == Kind.COMPILATION) {
+                  cache.evict();
+                }
+              }
+            });
+    return cache;
+  }
+
+  /**
+   * Computes the cache key of the given compilation unit.
+   *
+   * @param tree The compilation unit of interest.
+   * @return The cache key, unless the compilation unit's source code cannot be read.
+   */
+  @SuppressWarnings({
+    "java:S1166" /* The caught exception's stack traces are not relevant. */,
+    "key-to-resolve-AnnotationUseStyle-and-TrailingComment-check-conflict"
+  })
+  Optional<HashCode> getKey(CompilationUnitTree tree) {
+    CharSequence source;
+    try {
+      source = tree.getSourceFile().getCharContent(/* ignoreEncodingErrors= */ true);
+    } catch (IOException e) {
+      /* Such a compilation unit is simply not cached. */
+      return Optional.empty();
+    }
+
+    return Optional.of(
+        HASH_FUNCTION.newHasher().putBytes(fingerprint.asBytes()).putString(source, UTF_8).hash());
+  }
+
+  /**
+   * Tells whether the compilation unit with the given key is known not to be matched by any
+   * Refaster rule, and if so marks the associated entry as recently used.
+   *
+   * @param key The cache key of the compilation unit of interest.
+   * @return Whether the compilation unit can be skipped.
+   */
+  @SuppressWarnings({
+    "java:S1166" /* The caught exception's stack traces are not relevant. */,
+    "key-to-resolve-AnnotationUseStyle-and-TrailingComment-check-conflict"
+  })
+  boolean contains(HashCode key) {
+    Path path = getPath(key);
+    if (!Files.exists(path)) {
+      return false;
+    }
+
+    try {
+      Files.setLastModifiedTime(path, now());
+    } catch (IOException e) {
+      /*
+       * The cache directory may be read-only, or the entry may have been concurrently evicted. In
+       * either case the entry's last use need not be recorded.
+       */
+    }
+    return true;
+  }
+
+  /**
+   * Records that the compilation unit with the given key is not matched by any Refaster rule.
+   *
+   * @param key The cache key of the compilation unit of interest.
+   */
+  @SuppressWarnings({
+    "java:S1166" /* The caught exception's stack traces are not relevant. */,
+    "key-to-resolve-AnnotationUseStyle-and-TrailingComment-check-conflict"
+  })
+  void add(HashCode key) {
+    Path path = getPath(key);
+    try {
+      Files.createDirectories(path.getParent());
+      Files.createFile(path);
+      modified = true;
+    } catch (FileAlreadyExistsException e) {
+      /* A concurrent compilation already recorded the same result. */
+    } catch (IOException e) {
+      /* The cache directory may be read-only; the result is then simply not recorded. */
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries in excess of the configured maximum, if any entries
+   * were added since the last invocation.
+   *
+   * <p>Entries that are concurrently deleted by another compilation are ignored.
+   */
+  void evict() {
+    if (!modified) {
+      return;
+    }
+    modified = false;
+
+    Map<Path, FileTime> entries = new HashMap<>();
+    for (Path entry : listEntries()) {
+      getLastModifiedTime(entry).ifPresent(time -> entries.put(entry, time));
+    }
+
+    int excess = entries.size() - maxEntries;
+    if (excess <= 0) {
+      return;
+    }
+
+    ImmutableList<Path> leastRecentlyUsed =
+        entries.entrySet().stream()
+            .sorted(comparingByValue())
+            .limit(excess)
+            .map(Map.Entry::getKey)
+            .collect(toImmutableList());
+    for (Path entry : leastRecentlyUsed) {
+      try {
+        Files.deleteIfExists(entry);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to evict Refaster cache entry " + entry, e);
+      }
+    }
+  }
+
+  private Path getPath(HashCode key) {
+    String name = key.toString();
+    return directory.resolve(name.substring(0, 2)).resolve(name.substring(2));
+  }
+
+  private ImmutableList<Path> listEntries() {
+    if (!Files.isDirectory(directory)) {
+      return ImmutableList.of();
+    }
+
+    try (Stream<Path> paths = Files.walk(directory, 2)) {
+      return paths.filter(Files::isRegularFile).collect(toImmutableList());
+    } catch (IOException | UncheckedIOException e) {
+      throw new IllegalStateException("Failed to list Refaster cache entries in " + directory, e);
+    }
+  }
+
+  @SuppressWarnings({
+    "java:S1166" /* The caught exception's stack traces are not relevant. */,
+    "key-to-resolve-AnnotationUseStyle-and-TrailingComment-check-conflict"
+  })
+  private static Optional<FileTime> getLastModifiedTime(Path entry) {
+    try {
+      return Optional.of(Files.getLastModifiedTime(entry));
+    } catch (NoSuchFileException e) {
+      /* The entry was concurrently evicted. */
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to access Refaster cache entry " + entry, e);
+    }
+  }
+
+  private static FileTime now() {
+    return FileTime.fromMillis(System.currentTimeMillis());
+  }
+
+  private static HashCode computeFingerprint(
+      ImmutableList<RefasterRuleResource> rules, VisitorState state) {
+    Hasher hasher = HASH_FUNCTION.newHasher().putString(FORMAT_VERSION, UTF_8);
+
+    for (RefasterRuleResource rule : rules) {
+      try {
+        hasher.putString(rule.name(), UTF_8).putBytes(rule.content().hash(HASH_FUNCTION).asBytes());
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read Refaster rule " + rule.name(), e);
+      }
+    }
+
+    ImmutableSortedMap.copyOf(state.errorProneOptions().getFlags().getFlagsMap())
+        .forEach(
+            (key, value) -> {
+              if (!IGNORED_FLAGS.contains(key)) {
+                hasher.putString(key, UTF_8).putString(value, UTF_8);
+              }
+            });
+
+    @Nullable JavaFileManager fileManager = state.context.get(JavaFileManager.class);
+    return hasher
+        .putBytes(
+            hashClassPath(
+                    getLocation(fileManager, StandardLocation.CLASS_PATH),
+                    getLocation(fileManager, StandardLocation.CLASS_OUTPUT).stream()
+                        .map(Path::toAbsolutePath)
+                        .collect(toImmutableSet()))
+                .asBytes())
+        .putString(Source.instance(state.context).name, UTF_8)
+        .putString(Runtime.version().toString(), UTF_8)
+        .hash();
+  }
+
+  /**
+   * Computes a hash of the given classpath entries, covering the size and modification time of each
+   * file they contain.
+   *
+   * @param classPath The classpath entries of interest.
+   * @param excludedEntries The absolute paths of the classpath entries to skip.
+   * @return A hash that changes if any of the non-excluded classpath entries changes.
+   */
+  @VisibleForTesting
+  static HashCode hashClassPath(ImmutableList<Path> classPath, ImmutableSet<Path> excludedEntries) {
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    for (Path entry : classPath) {
+      if (!excludedEntries.contains(entry.toAbsolutePath())) {
+        hasher.putString(entry.toString(), UTF_8).putByte((byte) 0);
+        try {
+          if (Files.isDirectory(entry)) {
+            try (Stream<Path> files = Files.walk(entry)) {
+              for (Path file :
+                  files.filter(Files::isRegularFile).sorted().collect(toImmutableList())) {
+                hashFile(hasher, file);
+              }
+            }
+          } else if (Files.isRegularFile(entry)) {
+            hashFile(hasher, entry);
+          }
+        } catch (IOException | UncheckedIOException e) {
+          throw new IllegalStateException("Failed to access classpath entry " + entry, e);
+        }
+      }
+    }
+    return hasher.hash();
+  }
+
+  private static void hashFile(Hasher hasher, Path file) throws IOException {
+    hasher
+        .putString(file.toString(), UTF_8)
+        .putByte((byte) 0)
+        .putLong(Files.size(file))
+        .putLong(Files.getLastModifiedTime(file).toMillis());
+  }
+
+  private static ImmutableList<Path> getLocation(
+      @Nullable JavaFileManager fileManager, StandardLocation location) {
+    if (!(fileManager instanceof StandardJavaFileManager standardFileManager)) {
+      return ImmutableList.of();
+    }
+
+    @Nullable Iterable<? extends Path> paths = standardFileManager.getLocationAsPaths(location);
+    return paths == null ? ImmutableList.of() : ImmutableList.copyOf(paths);
+  }
+}
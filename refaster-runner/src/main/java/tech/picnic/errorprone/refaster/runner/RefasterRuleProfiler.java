@@ -0,0 +1,223 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparingLong;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskEvent.Kind;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.api.MultiTaskListener;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Collects per-rule performance statistics over the course of a single compilation, and reports
+ * them once the compilation completes.
+ *
+ * <p>For each Refaster rule the number of invocations, the total wall time spent applying it, the
+ * number of matches it produced and the number of those matches that were discarded due to overlap
+ * with another match are tracked. The same statistics are also reported aggregated by rule
+ * collection, i.e. by top-level class.
+ */
+final class RefasterRuleProfiler {
+  private final Map<String, RuleStatistics> statistics = new ConcurrentHashMap<>();
+  private final Path output;
+
+  private RefasterRuleProfiler(Path output) {
+    this.output = output;
+  }
+
+  /**
+   * Returns the {@link RefasterRuleProfiler} associated with the given compilation, creating it if
+   * necessary.
+   *
+   * @param context The context of the current compilation.
+   * @param output The file to which to write the collected statistics, in JSON format.
+   * @return A non-{@code null} {@link RefasterRuleProfiler}.
+   */
+  static RefasterRuleProfiler instance(Context context, Path output) {
+    @Nullable RefasterRuleProfiler profiler = context.get(RefasterRuleProfiler.class);
+    if (profiler == null) {
+      RefasterRuleProfiler newProfiler = new RefasterRuleProfiler(output);
+      context.put(RefasterRuleProfiler.class, newProfiler);
+      MultiTaskListener.instance(context)
+          .add(
+              new TaskListener() {
+                @Override
+                public void finished(TaskEvent taskEvent) {
+                  if (taskEvent.getKind() == Kind.COMPILATION) {
+                    newProfiler.report();
+                  }
+                }
+              });
+      return newProfiler;
+    }
+    return profiler;
+  }
+
+  /**
+   * Registers a single application of the given Refaster rule.
+   *
+   * @param ruleName The name of the Refaster rule.
+   * @param wallTimeNanos The time spent applying the rule, in nanoseconds.
+   * @param matchCount The number of matches produced.
+   */
+  void recordApplication(String ruleName, long wallTimeNanos, int matchCount) {
+    RuleStatistics ruleStatistics = getStatistics(ruleName);
+    ruleStatistics.invocations.increment();
+    ruleStatistics.wallTimeNanos.add(wallTimeNanos);
+    ruleStatistics.matches.add(matchCount);
+  }
+
+  /**
+   * Registers that a match produced by the given Refaster rule was discarded, because it overlaps
+   * with a preferred match.
+   *
+   * @param ruleName The name of the Refaster rule.
+   */
+  void recordDiscardedMatch(String ruleName) {
+    getStatistics(ruleName).discardedMatches.increment();
+  }
+
+  private RuleStatistics getStatistics(String ruleName) {
+    return statistics.computeIfAbsent(ruleName, k -> new RuleStatistics());
+  }
+
+  private void report() {
+    ImmutableList<Summary> rules = summarizeRules();
+    writeJson(output, rules, summarizeCollections(rules));
+  }
+
+  private ImmutableList<Summary> summarizeRules() {
+    return statistics.entrySet().stream()
+        .map(e -> e.getValue().summarize(e.getKey()))
+        .sorted(comparingLong(Summary::wallTimeNanos).reversed())
+        .collect(toImmutableList());
+  }
+
+  private static ImmutableList<Summary> summarizeCollections(ImmutableList<Summary> rules) {
+    Map<String, Summary> collections = new TreeMap<>();
+    for (Summary rule : rules) {
+      String collectionName = getCollectionName(rule.name());
+      collections.merge(collectionName, rule.withName(collectionName), Summary::plus);
+    }
+    return collections.values().stream()
+        .sorted(comparingLong(Summary::wallTimeNanos).reversed())
+        .collect(toImmutableList());
+  }
+
+  private static String getCollectionName(String ruleName) {
+    int separator = ruleName.indexOf('$');
+    return separator < 0 ? ruleName : ruleName.substring(0, separator);
+  }
+
+  private static void writeJson(
+      Path path, ImmutableList<Summary> rules, ImmutableList<Summary> collections) {
+    try {
+      Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      try (Writer writer = Files.newBufferedWriter(path, UTF_8)) {
+        writer.write("{\n  \"rules\": ");
+        writeJson(writer, rules);
+        writer.write(",\n  \"collections\": ");
+        writeJson(writer, collections);
+        writer.write("\n}\n");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write Refaster rule profile to " + path, e);
+    }
+  }
+
+  private static void writeJson(Writer writer, ImmutableList<Summary> summaries)
+      throws IOException {
+    writer.write('[');
+    for (int i = 0; i < summaries.size(); i++) {
+      Summary summary = summaries.get(i);
+      writer.write(i == 0 ? "\n    " : ",\n    ");
+      writer.write(
+          String.format(
+              "{\"name\": \"%s\", \"invocations\": %d, \"wallTimeNanos\": %d, \"matches\": %d, \"discardedMatches\": %d}",
+              escapeJson(summary.name()),
+              summary.invocations(),
+              summary.wallTimeNanos(),
+              summary.matches(),
+              summary.discardedMatches()));
+    }
+    writer.write(summaries.isEmpty() ? "]" : "\n  ]");
+  }
+
+  private static String escapeJson(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < ' ') {
+        escaped.append(String.format("\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /** The mutable statistics tracked for a single Refaster rule. */
+  private static final class RuleStatistics {
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder wallTimeNanos = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder discardedMatches = new LongAdder();
+
+    private Summary summarize(String name) {
+      return Summary.create(
+          name, invocations.sum(), wallTimeNanos.sum(), matches.sum(), discardedMatches.sum());
+    }
+  }
+
+  /** An immutable snapshot of the statistics tracked for a rule or rule collection. */
+  @AutoValue
+  abstract static class Summary {
+    abstract String name();
+
+    abstract long invocations();
+
+    abstract long wallTimeNanos();
+
+    abstract long matches();
+
+    abstract long discardedMatches();
+
+    static Summary create(
+        String name, long invocations, long wallTimeNanos, long matches, long discardedMatches) {
+      return new AutoValue_RefasterRuleProfiler_Summary(
+          name, invocations, wallTimeNanos, matches, discardedMatches);
+    }
+
+    private Summary withName(String newName) {
+      return create(newName, invocations(), wallTimeNanos(), matches(), discardedMatches());
+    }
+
+    private Summary plus(Summary other) {
+      return create(
+          name(),
+          invocations() + other.invocations(),
+          wallTimeNanos() + other.wallTimeNanos(),
+          matches() + other.matches(),
+          discardedMatches() + other.discardedMatches());
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteSource;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.CodeTransformer;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import tech.picnic.errorprone.refaster.AnnotatedCompositeCodeTransformer;
+import tech.picnic.errorprone.refaster.RefasterRuleIdentifiers;
+import tech.picnic.errorprone.refaster.RefasterRuleIndex;
+
+/**
+ * A named Refaster rule, the associated {@link CodeTransformer} of which is deserialized only when
+ * first requested.
+ */
+final class RefasterRuleResource {
+  private static final ImmutableSet<ImmutableSet<String>> UNCONSTRAINED =
+      ImmutableSet.of(ImmutableSet.of());
+
+  private final String name;
+  private final Supplier<ImmutableSet<ImmutableSet<String>>> requiredIdentifiers;
+  private final ImmutableSet<ImmutableSet<String>> requiredTypes;
+  private final Supplier<SeverityLevel> severity;
+  private final Supplier<Boolean> hasOnlineDocumentation;
+  private final ByteSource content;
+  private final Supplier<Optional<CodeTransformer>> codeTransformer;
+
+  private RefasterRuleResource(
+      String name,
+      Supplier<ImmutableSet<ImmutableSet<String>>> requiredIdentifiers,
+      ImmutableSet<ImmutableSet<String>> requiredTypes,
+      Supplier<SeverityLevel> severity,
+      Supplier<Boolean> hasOnlineDocumentation,
+      ByteSource content,
+      Supplier<Optional<CodeTransformer>> codeTransformer) {
+    this.name = name;
+    this.requiredIdentifiers = requiredIdentifiers;
+    this.requiredTypes = requiredTypes;
+    this.severity = severity;
+    this.hasOnlineDocumentation = hasOnlineDocumentation;
+    this.content = content;
+    this.codeTransformer = codeTransformer;
+  }
+
+  /**
+   * Creates a {@link RefasterRuleResource} of which the metadata is known up front.
+   *
+   * @param entry The index entry describing the Refaster rule.
+   * @param content The serialized form of the Refaster rule.
+   * @param loader The function that deserializes the associated {@link CodeTransformer}; invoked at
+   *     most once.
+   * @return A non-{@code null} {@link RefasterRuleResource}.
+   */
+  static RefasterRuleResource indexed(
+      RefasterRuleIndex.Entry entry,
+      ByteSource content,
+      Supplier<Optional<CodeTransformer>> loader) {
+    return new RefasterRuleResource(
+        entry.name(),
+        entry::requiredIdentifiers,
+        entry.requiredTypes(),
+        entry::severity,
+        entry::hasOnlineDocumentation,
+        content,
+        Suppliers.memoize(loader::get));
+  }
+
+  /**
+   * Creates a {@link RefasterRuleResource} of which the required identifiers, severity and online
+   * documentation status are derived from the associated {@link CodeTransformer}, which is thus
+   * loaded once any of these properties is requested.
+   *
+   * <p>So as not to require deserialization up front, such a rule is assumed to be applicable
+   * irrespective of the types present on the classpath.
+   *
+   * @param name The name of the Refaster rule.
+   * @param content The serialized form of the Refaster rule.
+   * @param loader The function that deserializes the associated {@link CodeTransformer}; invoked at
+   *     most once.
+   * @return A non-{@code null} {@link RefasterRuleResource}.
+   */
+  static RefasterRuleResource unindexed(
+      String name, ByteSource content, Supplier<Optional<CodeTransformer>> loader) {
+    Supplier<Optional<CodeTransformer>> codeTransformer = Suppliers.memoize(loader::get);
+    return new RefasterRuleResource(
+        name,
+        Suppliers.memoize(
+            () ->
+                codeTransformer
+                    .get()
+                    .map(RefasterRuleIdentifiers::extract)
+                    .orElseGet(ImmutableSet::of)),
+        UNCONSTRAINED,
+        derive(codeTransformer, AnnotatedCompositeCodeTransformer::getDefaultSeverity, SUGGESTION),
+        derive(codeTransformer, AnnotatedCompositeCodeTransformer::hasOnlineDocumentation, false),
+        content,
+        codeTransformer);
+  }
+
+  private static <T> Supplier<T> derive(
+      Supplier<Optional<CodeTransformer>> codeTransformer,
+      Function<AnnotatedCompositeCodeTransformer, T> extractor,
+      T defaultValue) {
+    return Suppliers.memoize(
+        () ->
+            codeTransformer
+                .get()
+                .filter(AnnotatedCompositeCodeTransformer.class::isInstance)
+                .map(AnnotatedCompositeCodeTransformer.class::cast)
+                .map(extractor)
+                .orElse(defaultValue));
+  }
+
+  /**
+   * Returns the name of this Refaster rule.
+   *
+   * @return The flat name of the Refaster rule class, excluding its package.
+   */
+  String name() {
+    return name;
+  }
+
+  /**
+   * Returns the sets of identifiers of which at least one must occur in a compilation unit for this
+   * Refaster rule to possibly match it.
+   *
+   * @return A set of identifier sets; empty if the rule cannot be loaded.
+   */
+  ImmutableSet<ImmutableSet<String>> requiredIdentifiers() {
+    return requiredIdentifiers.get();
+  }
+
+  /**
+   * Returns the sets of fully qualified type names of which at least one must be fully present on
+   * the classpath for this Refaster rule to possibly match any code.
+   *
+   * @return A set of type name sets; if one of these sets is empty, then this rule may match code
+   *     compiled against any classpath.
+   */
+  ImmutableSet<ImmutableSet<String>> requiredTypes() {
+    return requiredTypes;
+  }
+
+  /**
+   * Returns the severity with which matches of this Refaster rule are reported by default.
+   *
+   * @return A non-{@code null} severity level.
+   */
+  SeverityLevel severity() {
+    return severity.get();
+  }
+
+  /**
+   * Tells whether this Refaster rule is annotated with {@code @OnlineDocumentation}.
+   *
+   * @return Whether this Refaster rule comes with online documentation.
+   */
+  boolean hasOnlineDocumentation() {
+    return hasOnlineDocumentation.get();
+  }
+
+  /**
+   * Returns the serialized form of this Refaster rule.
+   *
+   * @return A {@link ByteSource} that does not require the rule to be deserialized.
+   */
+  ByteSource content() {
+    return content;
+  }
+
+  /**
+   * Returns the {@link CodeTransformer} associated with this Refaster rule, deserializing it if
+   * this did not happen before.
+   *
+   * @return The associated {@link CodeTransformer}, unless it is incompatible with the current
+   *     classpath.
+   */
+  Optional<CodeTransformer> codeTransformer() {
+    return codeTransformer.get();
+  }
+}
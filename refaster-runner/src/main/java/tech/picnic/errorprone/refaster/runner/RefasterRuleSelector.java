@@ -0,0 +1,88 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Selects the subset of Refaster rules that may possibly match a given compilation unit.
+ *
+ * <p>For each rule the identifiers (method names, field names and other member selects) required by
+ * each of its {@link com.google.errorprone.refaster.annotation.BeforeTemplate before templates} are
+ * stored in a prefix tree. Given a compilation unit, a cheap scan collects all identifiers it
+ * contains, after which only those rules for which at least one before template references only
+ * identifiers present in the compilation unit are selected. See {@link
+ * tech.picnic.errorprone.refaster.RefasterRuleIdentifiers} for details.
+ *
+ * <p>Selection does not require rules to be deserialized.
+ */
+final class RefasterRuleSelector {
+  private final ImmutableList<RefasterRuleResource> rules;
+  private final Node<Integer> ruleIndex;
+
+  private RefasterRuleSelector(ImmutableList<RefasterRuleResource> rules, Node<Integer> ruleIndex) {
+    this.rules = rules;
+    this.ruleIndex = ruleIndex;
+  }
+
+  /**
+   * Creates a {@link RefasterRuleSelector} that selects from the given Refaster rules.
+   *
+   * @param rules The Refaster rules from which to select.
+   * @return A non-{@code null} {@link RefasterRuleSelector}.
+   */
+  static RefasterRuleSelector create(ImmutableList<RefasterRuleResource> rules) {
+    return new RefasterRuleSelector(
+        rules,
+        Node.create(
+            IntStream.range(0, rules.size()).boxed().collect(toImmutableList()),
+            i -> rules.get(i).requiredIdentifiers()));
+  }
+
+  /**
+   * Returns the Refaster rules that may match the given compilation unit.
+   *
+   * @param tree The compilation unit of interest.
+   * @return The subset of Refaster rules that may match, in registration order.
+   */
+  ImmutableList<RefasterRuleResource> selectCandidateRules(CompilationUnitTree tree) {
+    BitSet candidates = new BitSet(rules.size());
+    ruleIndex.collectReachableValues(extractSourceIdentifiers(tree), candidates::set);
+    return candidates.stream().mapToObj(rules::get).collect(toImmutableList());
+  }
+
+  private static Set<String> extractSourceIdentifiers(Tree tree) {
+    Set<String> identifiers = new HashSet<>();
+    new TreeScanner<@Nullable Void, @Nullable Void>() {
+      @Override
+      public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
+        identifiers.add(node.getName().toString());
+        return super.visitIdentifier(node, unused);
+      }
+
+      @Override
+      public @Nullable Void visitMemberReference(MemberReferenceTree node, @Nullable Void unused) {
+        identifiers.add(node.getName().toString());
+        return super.visitMemberReference(node, unused);
+      }
+
+      @Override
+      public @Nullable Void visitMemberSelect(MemberSelectTree node, @Nullable Void unused) {
+        identifiers.add(node.getIdentifier().toString());
+        return super.visitMemberSelect(node, unused);
+      }
+    }.scan(tree, null);
+    return identifiers;
+  }
+}
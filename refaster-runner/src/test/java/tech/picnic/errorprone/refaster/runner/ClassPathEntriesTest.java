@@ -0,0 +1,101 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.Resources;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ClassPathEntriesTest {
+  @SuppressWarnings(
+      "BanClassLoader" /* The class loader is only used to enumerate its classpath. */)
+  @Test
+  void ofFollowsManifestClassPath(@TempDir Path directory) throws IOException {
+    Path classes = Files.createDirectory(directory.resolve("classes"));
+    Path referenced = writeJar(directory.resolve("referenced.jar"), null, "pkg/A.refaster");
+    Path referencing = writeJar(directory.resolve("referencing.jar"), "referenced.jar missing.jar");
+
+    try (URLClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {classes.toUri().toURL(), referencing.toUri().toURL()},
+            ClassLoader.getPlatformClassLoader())) {
+      assertThat(ClassPathEntries.of(classLoader))
+          .containsExactly(
+              classes, referencing, referenced, directory.resolve("missing.jar").normalize());
+    }
+  }
+
+  @Test
+  void findResources(@TempDir Path directory) throws IOException {
+    Path classes = directory.resolve("classes");
+    Files.createDirectories(classes.resolve("pkg/sub"));
+    Files.writeString(classes.resolve("pkg/B.refaster"), "b", UTF_8);
+    Files.writeString(classes.resolve("pkg/sub/A.refaster"), "a", UTF_8);
+    Files.writeString(classes.resolve("pkg/C.class"), "c", UTF_8);
+    Path jar = writeJar(directory.resolve("rules.jar"), null, "pkg/D.refaster", "pkg/E.class");
+
+    ImmutableSortedMap<String, URL> directoryResources =
+        ClassPathEntries.findResources(classes, ".refaster");
+    assertThat(directoryResources).containsOnlyKeys("pkg/B.refaster", "pkg/sub/A.refaster");
+    assertThat(
+            Resources.toString(requireNonNull(directoryResources.get("pkg/sub/A.refaster")), UTF_8))
+        .isEqualTo("a");
+
+    ImmutableSortedMap<String, URL> jarResources = ClassPathEntries.findResources(jar, ".refaster");
+    assertThat(jarResources).containsOnlyKeys("pkg/D.refaster");
+    URL jarResource = requireNonNull(jarResources.get("pkg/D.refaster"));
+    assertThat(Resources.toString(jarResource, UTF_8)).isEqualTo("pkg/D.refaster");
+    assertThat(ClassPathEntries.getEntry(jarResource, "pkg/D.refaster")).hasValue(jar);
+
+    assertThat(ClassPathEntries.findResources(directory.resolve("missing"), ".refaster")).isEmpty();
+  }
+
+  @Test
+  void getEntry(@TempDir Path directory) throws IOException {
+    Path classes = Files.createDirectory(directory.resolve("classes"));
+
+    assertThat(
+            ClassPathEntries.getEntry(
+                classes.resolve("pkg/A.refaster").toUri().toURL(), "pkg/A.refaster"))
+        .hasValue(classes);
+    assertThat(
+            ClassPathEntries.getEntry(
+                new URL("https://example.com/pkg/A.refaster"), "pkg/A.refaster"))
+        .isEmpty();
+  }
+
+  @CanIgnoreReturnValue
+  private static Path writeJar(Path file, @Nullable String classPath, String... entries)
+      throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+
+    try (OutputStream out = Files.newOutputStream(file);
+        JarOutputStream jar = new JarOutputStream(out, manifest)) {
+      for (String entry : entries) {
+        jar.putNextEntry(new JarEntry(entry));
+        jar.write(entry.getBytes(UTF_8));
+        jar.closeEntry();
+      }
+    }
+    return file;
+  }
+}
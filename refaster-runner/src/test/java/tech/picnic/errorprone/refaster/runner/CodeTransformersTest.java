@@ -1,8 +1,23 @@
 package tech.picnic.errorprone.refaster.runner;
 
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteSource;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.picnic.errorprone.refaster.RefasterRuleArchive;
+import tech.picnic.errorprone.refaster.RefasterRuleIndex;
 
 final class CodeTransformersTest {
   /**
@@ -16,7 +31,109 @@ final class CodeTransformersTest {
             "FooRules$StringOfSizeZeroRule",
             "FooRules$StringOfSizeZeroVerboseRule",
             "FooRules$StringOfSizeOneRule",
+            "FooRules$StringOfSizeFourRule",
+            "FooRules$StringCommonPrefixWithSelfRule",
             "FooRules$ExtraGrouping$StringOfSizeTwoRule",
             "FooRules$ExtraGrouping$StringOfSizeThreeRule");
   }
+
+  /**
+   * Verifies that {@link CodeTransformers#getAllRules()} lists the rules compiled from {@link
+   * FooRules}, including the identifiers, types, severity and documentation status recorded in the
+   * rule index.
+   */
+  @Test
+  void getAllRules() {
+    assertThat(CodeTransformers.getAllRules())
+        .hasSize(7)
+        .filteredOn(rule -> rule.name().equals("FooRules$StringOfSizeFourRule"))
+        .singleElement()
+        .satisfies(
+            rule ->
+                assertThat(rule.requiredIdentifiers())
+                    .containsExactlyInAnyOrder(
+                        ImmutableSet.of("length", "toCharArray"),
+                        ImmutableSet.of("chars", "count")),
+            rule -> assertThat(rule.requiredTypes()).containsExactly(ImmutableSet.of()),
+            rule -> assertThat(rule.severity()).isEqualTo(SUGGESTION),
+            rule -> assertThat(rule.hasOnlineDocumentation()).isFalse(),
+            rule -> assertThat(rule.codeTransformer()).isPresent());
+    assertThat(CodeTransformers.getAllRules())
+        .filteredOn(rule -> rule.name().equals("FooRules$ExtraGrouping$StringOfSizeTwoRule"))
+        .singleElement()
+        .satisfies(
+            rule -> assertThat(rule.severity()).isEqualTo(ERROR),
+            rule -> assertThat(rule.hasOnlineDocumentation()).isTrue());
+    assertThat(CodeTransformers.getAllRules())
+        .filteredOn(rule -> rule.name().equals("FooRules$StringCommonPrefixWithSelfRule"))
+        .singleElement()
+        .satisfies(
+            rule ->
+                assertThat(rule.requiredTypes())
+                    .containsExactly(ImmutableSet.of("com.google.common.base.Strings")));
+  }
+
+  /**
+   * Verifies that {@link CodeTransformers#loadAllRules(ClassLoader)} combines the rules listed by a
+   * rule index with the rules found in a classpath entry without such an index, ignoring the
+   * latter's copies of indexed rules. Classpath entries with an index are not scanned.
+   */
+  @SuppressWarnings("BanClassLoader" /* The class loader only loads trusted test resources. */)
+  @Test
+  void loadAllRulesWithIndexedAndUnindexedClassPathEntries(@TempDir Path directory)
+      throws IOException {
+    Path indexed = directory.resolve("indexed");
+    copyResource(RefasterRuleIndex.RESOURCE_NAME, indexed);
+    copyResource(RefasterRuleArchive.RESOURCE_NAME, indexed);
+    ByteSource content = getRule("FooRules$StringOfSizeZeroRule").content();
+    write(content, indexed.resolve("com/example/UnlistedRules$UnlistedRule.refaster"));
+
+    Path unindexed = directory.resolve("unindexed");
+    write(content, unindexed.resolve("com/example/BarRules$BarRule.refaster"));
+    write(
+        content,
+        unindexed.resolve(
+            "tech/picnic/errorprone/refaster/runner/FooRules$StringOfSizeOneRule.refaster"));
+
+    try (URLClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {indexed.toUri().toURL(), unindexed.toUri().toURL()},
+            ClassLoader.getPlatformClassLoader())) {
+      ImmutableList<RefasterRuleResource> rules = CodeTransformers.loadAllRules(classLoader);
+
+      assertThat(rules)
+          .extracting(RefasterRuleResource::name)
+          .containsExactlyInAnyOrder(
+              "FooRules$StringOfSizeZeroRule",
+              "FooRules$StringOfSizeZeroVerboseRule",
+              "FooRules$StringOfSizeOneRule",
+              "FooRules$StringOfSizeFourRule",
+              "FooRules$StringCommonPrefixWithSelfRule",
+              "FooRules$ExtraGrouping$StringOfSizeTwoRule",
+              "FooRules$ExtraGrouping$StringOfSizeThreeRule",
+              "BarRules$BarRule");
+      assertThat(rules)
+          .filteredOn(rule -> rule.name().equals("BarRules$BarRule"))
+          .singleElement()
+          .satisfies(rule -> assertThat(rule.codeTransformer()).isPresent());
+    }
+  }
+
+  private static RefasterRuleResource getRule(String name) {
+    return CodeTransformers.getAllRules().stream()
+        .filter(rule -> rule.name().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static void copyResource(String resourceName, Path classPathEntry) throws IOException {
+    write(
+        Resources.asByteSource(Resources.getResource(resourceName)),
+        classPathEntry.resolve(resourceName));
+  }
+
+  private static void write(ByteSource content, Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    content.copyTo(MoreFiles.asByteSink(file));
+  }
 }
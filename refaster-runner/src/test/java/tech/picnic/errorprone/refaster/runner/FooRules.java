@@ -4,6 +4,8 @@ import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 
+import com.google.common.base.Strings;
+import com.google.errorprone.refaster.Refaster;
 import com.google.errorprone.refaster.annotation.AfterTemplate;
 import com.google.errorprone.refaster.annotation.BeforeTemplate;
 import tech.picnic.errorprone.refaster.annotation.Description;
@@ -59,6 +61,34 @@ final class FooRules {
     }
   }
 
+  /** A simple rule for testing purposes, matching any of several expressions. */
+  static final class StringOfSizeFourRule {
+    @BeforeTemplate
+    boolean before(String string) {
+      return Refaster.anyOf(string.toCharArray().length == 4, string.chars().count() == 4);
+    }
+
+    @AfterTemplate
+    boolean after(String string) {
+      return string.length() == 4;
+    }
+  }
+
+  /**
+   * A simple rule for testing purposes, referencing a type that may be absent from the classpath.
+   */
+  static final class StringCommonPrefixWithSelfRule {
+    @BeforeTemplate
+    String before(String string) {
+      return Strings.commonPrefix(string, string);
+    }
+
+    @AfterTemplate
+    String after(String string) {
+      return string;
+    }
+  }
+
   /** A nested class with annotations that are inherited by the Refaster rules contained in it. */
   @Description("A custom subgroup description")
   @OnlineDocumentation("https://example.com/rule/${topLevelClassName}#${nestedClassName}")
@@ -0,0 +1,65 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+final class IntervalSetTest {
+  private static Stream<Arguments> intersectsTestCases() {
+    /* { start, end, expected } */
+    return Stream.of(
+        arguments(0, 2, false),
+        arguments(0, 3, true),
+        arguments(2, 3, true),
+        arguments(4, 5, true),
+        arguments(5, 8, false),
+        arguments(8, 10, true),
+        arguments(12, 13, true),
+        arguments(13, 14, true),
+        arguments(14, 20, false),
+        arguments(0, 20, true));
+  }
+
+  @MethodSource("intersectsTestCases")
+  @ParameterizedTest
+  void intersects(int start, int end, boolean expected) {
+    /* The resulting set spans `[2, 5)` and `[8, 14)`. */
+    IntervalSet intervals = new IntervalSet();
+    intervals.add(10, 14);
+    intervals.add(2, 4);
+    intervals.add(8, 10);
+    intervals.add(3, 5);
+    intervals.add(11, 12);
+
+    assertThat(intervals.intersects(start, end)).isEqualTo(expected);
+  }
+
+  @Test
+  void addGrowsBeyondInitialCapacity() {
+    IntervalSet intervals = new IntervalSet();
+    for (int i = 100; i > 0; i--) {
+      intervals.add(2 * i, 2 * i + 1);
+    }
+
+    assertThat(intervals.intersects(1, 2)).isFalse();
+    assertThat(intervals.intersects(2, 3)).isTrue();
+    assertThat(intervals.intersects(101, 102)).isFalse();
+    assertThat(intervals.intersects(200, 201)).isTrue();
+    assertThat(intervals.intersects(201, 202)).isFalse();
+  }
+
+  @Test
+  void emptyInterval() {
+    IntervalSet intervals = new IntervalSet();
+
+    assertThatThrownBy(() -> intervals.intersects(1, 1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Interval [1, 1) is empty");
+  }
+}
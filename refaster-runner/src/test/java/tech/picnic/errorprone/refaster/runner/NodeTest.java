@@ -0,0 +1,75 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+final class NodeTest {
+  private static final ImmutableMap<String, ImmutableSet<ImmutableSet<String>>> PATHS_BY_VALUE =
+      ImmutableMap.of(
+          "always",
+          ImmutableSet.of(ImmutableSet.of()),
+          "never",
+          ImmutableSet.of(),
+          "a",
+          ImmutableSet.of(ImmutableSet.of("a")),
+          "a-and-b",
+          ImmutableSet.of(ImmutableSet.of("b", "a")),
+          "a-or-c",
+          ImmutableSet.of(ImmutableSet.of("a"), ImmutableSet.of("c")),
+          "b-and-c-or-d",
+          ImmutableSet.of(ImmutableSet.of("c", "b"), ImmutableSet.of("d")));
+
+  private static Stream<Arguments> collectReachableValuesTestCases() {
+    /* { candidateEdges, expected } */
+    return Stream.of(
+        arguments(ImmutableSet.of(), ImmutableList.of("always")),
+        arguments(ImmutableSet.of("x"), ImmutableList.of("always")),
+        arguments(ImmutableSet.of("a"), ImmutableList.of("always", "a", "a-or-c")),
+        arguments(ImmutableSet.of("b"), ImmutableList.of("always")),
+        arguments(ImmutableSet.of("a", "b"), ImmutableList.of("always", "a", "a-and-b", "a-or-c")),
+        arguments(ImmutableSet.of("b", "c"), ImmutableList.of("always", "a-or-c", "b-and-c-or-d")),
+        arguments(ImmutableSet.of("d", "x"), ImmutableList.of("always", "b-and-c-or-d")),
+        arguments(
+            ImmutableSet.of("a", "b", "c", "d"),
+            ImmutableList.of(
+                "always", "a", "a-and-b", "a-or-c", "a-or-c", "b-and-c-or-d", "b-and-c-or-d")));
+  }
+
+  @MethodSource("collectReachableValuesTestCases")
+  @ParameterizedTest
+  void collectReachableValues(ImmutableSet<String> candidateEdges, ImmutableList<String> expected) {
+    Node<String> tree = Node.create(PATHS_BY_VALUE.keySet(), PATHS_BY_VALUE::get);
+
+    List<String> values = new ArrayList<>();
+    tree.collectReachableValues(candidateEdges, values::add);
+
+    assertThat(values).containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  @Test
+  void createSharesCommonPrefixes() {
+    Node<String> tree =
+        Node.create(
+            ImmutableList.of("x", "y"),
+            v ->
+                v.equals("x")
+                    ? ImmutableSet.of(ImmutableSet.of("b", "a"))
+                    : ImmutableSet.of(ImmutableSet.of("a", "c")));
+
+    assertThat(tree.values()).isEmpty();
+    assertThat(tree.children())
+        .containsOnlyKeys("a")
+        .hasEntrySatisfying("a", child -> assertThat(child.children()).containsOnlyKeys("b", "c"));
+  }
+}
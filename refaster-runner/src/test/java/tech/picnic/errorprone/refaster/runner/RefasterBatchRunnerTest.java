@@ -0,0 +1,119 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class RefasterBatchRunnerTest {
+  @Test
+  void partition() {
+    Path a = Path.of("A.java");
+    Path b = Path.of("B.java");
+    Path c = Path.of("C.java");
+    Path d = Path.of("D.java");
+
+    assertThat(RefasterBatchRunner.partition(ImmutableMap.of(a, 5L, b, 3L, c, 2L, d, 1L), 2))
+        .containsExactly(ImmutableSet.of(a, d), ImmutableSet.of(b, c));
+    assertThat(RefasterBatchRunner.partition(ImmutableMap.of(a, 5L, b, 3L), 4))
+        .containsExactly(ImmutableSet.of(a), ImmutableSet.of(b));
+    assertThat(RefasterBatchRunner.partition(ImmutableMap.of(), 4))
+        .containsExactly(ImmutableSet.of());
+  }
+
+  @Test
+  void mainInPlace(@TempDir Path sourceRoot) throws IOException, InterruptedException {
+    ImmutableList<Path> sourceFiles = writeSources(sourceRoot);
+
+    RefasterBatchRunner.main(
+        "--source-root=" + sourceRoot,
+        "--threads=2",
+        "-classpath",
+        System.getProperty("java.class.path"));
+
+    assertThat(sourceFiles.get(0))
+        .content(UTF_8)
+        .isEqualTo(
+            lines(
+                "package pkg;",
+                "",
+                "public class A {",
+                "  public static boolean m(String s) {",
+                "    return s.isEmpty();",
+                "  }",
+                "}"));
+    assertThat(sourceFiles.get(1))
+        .content(UTF_8)
+        .isEqualTo(
+            lines(
+                "package pkg;",
+                "",
+                "class B {",
+                "  boolean m(String s) {",
+                "    return A.m(s) || s.length() == 1;",
+                "  }",
+                "}"));
+  }
+
+  @Test
+  void mainWithPatch(@TempDir Path tempDir) throws IOException, InterruptedException {
+    Path sourceRoot = tempDir.resolve("src");
+    Path patch = tempDir.resolve("changes.patch");
+    ImmutableList<Path> sourceFiles = writeSources(sourceRoot);
+    String originalSource = Files.readString(sourceFiles.get(0), UTF_8);
+
+    RefasterBatchRunner.main(
+        "--source-root=" + sourceRoot,
+        "--patch=" + patch,
+        "-XepOpt:Refaster:NamePattern=.*\\$StringOfSizeZeroRule",
+        "-classpath",
+        System.getProperty("java.class.path"));
+
+    assertThat(sourceFiles.get(0)).content(UTF_8).isEqualTo(originalSource);
+    assertThat(patch)
+        .content(UTF_8)
+        .contains(
+            "src/pkg/A.java",
+            "-    return s.toCharArray().length == 0;",
+            "+    return s.isEmpty();")
+        .doesNotContain("B.java");
+  }
+
+  private static ImmutableList<Path> writeSources(Path sourceRoot) throws IOException {
+    Path packageDirectory = Files.createDirectories(sourceRoot.resolve("pkg"));
+    return ImmutableList.of(
+        Files.writeString(
+            packageDirectory.resolve("A.java"),
+            lines(
+                "package pkg;",
+                "",
+                "public class A {",
+                "  public static boolean m(String s) {",
+                "    return s.toCharArray().length == 0;",
+                "  }",
+                "}"),
+            UTF_8),
+        Files.writeString(
+            packageDirectory.resolve("B.java"),
+            lines(
+                "package pkg;",
+                "",
+                "class B {",
+                "  boolean m(String s) {",
+                "    return A.m(s) || s.toCharArray().length == 1;",
+                "  }",
+                "}"),
+            UTF_8));
+  }
+
+  private static String lines(String... lines) {
+    return String.join("\n", lines) + '\n';
+  }
+}
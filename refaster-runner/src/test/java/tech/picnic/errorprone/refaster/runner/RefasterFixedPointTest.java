@@ -0,0 +1,138 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.ErrorProneOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class RefasterFixedPointTest {
+  private static final ImmutableList<String> JAVAC_OPTIONS =
+      ImmutableList.of("-classpath", System.getProperty("java.class.path"));
+
+  private static final String[] NESTED_MATCHES = {
+    "import com.google.common.base.Strings;",
+    "",
+    "class A {",
+    "  static boolean m(String s) {",
+    "    return Strings.commonPrefix(String.valueOf(s.toCharArray().length == 0), String.valueOf(s.toCharArray().length == 0)).isEmpty();",
+    "  }",
+    "}"
+  };
+
+  @Test
+  void apply(@TempDir Path tempDir) throws IOException {
+    Path nested = writeSource(tempDir, "A.java", NESTED_MATCHES);
+    Path unmatched =
+        writeSource(
+            tempDir,
+            "B.java",
+            "class B {",
+            "  boolean m(String s) {",
+            "    return A.m(s);",
+            "  }",
+            "}");
+
+    RefasterFixedPoint.Result result =
+        RefasterFixedPoint.create(ErrorProneOptions.empty(), JAVAC_OPTIONS, 10)
+            .apply(ImmutableSet.of(nested, unmatched));
+
+    assertThat(result.changes())
+        .isEqualTo(
+            ImmutableMap.of(
+                nested,
+                lines(
+                    "import com.google.common.base.Strings;",
+                    "",
+                    "class A {",
+                    "  static boolean m(String s) {",
+                    "    return String.valueOf(s.isEmpty()).isEmpty();",
+                    "  }",
+                    "}")));
+    assertThat(result.iterations()).isEqualTo(3);
+    assertThat(result.converged()).isTrue();
+    assertThat(nested).content(UTF_8).isEqualTo(lines(NESTED_MATCHES));
+  }
+
+  @Test
+  void applyWithIterationLimit(@TempDir Path tempDir) throws IOException {
+    Path nested = writeSource(tempDir, "A.java", NESTED_MATCHES);
+
+    RefasterFixedPoint.Result result =
+        RefasterFixedPoint.create(ErrorProneOptions.empty(), JAVAC_OPTIONS, 1)
+            .apply(ImmutableSet.of(nested));
+
+    assertThat(result.changes())
+        .containsValue(
+            lines(
+                "import com.google.common.base.Strings;",
+                "",
+                "class A {",
+                "  static boolean m(String s) {",
+                "    return String.valueOf(s.toCharArray().length == 0).isEmpty();",
+                "  }",
+                "}"));
+    assertThat(result.iterations()).isEqualTo(1);
+    assertThat(result.converged()).isFalse();
+  }
+
+  @Test
+  void applySkipsErroneousSources(@TempDir Path tempDir) throws IOException {
+    Path erroneous =
+        writeSource(
+            tempDir,
+            "A.java",
+            "class A {",
+            "  boolean m(String s) {",
+            "    return s.toCharArray().length == 0 && undefined();",
+            "  }",
+            "}");
+
+    RefasterFixedPoint.Result result =
+        RefasterFixedPoint.create(ErrorProneOptions.empty(), JAVAC_OPTIONS, 10)
+            .apply(ImmutableSet.of(erroneous));
+
+    assertThat(result.changes()).isEmpty();
+    assertThat(result.converged()).isTrue();
+  }
+
+  @Test
+  void main(@TempDir Path tempDir) throws IOException {
+    Path source = writeSource(tempDir, "A.java", NESTED_MATCHES);
+
+    RefasterFixedPoint.main(
+        "--max-iterations=5",
+        "-XepOpt:Refaster:NamePattern=.*\\$StringCommonPrefixWithSelfRule",
+        "-classpath",
+        System.getProperty("java.class.path"),
+        source.toString());
+
+    assertThat(source)
+        .content(UTF_8)
+        .isEqualTo(
+            lines(
+                "import com.google.common.base.Strings;",
+                "",
+                "class A {",
+                "  static boolean m(String s) {",
+                "    return String.valueOf(s.toCharArray().length == 0).isEmpty();",
+                "  }",
+                "}"));
+  }
+
+  private static Path writeSource(Path directory, String fileName, String... lines)
+      throws IOException {
+    return Files.writeString(directory.resolve(fileName), lines(lines), UTF_8);
+  }
+
+  private static String lines(String... lines) {
+    return String.join("\n", lines) + '\n';
+  }
+}
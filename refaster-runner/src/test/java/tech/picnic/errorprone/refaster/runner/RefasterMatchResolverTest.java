@@ -0,0 +1,131 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.JCDiagnostic.SimpleDiagnosticPosition;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class RefasterMatchResolverTest {
+  /** An {@link EndPosTable} that suffices for fixes that replace explicit source positions. */
+  private static final EndPosTable NO_END_POSITIONS =
+      new EndPosTable() {
+        @Override
+        public int getEndPos(JCTree tree) {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void storeEnd(JCTree tree, int endPos) {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int replaceTree(JCTree oldTree, JCTree newTree) {
+          throw new UnsupportedOperationException();
+        }
+      };
+
+  @Test
+  void disjointMatches() {
+    List<String> discarded = new ArrayList<>();
+    RefasterMatchResolver resolver = new RefasterMatchResolver(NO_END_POSITIONS, discarded::add);
+    Description first = match(0, 4, "a");
+    Description second = match(4, 6, "bc");
+    Description insertion = match(2, 2, "d");
+
+    resolver.add(first, "first");
+    resolver.add(second, "second");
+    resolver.add(insertion, "insertion");
+
+    assertThat(resolver.getReceivedMatchCount()).isEqualTo(3);
+    assertThat(resolver.selectMatches()).containsExactly(first, second, insertion);
+    assertThat(discarded).isEmpty();
+  }
+
+  @Test
+  void prefersLargestReplacement() {
+    List<String> discarded = new ArrayList<>();
+    RefasterMatchResolver resolver = new RefasterMatchResolver(NO_END_POSITIONS, discarded::add);
+    Description innermost = match(4, 6, "a");
+    Description inner = match(2, 8, "b");
+    Description sibling = match(10, 12, "c");
+    Description outer = match(0, 10, "d");
+
+    resolver.add(innermost, "innermost");
+    resolver.add(inner, "inner");
+    resolver.add(sibling, "sibling");
+    resolver.add(outer, "outer");
+    resolver.add(innermost, "innermost");
+
+    assertThat(resolver.getReceivedMatchCount()).isEqualTo(5);
+    assertThat(resolver.selectMatches()).containsExactly(outer, sibling);
+    assertThat(discarded).containsExactly("inner", "innermost", "innermost");
+  }
+
+  @Test
+  void prefersShortestInsertionThenFirstReceived() {
+    List<String> discarded = new ArrayList<>();
+    RefasterMatchResolver resolver = new RefasterMatchResolver(NO_END_POSITIONS, discarded::add);
+    Description verbose = match(0, 4, "abc");
+    Description concise = match(0, 4, "ab");
+    Description alternative = match(0, 4, "cd");
+
+    resolver.add(verbose, "verbose");
+    resolver.add(concise, "concise");
+    resolver.add(alternative, "alternative");
+
+    assertThat(resolver.selectMatches()).containsExactly(concise);
+    assertThat(discarded).containsExactly("alternative", "verbose");
+  }
+
+  @Test
+  void conflictWithAnyReplacementDiscardsMatch() {
+    List<String> discarded = new ArrayList<>();
+    RefasterMatchResolver resolver = new RefasterMatchResolver(NO_END_POSITIONS, discarded::add);
+    Description split =
+        description(SuggestedFix.builder().replace(0, 2, "").replace(8, 10, "").build());
+    Description overlapping = match(9, 11, "");
+    Description larger = match(1, 6, "");
+
+    resolver.add(split, "split");
+    resolver.add(overlapping, "overlapping");
+    resolver.add(larger, "larger");
+
+    assertThat(resolver.selectMatches()).containsExactly(larger, overlapping);
+    assertThat(discarded).containsExactly("split");
+  }
+
+  @Test
+  void discardedMatchDoesNotBlockOtherMatches() {
+    List<String> discarded = new ArrayList<>();
+    RefasterMatchResolver resolver = new RefasterMatchResolver(NO_END_POSITIONS, discarded::add);
+    Description inner = match(10, 11, "");
+    Description split =
+        description(SuggestedFix.builder().replace(0, 2, "").replace(10, 12, "").build());
+    Description outer = match(0, 5, "");
+
+    resolver.add(inner, "inner");
+    resolver.add(split, "split");
+    resolver.add(outer, "outer");
+
+    assertThat(resolver.selectMatches()).containsExactly(outer, inner);
+    assertThat(discarded).containsExactly("split");
+  }
+
+  private static Description match(int start, int end, String replacement) {
+    return description(SuggestedFix.replace(start, end, replacement));
+  }
+
+  @SuppressWarnings("RestrictedApi" /* We create a heavily customized `Description` here. */)
+  private static Description description(SuggestedFix fix) {
+    return Description.builder(new SimpleDiagnosticPosition(0), "Rule", null, "message")
+        .addFix(fix)
+        .build();
+  }
+}
@@ -0,0 +1,114 @@
+package tech.picnic.errorprone.refaster.runner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.OS.WINDOWS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.io.TempDir;
+
+final class RefasterNoMatchCacheTest {
+  private static final HashCode FINGERPRINT = Hashing.sha256().hashInt(0);
+
+  @Test
+  void addAndContains(@TempDir Path directory) {
+    RefasterNoMatchCache cache = new RefasterNoMatchCache(directory, 10, FINGERPRINT);
+
+    assertThat(cache.contains(key(1))).isFalse();
+    cache.add(key(1));
+    cache.add(key(1));
+    assertThat(cache.contains(key(1))).isTrue();
+    assertThat(cache.contains(key(2))).isFalse();
+  }
+
+  @Test
+  void evictLeastRecentlyUsed(@TempDir Path directory) throws IOException {
+    RefasterNoMatchCache cache = new RefasterNoMatchCache(directory, 2, FINGERPRINT);
+    for (int i = 1; i <= 4; i++) {
+      cache.add(key(i));
+    }
+    setLastUsed(directory, key(1), 4);
+    setLastUsed(directory, key(2), 1);
+    setLastUsed(directory, key(3), 3);
+    setLastUsed(directory, key(4), 2);
+
+    cache.evict();
+
+    assertThat(cache.contains(key(1))).isTrue();
+    assertThat(cache.contains(key(2))).isFalse();
+    assertThat(cache.contains(key(3))).isTrue();
+    assertThat(cache.contains(key(4))).isFalse();
+  }
+
+  @Test
+  void evictWithoutModification(@TempDir Path directory) {
+    new RefasterNoMatchCache(directory, 1, FINGERPRINT).add(key(1));
+    new RefasterNoMatchCache(directory, 1, FINGERPRINT).add(key(2));
+
+    RefasterNoMatchCache cache = new RefasterNoMatchCache(directory, 1, FINGERPRINT);
+    cache.evict();
+
+    assertThat(cache.contains(key(1))).isTrue();
+    assertThat(cache.contains(key(2))).isTrue();
+  }
+
+  @DisabledOnOs(WINDOWS)
+  @Test
+  void readOnlyDirectory(@TempDir Path directory) {
+    new RefasterNoMatchCache(directory, 2, FINGERPRINT).add(key(1));
+    assertThat(directory.toFile().setWritable(false))
+        .describedAs("Failed to make test directory unwritable")
+        .isTrue();
+
+    RefasterNoMatchCache cache = new RefasterNoMatchCache(directory, 2, FINGERPRINT);
+    cache.add(key(2));
+    cache.evict();
+
+    assertThat(cache.contains(key(1))).isTrue();
+  }
+
+  @Test
+  void hashClassPath(@TempDir Path directory) throws IOException {
+    Path jar = Files.writeString(directory.resolve("library.jar"), "jar", UTF_8);
+    Path classes = Files.createDirectories(directory.resolve("classes/pkg"));
+    Path classFile = Files.writeString(classes.resolve("A.class"), "class", UTF_8);
+    Path output = Files.createDirectories(directory.resolve("output"));
+    ImmutableList<Path> classPath = ImmutableList.of(jar, directory.resolve("classes"), output);
+    ImmutableSet<Path> excluded = ImmutableSet.of(output.toAbsolutePath());
+    HashCode initial = RefasterNoMatchCache.hashClassPath(classPath, excluded);
+
+    Files.writeString(output.resolve("B.class"), "ignored", UTF_8);
+    assertThat(RefasterNoMatchCache.hashClassPath(classPath, excluded)).isEqualTo(initial);
+
+    Files.writeString(classFile, "modified class", UTF_8);
+    HashCode modifiedClass = RefasterNoMatchCache.hashClassPath(classPath, excluded);
+    assertThat(modifiedClass).isNotEqualTo(initial);
+
+    Files.writeString(classes.resolve("C.class"), "added class", UTF_8);
+    HashCode addedClass = RefasterNoMatchCache.hashClassPath(classPath, excluded);
+    assertThat(addedClass).isNotEqualTo(modifiedClass);
+
+    Files.writeString(jar, "modified jar", UTF_8);
+    assertThat(RefasterNoMatchCache.hashClassPath(classPath, excluded)).isNotEqualTo(addedClass);
+  }
+
+  private static HashCode key(int value) {
+    return Hashing.sha256().hashInt(value);
+  }
+
+  private static void setLastUsed(Path directory, HashCode key, long millis) throws IOException {
+    String name = key.toString();
+    Files.setLastModifiedTime(
+        directory.resolve(name.substring(0, 2)).resolve(name.substring(2)),
+        FileTime.fromMillis(millis));
+  }
+}
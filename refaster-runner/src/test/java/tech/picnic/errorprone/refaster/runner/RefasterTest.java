@@ -4,23 +4,28 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Comparator.comparingInt;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugCheckerInfo;
 import com.google.errorprone.BugCheckerRefactoringTestHelper;
 import com.google.errorprone.BugCheckerRefactoringTestHelper.TestMode;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.CompilationTestHelper;
+import java.nio.file.Path;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 final class RefasterTest {
   private static final Pattern DIAGNOSTIC_STRING_OF_SIZE_ZERO =
@@ -254,4 +259,215 @@ final class RefasterTest {
             "}")
         .doTest(TestMode.TEXT_MATCH);
   }
+
+  private static Stream<Arguments> metadataRestrictedReplacementTestCases() {
+    /* { args, b1, b2, b3, b4 } */
+    return Stream.of(
+        arguments(
+            ImmutableList.of("-XepOpt:Refaster:MinimumSeverity=WARNING"),
+            "\"foo\".toCharArray().length == 0",
+            "\"bar\".length() == 1",
+            "\"baz\".length() == 2",
+            "\"qux\".toCharArray().length == 3"),
+        arguments(
+            ImmutableList.of("-XepOpt:Refaster:RequireOnlineDocumentation=true"),
+            "\"foo\".toCharArray().length == 0",
+            "\"bar\".length() == 1",
+            "\"baz\".length() == 2",
+            "\"qux\".length() == 3"),
+        arguments(
+            ImmutableList.of(
+                "-XepOpt:Refaster:Collections=FooRules", "-XepOpt:Refaster:MinimumSeverity=ERROR"),
+            "\"foo\".toCharArray().length == 0",
+            "\"bar\".toCharArray().length == 1",
+            "\"baz\".length() == 2",
+            "\"qux\".toCharArray().length == 3"),
+        arguments(
+            ImmutableList.of("-XepOpt:Refaster:Collections=BarRules"),
+            "\"foo\".toCharArray().length == 0",
+            "\"bar\".toCharArray().length == 1",
+            "\"baz\".toCharArray().length == 2",
+            "\"qux\".toCharArray().length == 3"));
+  }
+
+  @MethodSource("metadataRestrictedReplacementTestCases")
+  @ParameterizedTest
+  void metadataRestrictedReplacement(
+      ImmutableList<String> args, String b1, String b2, String b3, String b4) {
+    BugCheckerRefactoringTestHelper.newInstance(Refaster.class, getClass())
+        .setArgs(args)
+        .addInputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b1 = \"foo\".toCharArray().length == 0;",
+            "    boolean b2 = \"bar\".toCharArray().length == 1;",
+            "    boolean b3 = \"baz\".toCharArray().length == 2;",
+            "    boolean b4 = \"qux\".toCharArray().length == 3;",
+            "  }",
+            "}")
+        .addOutputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b1 = " + b1 + ';',
+            "    boolean b2 = " + b2 + ';',
+            "    boolean b3 = " + b3 + ';',
+            "    boolean b4 = " + b4 + ';',
+            "  }",
+            "}")
+        .doTest(TestMode.TEXT_MATCH);
+  }
+
+  @Test
+  void replacementOfAnyOfAlternatives() {
+    BugCheckerRefactoringTestHelper.newInstance(Refaster.class, getClass())
+        .addInputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b1 = \"quux\".toCharArray().length == 4;",
+            "    boolean b2 = \"corge\".chars().count() == 4;",
+            "  }",
+            "}")
+        .addOutputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b1 = \"quux\".length() == 4;",
+            "    boolean b2 = \"corge\".length() == 4;",
+            "  }",
+            "}")
+        .doTest(TestMode.TEXT_MATCH);
+  }
+
+  @Test
+  void replacementOfSingleAnyOfAlternative() {
+    BugCheckerRefactoringTestHelper.newInstance(Refaster.class, getClass())
+        .addInputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b = \"corge\".chars().count() == 4;",
+            "  }",
+            "}")
+        .addOutputLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    boolean b = \"corge\".length() == 4;",
+            "  }",
+            "}")
+        .doTest(TestMode.TEXT_MATCH);
+  }
+
+  @Test
+  void profileOutput(@TempDir Path tempDir) {
+    Path profile = tempDir.resolve("profile.json");
+
+    CompilationTestHelper.newInstance(Refaster.class, getClass())
+        .setArgs("-XepOpt:Refaster:ProfileOutput=" + profile)
+        .matchAllDiagnostics()
+        .addSourceLines(
+            "A.java",
+            "class A {",
+            "  void m() {",
+            "    // BUG: Diagnostic matches: StringOfSizeZero",
+            "    boolean b = \"foo\".toCharArray().length == 0;",
+            "  }",
+            "}")
+        .expectErrorMessage("StringOfSizeZero", DIAGNOSTIC_STRING_OF_SIZE_ZERO.asPredicate())
+        .doTest();
+
+    assertThat(profile)
+        .content(UTF_8)
+        .contains(
+            "{\"name\": \"FooRules$StringOfSizeZeroVerboseRule\", \"invocations\": 1, ",
+            "\"matches\": 1, \"discardedMatches\": 1}",
+            "{\"name\": \"FooRules\", \"invocations\": 6, ");
+  }
+
+  @Test
+  void noMatchCache(@TempDir Path tempDir) {
+    Path cacheDirectory = tempDir.resolve("cache");
+    Path firstProfile = tempDir.resolve("first-profile.json");
+    Path secondProfile = tempDir.resolve("second-profile.json");
+
+    compileUnmatchedCode(cacheDirectory, firstProfile);
+    compileUnmatchedCode(cacheDirectory, secondProfile);
+
+    assertThat(firstProfile)
+        .content(UTF_8)
+        .contains("{\"name\": \"FooRules\", \"invocations\": 6, ");
+    assertThat(secondProfile).content(UTF_8).contains("\"rules\": []");
+  }
+
+  @Test
+  void noMatchCacheIgnoresMatchedCode(@TempDir Path tempDir) {
+    Path cacheDirectory = tempDir.resolve("cache");
+
+    for (int i = 0; i < 2; i++) {
+      CompilationTestHelper.newInstance(Refaster.class, getClass())
+          .setArgs("-XepOpt:Refaster:CacheDirectory=" + cacheDirectory)
+          .matchAllDiagnostics()
+          .addSourceLines(
+              "A.java",
+              "class A {",
+              "  void m() {",
+              "    // BUG: Diagnostic matches: StringOfSizeZero",
+              "    boolean b = \"foo\".toCharArray().length == 0;",
+              "  }",
+              "}")
+          .expectErrorMessage("StringOfSizeZero", DIAGNOSTIC_STRING_OF_SIZE_ZERO.asPredicate())
+          .doTest();
+    }
+
+    assertThat(cacheDirectory).doesNotExist();
+  }
+
+  private void compileUnmatchedCode(Path cacheDirectory, Path profile) {
+    CompilationTestHelper.newInstance(Refaster.class, getClass())
+        .setArgs(
+            "-XepOpt:Refaster:CacheDirectory=" + cacheDirectory,
+            "-XepOpt:Refaster:ProfileOutput=" + profile)
+        .addSourceLines(
+            "A.java",
+            "class A {",
+            "  boolean m(String s) {",
+            "    return s.toCharArray().length == 5;",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void classpathAwareRuleSelection(boolean guavaOnClasspath, @TempDir Path tempDir) {
+    Path profile = tempDir.resolve("profile.json");
+
+    CompilationTestHelper helper =
+        CompilationTestHelper.newInstance(Refaster.class, getClass())
+            .setArgs("-XepOpt:Refaster:ProfileOutput=" + profile);
+    (guavaOnClasspath ? helper.withClasspath(Strings.class) : helper.withClasspath())
+        .addSourceLines(
+            "A.java",
+            "class A {",
+            "  String m(String s) {",
+            "    return commonPrefix(s, s);",
+            "  }",
+            "",
+            "  private static String commonPrefix(String a, String b) {",
+            "    return a;",
+            "  }",
+            "}")
+        .doTest();
+
+    if (guavaOnClasspath) {
+      assertThat(profile).content(UTF_8).contains("\"FooRules$StringCommonPrefixWithSelfRule\"");
+    } else {
+      assertThat(profile)
+          .content(UTF_8)
+          .doesNotContain("\"FooRules$StringCommonPrefixWithSelfRule\"");
+    }
+  }
 }
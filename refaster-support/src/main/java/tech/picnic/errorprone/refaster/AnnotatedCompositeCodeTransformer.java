@@ -24,6 +24,7 @@ import com.sun.tools.javac.util.Context;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import tech.picnic.errorprone.refaster.annotation.OnlineDocumentation;
@@ -46,7 +47,12 @@ public abstract class AnnotatedCompositeCodeTransformer implements CodeTransform
 
   abstract String packageName();
 
-  abstract ImmutableList<CodeTransformer> transformers();
+  /**
+   * Returns the {@link CodeTransformer}s to which this {@link CodeTransformer} delegates.
+   *
+   * @return The non-{@code null} list of delegate {@link CodeTransformer}s.
+   */
+  public abstract ImmutableList<CodeTransformer> transformers();
 
   @Override
   @SuppressWarnings("java:S3038" /* All AutoValue properties must be specified explicitly. */)
@@ -67,6 +73,36 @@ public abstract class AnnotatedCompositeCodeTransformer implements CodeTransform
     return new AutoValue_AnnotatedCompositeCodeTransformer(packageName, transformers, annotations);
   }
 
+  /**
+   * Returns the severity with which matches of this Refaster rule are reported by default.
+   *
+   * <p>The {@link Severity} annotation of the first delegate that declares one takes precedence
+   * over that of this {@link CompositeCodeTransformer}.
+   *
+   * @return The declared severity, or {@link SeverityLevel#SUGGESTION} if none is declared.
+   */
+  public final SeverityLevel getDefaultSeverity() {
+    return transformers().stream()
+        .map(transformer -> transformer.annotations().getInstance(Severity.class))
+        .filter(Objects::nonNull)
+        .findFirst()
+        .or(() -> getAnnotationValue(this, Severity.class))
+        .map(Severity::value)
+        .orElse(SUGGESTION);
+  }
+
+  /**
+   * Tells whether this Refaster rule or any of its delegates is annotated with {@link
+   * OnlineDocumentation}.
+   *
+   * @return Whether matches of this Refaster rule link to online documentation.
+   */
+  public final boolean hasOnlineDocumentation() {
+    return getAnnotationValue(this, OnlineDocumentation.class).isPresent()
+        || transformers().stream()
+            .anyMatch(t -> getAnnotationValue(t, OnlineDocumentation.class).isPresent());
+  }
+
   @Override
   public final void apply(TreePath path, Context context, DescriptionListener listener) {
     for (CodeTransformer transformer : transformers()) {
@@ -0,0 +1,157 @@
+package tech.picnic.errorprone.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.refaster.BlockTemplate;
+import com.google.errorprone.refaster.ExpressionTemplate;
+import com.google.errorprone.refaster.RefasterRule;
+import com.google.errorprone.refaster.StringName;
+import com.google.errorprone.refaster.Template;
+import com.google.errorprone.refaster.UAnyOf;
+import com.google.errorprone.refaster.UClassType;
+import com.google.errorprone.refaster.UExpression;
+import com.google.errorprone.refaster.UStatement;
+import com.google.errorprone.refaster.UStaticIdent;
+import com.google.errorprone.refaster.UType;
+import com.sun.source.tree.Tree;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Utility class that provides access to package-private members of Refaster's internal
+ * representation of compiled rules.
+ */
+// XXX: Drop this class once Error Prone exposes the relevant accessors publicly.
+final class RefasterIntrospection {
+  private static final Function<Object, Object> BEFORE_TEMPLATES =
+      getAccessor(RefasterRule.class, "beforeTemplates", ImmutableList.class);
+  private static final Function<Object, Object> EXPRESSION =
+      getAccessor(ExpressionTemplate.class, "expression", UExpression.class);
+  private static final Function<Object, Object> TEMPLATE_STATEMENTS =
+      getAccessor(BlockTemplate.class, "templateStatements", ImmutableList.class);
+  private static final Function<Object, Object> ANY_OF_EXPRESSIONS =
+      getAccessor(UAnyOf.class, "expressions", ImmutableList.class);
+  private static final Class<?> UMATCHES = getClass("com.google.errorprone.refaster.UMatches");
+  private static final Function<Object, Object> MATCHES_EXPRESSION =
+      getAccessor(UMATCHES, "expression", UExpression.class);
+  private static final Class<?> UOF_KIND = getClass("com.google.errorprone.refaster.UOfKind");
+  private static final Function<Object, Object> OF_KIND_EXPRESSION =
+      getAccessor(UOF_KIND, "expression", UExpression.class);
+  private static final Class<?> UREPEATED = getClass("com.google.errorprone.refaster.URepeated");
+  private static final Class<?> UCLASS_IDENT =
+      getClass("com.google.errorprone.refaster.UClassIdent");
+  private static final Function<Object, Object> CLASS_IDENT_TOP_LEVEL_CLASS =
+      getAccessor(UCLASS_IDENT, "getTopLevelClass", String.class);
+  private static final Function<Object, Object> STATIC_IDENT_CLASS_IDENT =
+      getAccessor(UStaticIdent.class, "classIdent", UCLASS_IDENT);
+  private static final Function<Object, Object> CLASS_TYPE_FULLY_QUALIFIED_CLASS =
+      getAccessor(UClassType.class, "fullyQualifiedClass", StringName.class);
+  private static final Function<Object, Object> CLASS_TYPE_TYPE_ARGUMENTS =
+      getAccessor(UClassType.class, "typeArguments", ImmutableList.class);
+
+  private RefasterIntrospection() {}
+
+  @SuppressWarnings("unchecked" /* Guaranteed by Refaster's internal API. */)
+  static ImmutableList<? extends Template<?>> getBeforeTemplates(RefasterRule<?, ?> refasterRule) {
+    return (ImmutableList<? extends Template<?>>) BEFORE_TEMPLATES.apply(refasterRule);
+  }
+
+  static UExpression getExpression(ExpressionTemplate template) {
+    return (UExpression) EXPRESSION.apply(template);
+  }
+
+  @SuppressWarnings("unchecked" /* Guaranteed by Refaster's internal API. */)
+  static ImmutableList<UStatement> getTemplateStatements(BlockTemplate template) {
+    return (ImmutableList<UStatement>) TEMPLATE_STATEMENTS.apply(template);
+  }
+
+  @SuppressWarnings("unchecked" /* Guaranteed by Refaster's internal API. */)
+  static ImmutableList<UExpression> getExpressions(UAnyOf tree) {
+    return (ImmutableList<UExpression>) ANY_OF_EXPRESSIONS.apply(tree);
+  }
+
+  /**
+   * Tells whether the given tree represents a parameter annotated with {@link
+   * com.google.errorprone.refaster.annotation.Matches @Matches} or {@link
+   * com.google.errorprone.refaster.annotation.NotMatches @NotMatches}.
+   */
+  static boolean isMatchesConstraint(Tree tree) {
+    return UMATCHES.isInstance(tree);
+  }
+
+  /**
+   * Tells whether the given tree represents a parameter annotated with {@link
+   * com.google.errorprone.refaster.annotation.Repeated @Repeated}.
+   */
+  static boolean isRepeated(Tree tree) {
+    return UREPEATED.isInstance(tree);
+  }
+
+  /**
+   * Returns the expression to which the given tree applies a {@code @Matches}, {@code @NotMatches}
+   * or {@code @OfKind} constraint, if any.
+   */
+  static Optional<UExpression> getConstrainedExpression(Tree tree) {
+    if (UMATCHES.isInstance(tree)) {
+      return Optional.of((UExpression) MATCHES_EXPRESSION.apply(tree));
+    }
+
+    return UOF_KIND.isInstance(tree)
+        ? Optional.of((UExpression) OF_KIND_EXPRESSION.apply(tree))
+        : Optional.empty();
+  }
+
+  /**
+   * Tells whether the given tree represents a reference to a class, and if so, returns the name of
+   * the referenced top-level class.
+   */
+  static Optional<String> getReferencedTopLevelClass(Tree tree) {
+    if (tree instanceof UStaticIdent staticIdent) {
+      return Optional.of(
+          (String) CLASS_IDENT_TOP_LEVEL_CLASS.apply(STATIC_IDENT_CLASS_IDENT.apply(staticIdent)));
+    }
+
+    return UCLASS_IDENT.isInstance(tree)
+        ? Optional.of((String) CLASS_IDENT_TOP_LEVEL_CLASS.apply(tree))
+        : Optional.empty();
+  }
+
+  static String getFullyQualifiedClass(UClassType type) {
+    return CLASS_TYPE_FULLY_QUALIFIED_CLASS.apply(type).toString();
+  }
+
+  @SuppressWarnings("unchecked" /* Guaranteed by Refaster's internal API. */)
+  static ImmutableList<UType> getTypeArguments(UClassType type) {
+    return (ImmutableList<UType>) CLASS_TYPE_TYPE_ARGUMENTS.apply(type);
+  }
+
+  private static Class<?> getClass(String className) {
+    try {
+      return Class.forName(className, /* initialize= */ false, UAnyOf.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(String.format("Cannot load class '%s'", className), e);
+    }
+  }
+
+  /**
+   * Returns a {@link Function} that invokes the specified parameterless, possibly non-public method
+   * on its argument.
+   */
+  @SuppressWarnings("unchecked" /* `MethodHandleProxies` returns an instance of the given type. */)
+  private static Function<Object, Object> getAccessor(
+      Class<?> clazz, String methodName, Class<?> returnType) {
+    try {
+      MethodHandle accessor =
+          MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+              .findVirtual(clazz, methodName, MethodType.methodType(returnType));
+      return MethodHandleProxies.asInterfaceInstance(
+          Function.class, accessor.asType(MethodType.methodType(Object.class, Object.class)));
+    } catch (IllegalAccessException | NoSuchMethodException e) {
+      throw new IllegalStateException(
+          String.format("Cannot access method '%s' of class '%s'", methodName, clazz.getName()), e);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package tech.picnic.errorprone.refaster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.io.ByteSource;
+import com.google.errorprone.annotations.Var;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Utility class for reading and writing an archive of compiled Refaster rules, as an alternative to
+ * storing each rule in a separate {@code .refaster} file.
+ *
+ * <p>Such an archive is stored as the {@value #RESOURCE_NAME} resource, next to the {@value
+ * RefasterRuleIndex#RESOURCE_NAME} resource describing its contents. It consists of a short header,
+ * followed by a table that maps each rule's resource name to the offset and length of its content,
+ * followed by the concatenated content of all rules, each in the format written by {@link
+ * RefasterRuleFormat}. Reading an archive only involves parsing its table; the content of each rule
+ * is exposed as a view of the original buffer, such that it need not be copied or decoded until
+ * actually requested.
+ */
+public final class RefasterRuleArchive {
+  /** The name of the classpath resource that holds a {@link RefasterRuleArchive}. */
+  public static final String RESOURCE_NAME = "META-INF/refaster/archive";
+
+  /** The ASCII encoding of the string {@code RFAR}. */
+  private static final int MAGIC = 0x52464152;
+
+  private static final int VERSION = 1;
+
+  private RefasterRuleArchive() {}
+
+  /**
+   * Writes an archive holding the given compiled Refaster rules.
+   *
+   * @param entries A mapping from resource names to the associated compiled Refaster rules.
+   * @param target The stream to which to write the archive; not closed by this method.
+   * @throws IOException If the archive could not be written.
+   */
+  public static void write(Map<String, ByteSource> entries, OutputStream target)
+      throws IOException {
+    ImmutableSortedMap<String, ByteSource> sortedEntries = ImmutableSortedMap.copyOf(entries);
+
+    DataOutputStream output = new DataOutputStream(target);
+    output.writeInt(MAGIC);
+    output.writeShort(VERSION);
+    output.writeInt(sortedEntries.size());
+    @Var int offset = 0;
+    for (Map.Entry<String, ByteSource> entry : sortedEntries.entrySet()) {
+      byte[] name = entry.getKey().getBytes(UTF_8);
+      int length = Math.toIntExact(entry.getValue().size());
+      output.writeShort(name.length);
+      output.write(name);
+      output.writeInt(offset);
+      output.writeInt(length);
+      offset = Math.addExact(offset, length);
+    }
+    for (ByteSource content : sortedEntries.values()) {
+      content.copyTo(output);
+    }
+    output.flush();
+  }
+
+  /**
+   * Reads an archive previously written by {@link #write(Map, OutputStream)}.
+   *
+   * <p>The returned {@link ByteSource}s are views of the given buffer, which must thus not be
+   * modified afterwards.
+   *
+   * @param archive The buffer holding the archive, e.g. a memory-mapped file.
+   * @return A mapping from resource names to the associated compiled Refaster rules, unless the
+   *     archive was written using an unsupported format.
+   * @throws IOException If the archive is malformed.
+   */
+  public static Optional<ImmutableMap<String, ByteSource>> read(ByteBuffer archive)
+      throws IOException {
+    ByteBuffer buffer = archive.duplicate();
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+        return Optional.empty();
+      }
+
+      int entryCount = buffer.getInt();
+      if (entryCount < 0 || entryCount > buffer.remaining()) {
+        throw new IOException("Malformed Refaster rule archive");
+      }
+
+      String[] names = new String[entryCount];
+      int[] offsets = new int[entryCount];
+      int[] lengths = new int[entryCount];
+      for (int i = 0; i < entryCount; i++) {
+        byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(name);
+        names[i] = new String(name, UTF_8);
+        offsets[i] = buffer.getInt();
+        lengths[i] = buffer.getInt();
+      }
+
+      ByteBuffer contents = buffer.slice().asReadOnlyBuffer();
+      ImmutableMap.Builder<String, ByteSource> entries =
+          ImmutableMap.builderWithExpectedSize(entryCount);
+      for (int i = 0; i < entryCount; i++) {
+        entries.put(names[i], new ByteBufferByteSource(contents.slice(offsets[i], lengths[i])));
+      }
+      return Optional.of(entries.buildOrThrow());
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Malformed Refaster rule archive", e);
+    }
+  }
+
+  /** A {@link ByteSource} that reads from a {@link ByteBuffer}, without copying its content. */
+  private static final class ByteBufferByteSource extends ByteSource {
+    private final ByteBuffer buffer;
+
+    ByteBufferByteSource(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public InputStream openStream() {
+      return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public long size() {
+      return buffer.remaining();
+    }
+  }
+
+  /** An {@link InputStream} that consumes a {@link ByteBuffer}. */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package tech.picnic.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.math.IntMath;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.annotations.Var;
+import com.google.errorprone.refaster.BlockTemplate;
+import com.google.errorprone.refaster.ExpressionTemplate;
+import com.google.errorprone.refaster.RefasterRule;
+import com.google.errorprone.refaster.Template;
+import com.google.errorprone.refaster.UAnyOf;
+import com.google.errorprone.refaster.UExpression;
+import com.google.errorprone.refaster.UFreeIdent;
+import com.google.errorprone.refaster.UPlaceholderExpression;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.Optional;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Utility class that estimates the cost of matching a Refaster rule against a compilation unit.
+ *
+ * <p>The estimate is computed per {@link com.google.errorprone.refaster.annotation.BeforeTemplate
+ * before template}, based on the following properties:
+ *
+ * <ul>
+ *   <li>The kind of tree matched: a {@link BlockTemplate} is matched against every sequence of
+ *       statements, and an expression template whose root is a bare placeholder (i.e. a parameter
+ *       or {@code @Placeholder} method) is matched against every expression. Other expression
+ *       templates are matched only against trees of the same kind.
+ *   <li>The number of alternatives expressed using {@code Refaster.anyOf}, each of which is matched
+ *       separately.
+ *   <li>The number of {@code @Repeated} parameters, which may match any number of arguments.
+ *   <li>The number of {@code @Matches} and {@code @NotMatches} constraints, each of which involves
+ *       the invocation of a custom {@link com.google.errorprone.matchers.Matcher}.
+ * </ul>
+ *
+ * <p>The resulting estimates are expressed in arbitrary units; they are meant to compare rules, not
+ * to predict actual matching times.
+ */
+public final class RefasterRuleCosts {
+  private static final int REPEATED_PARAMETER_COST = 5;
+  private static final int MATCHES_CONSTRAINT_COST = 1;
+
+  private RefasterRuleCosts() {}
+
+  /**
+   * Estimates the cost of matching each of the before templates of all Refaster rules represented
+   * by the given {@link CodeTransformer}.
+   *
+   * @param transformer The {@link CodeTransformer} of interest.
+   * @return One estimate per before template, in declaration order; empty if the given {@link
+   *     CodeTransformer} is of an unrecognized type.
+   */
+  public static ImmutableList<TemplateCost> estimate(CodeTransformer transformer) {
+    if (transformer instanceof CompositeCodeTransformer composite) {
+      return estimate(composite.transformers());
+    }
+
+    if (transformer instanceof AnnotatedCompositeCodeTransformer annotatedComposite) {
+      return estimate(annotatedComposite.transformers());
+    }
+
+    if (transformer instanceof RefasterRule<?, ?> refasterRule) {
+      return RefasterIntrospection.getBeforeTemplates(refasterRule).stream()
+          .map(RefasterRuleCosts::estimate)
+          .flatMap(Optional::stream)
+          .collect(toImmutableList());
+    }
+
+    return ImmutableList.of();
+  }
+
+  private static ImmutableList<TemplateCost> estimate(ImmutableList<CodeTransformer> transformers) {
+    return transformers.stream().flatMap(t -> estimate(t).stream()).collect(toImmutableList());
+  }
+
+  private static Optional<TemplateCost> estimate(Template<?> template) {
+    if (template instanceof ExpressionTemplate expressionTemplate) {
+      UExpression expression = RefasterIntrospection.getExpression(expressionTemplate);
+      return Optional.of(
+          estimate(
+              isPlaceholder(expression) ? Root.PLACEHOLDER_EXPRESSION : Root.SELECTIVE_EXPRESSION,
+              ImmutableList.of(expression)));
+    }
+
+    if (template instanceof BlockTemplate blockTemplate) {
+      return Optional.of(
+          estimate(Root.BLOCK, RefasterIntrospection.getTemplateStatements(blockTemplate)));
+    }
+
+    return Optional.empty();
+  }
+
+  private static TemplateCost estimate(Root root, ImmutableList<? extends Tree> trees) {
+    TemplateStatistics statistics = new TemplateStatistics();
+    @Var int alternatives = 1;
+    for (Tree tree : trees) {
+      alternatives = IntMath.saturatedMultiply(alternatives, statistics.scanAlternatives(tree));
+    }
+    return TemplateCost.create(
+        root, alternatives, statistics.repeatedParameters, statistics.matchesConstraints);
+  }
+
+  /**
+   * Returns the sum of the given estimates.
+   *
+   * @param templateCosts The estimates of interest.
+   * @return The total estimated cost, saturated at {@link Integer#MAX_VALUE}.
+   */
+  public static int sum(ImmutableList<TemplateCost> templateCosts) {
+    return templateCosts.stream().mapToInt(TemplateCost::cost).reduce(0, IntMath::saturatedAdd);
+  }
+
+  /**
+   * Tells whether the given expression, once any constraints are stripped, may match arbitrary
+   * expressions.
+   */
+  private static boolean isPlaceholder(Tree tree) {
+    Optional<UExpression> constrained = RefasterIntrospection.getConstrainedExpression(tree);
+    if (constrained.isPresent()) {
+      return isPlaceholder(constrained.orElseThrow());
+    }
+
+    if (tree instanceof UAnyOf anyOf) {
+      return RefasterIntrospection.getExpressions(anyOf).stream()
+          .anyMatch(RefasterRuleCosts::isPlaceholder);
+    }
+
+    if (tree instanceof ParenthesizedTree parenthesized) {
+      return isPlaceholder(parenthesized.getExpression());
+    }
+
+    return tree instanceof UFreeIdent
+        || tree instanceof UPlaceholderExpression
+        || RefasterIntrospection.isRepeated(tree);
+  }
+
+  /** The kind of tree against which a before template is matched. */
+  public enum Root {
+    /** An expression template that is matched only against trees of a specific kind. */
+    SELECTIVE_EXPRESSION(1),
+    /** A block template, which is matched against every sequence of statements. */
+    BLOCK(10),
+    /** An expression template that is matched against every expression. */
+    PLACEHOLDER_EXPRESSION(20);
+
+    private final int cost;
+
+    Root(int cost) {
+      this.cost = cost;
+    }
+
+    /**
+     * Returns the cost of matching a single alternative of a template with this root.
+     *
+     * @return A positive number.
+     */
+    public int cost() {
+      return cost;
+    }
+  }
+
+  /** The estimated cost of matching a single before template, along with its inputs. */
+  @AutoValue
+  public abstract static class TemplateCost {
+    TemplateCost() {}
+
+    /**
+     * Returns the kind of tree against which the template is matched.
+     *
+     * @return A non-{@code null} root kind.
+     */
+    public abstract Root root();
+
+    /**
+     * Returns the number of alternatives expressed by the template.
+     *
+     * @return The number of combinations of {@code Refaster.anyOf} alternatives; {@code 1} if the
+     *     template does not use {@code Refaster.anyOf}.
+     */
+    public abstract int alternatives();
+
+    /**
+     * Returns the number of {@code @Repeated} parameter references in the template.
+     *
+     * @return A non-negative number.
+     */
+    public abstract int repeatedParameters();
+
+    /**
+     * Returns the number of {@code @Matches} and {@code @NotMatches} parameter references in the
+     * template.
+     *
+     * @return A non-negative number.
+     */
+    public abstract int matchesConstraints();
+
+    /**
+     * Returns the estimated cost of matching the template.
+     *
+     * @return A positive number, saturated at {@link Integer#MAX_VALUE}.
+     */
+    public int cost() {
+      return IntMath.saturatedAdd(
+          IntMath.saturatedMultiply(root().cost(), alternatives()),
+          IntMath.saturatedAdd(
+              IntMath.saturatedMultiply(REPEATED_PARAMETER_COST, repeatedParameters()),
+              IntMath.saturatedMultiply(MATCHES_CONSTRAINT_COST, matchesConstraints())));
+    }
+
+    static TemplateCost create(
+        Root root, int alternatives, int repeatedParameters, int matchesConstraints) {
+      return new AutoValue_RefasterRuleCosts_TemplateCost(
+          root, alternatives, repeatedParameters, matchesConstraints);
+    }
+  }
+
+  /** Collects the cost-relevant properties of a template, including all its alternatives. */
+  private static final class TemplateStatistics {
+    private int repeatedParameters = 0;
+    private int matchesConstraints = 0;
+
+    /**
+     * Scans the given tree, and returns the number of combinations of {@code Refaster.anyOf}
+     * alternatives it expresses.
+     */
+    int scanAlternatives(Tree tree) {
+      int[] alternatives = {1};
+      new TreeScanner<@Nullable Void, @Nullable Void>() {
+        @Override
+        public @Nullable Void scan(Tree node, @Nullable Void unused) {
+          if (node instanceof UAnyOf anyOf) {
+            /* `UAnyOf#accept` visits only the first alternative, so we handle all of them here. */
+            @Var int choices = 0;
+            for (UExpression expression : RefasterIntrospection.getExpressions(anyOf)) {
+              choices = IntMath.saturatedAdd(choices, scanAlternatives(expression));
+            }
+            alternatives[0] = IntMath.saturatedMultiply(alternatives[0], choices);
+            return null;
+          }
+
+          if (RefasterIntrospection.isRepeated(node)) {
+            repeatedParameters++;
+          }
+          if (RefasterIntrospection.isMatchesConstraint(node)) {
+            matchesConstraints++;
+          }
+
+          return super.scan(node, unused);
+        }
+      }.scan(tree, null);
+      return alternatives[0];
+    }
+  }
+}
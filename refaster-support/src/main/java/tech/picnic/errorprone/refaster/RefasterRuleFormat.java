@@ -0,0 +1,52 @@
+package tech.picnic.errorprone.refaster;
+
+import com.google.errorprone.CodeTransformer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Utility class for reading and writing compiled Refaster rules, as stored in {@code .refaster}
+ * files.
+ *
+ * <p>A compiled rule is the plain Java serialization of the rule's {@link CodeTransformer}, such
+ * that rules can be read by any version of the Refaster runner.
+ */
+// XXX: Consider a dedicated encoding, provided that it measurably reduces load time or memory
+// usage, and that older runners can gracefully ignore rules written in this encoding.
+public final class RefasterRuleFormat {
+  private RefasterRuleFormat() {}
+
+  /**
+   * Writes the given compiled Refaster rule.
+   *
+   * @param codeTransformer The {@link CodeTransformer} to write.
+   * @param target The stream to which to write the rule; not closed by this method.
+   * @throws IOException If the rule could not be written.
+   */
+  public static void write(CodeTransformer codeTransformer, OutputStream target)
+      throws IOException {
+    ObjectOutputStream output = new ObjectOutputStream(target);
+    output.writeObject(codeTransformer);
+    output.flush();
+  }
+
+  /**
+   * Reads a compiled Refaster rule previously written by {@link #write(CodeTransformer,
+   * OutputStream)}.
+   *
+   * @param source The stream from which to read the rule; not closed by this method.
+   * @return The deserialized {@link CodeTransformer}.
+   * @throws IOException If the rule could not be read.
+   * @throws ClassNotFoundException If the rule references a class that is not on the classpath.
+   * @throws ClassCastException If the deserialized object is not a {@link CodeTransformer}.
+   */
+  public static CodeTransformer read(InputStream source)
+      throws IOException, ClassNotFoundException {
+    @SuppressWarnings("BanSerializableRead" /* Part of the Refaster API. */)
+    CodeTransformer codeTransformer = (CodeTransformer) new ObjectInputStream(source).readObject();
+    return codeTransformer;
+  }
+}
@@ -0,0 +1,156 @@
+package tech.picnic.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.refaster.BlockTemplate;
+import com.google.errorprone.refaster.ExpressionTemplate;
+import com.google.errorprone.refaster.RefasterRule;
+import com.google.errorprone.refaster.Template;
+import com.google.errorprone.refaster.UAnyOf;
+import com.google.errorprone.refaster.UStaticIdent;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Utility class that determines which identifiers must occur in a compilation unit for a Refaster
+ * rule to possibly match it.
+ *
+ * <p>The identifiers (method names, field names and other member selects) referenced by each of a
+ * rule's {@link com.google.errorprone.refaster.annotation.BeforeTemplate before templates} are
+ * extracted into a set; a rule can only match a compilation unit that contains all identifiers of
+ * at least one such set. This is a conservative approximation: type names and free variables are
+ * ignored, while each of the alternatives of a {@code Refaster.anyOf} expression yields a separate
+ * set. {@link CodeTransformer}s of an unrecognized type are assumed to always be applicable.
+ */
+public final class RefasterRuleIdentifiers {
+  private static final ImmutableSet<ImmutableSet<String>> ALWAYS_APPLICABLE =
+      ImmutableSet.of(ImmutableSet.of());
+
+  private RefasterRuleIdentifiers() {}
+
+  /**
+   * Returns the sets of identifiers of which at least one must be fully present in a compilation
+   * unit for the given {@link CodeTransformer} to possibly match it.
+   *
+   * @param transformer The {@link CodeTransformer} of interest.
+   * @return A set of identifier sets; if one of these sets is empty, then the given {@link
+   *     CodeTransformer} may match any compilation unit.
+   */
+  public static ImmutableSet<ImmutableSet<String>> extract(CodeTransformer transformer) {
+    if (transformer instanceof CompositeCodeTransformer composite) {
+      return extract(composite.transformers());
+    }
+
+    if (transformer instanceof AnnotatedCompositeCodeTransformer annotatedComposite) {
+      return extract(annotatedComposite.transformers());
+    }
+
+    if (transformer instanceof RefasterRule<?, ?> refasterRule) {
+      return RefasterIntrospection.getBeforeTemplates(refasterRule).stream()
+          .flatMap(template -> extractTemplateIdentifiers(template).stream())
+          .collect(toImmutableSet());
+    }
+
+    return ALWAYS_APPLICABLE;
+  }
+
+  private static ImmutableSet<ImmutableSet<String>> extract(
+      ImmutableList<CodeTransformer> transformers) {
+    return transformers.stream().flatMap(t -> extract(t).stream()).collect(toImmutableSet());
+  }
+
+  private static ImmutableSet<ImmutableSet<String>> extractTemplateIdentifiers(
+      Template<?> template) {
+    if (template instanceof ExpressionTemplate expressionTemplate) {
+      return extractTemplateIdentifiers(RefasterIntrospection.getExpression(expressionTemplate));
+    }
+
+    if (template instanceof BlockTemplate blockTemplate) {
+      return RefasterIntrospection.getTemplateStatements(blockTemplate).stream()
+          .map(RefasterRuleIdentifiers::extractTemplateIdentifiers)
+          .reduce(ALWAYS_APPLICABLE, RefasterRuleIdentifiers::combine);
+    }
+
+    return ALWAYS_APPLICABLE;
+  }
+
+  private static ImmutableSet<ImmutableSet<String>> extractTemplateIdentifiers(Tree tree) {
+    Set<String> identifiers = new HashSet<>();
+    List<ImmutableSet<ImmutableSet<String>>> alternatives = new ArrayList<>();
+    new TreeScanner<@Nullable Void, @Nullable Void>() {
+      @Override
+      public @Nullable Void scan(Tree node, @Nullable Void unused) {
+        if (node instanceof UAnyOf anyOf) {
+          /* `UAnyOf#accept` visits only the first alternative, so we handle all of them here. */
+          alternatives.add(
+              RefasterIntrospection.getExpressions(anyOf).stream()
+                  .flatMap(expression -> extractTemplateIdentifiers(expression).stream())
+                  .collect(toImmutableSet()));
+          return null;
+        }
+
+        return super.scan(node, unused);
+      }
+
+      @Override
+      public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
+        /*
+         * Static members may be referenced without qualification, so we only require the member
+         * name. Other identifiers represent types or variables, which need not literally appear in
+         * the source code.
+         */
+        if (node instanceof UStaticIdent) {
+          registerIdentifier(node.getName());
+        }
+        return super.visitIdentifier(node, unused);
+      }
+
+      @Override
+      public @Nullable Void visitMemberReference(MemberReferenceTree node, @Nullable Void unused) {
+        registerIdentifier(node.getName());
+        return super.visitMemberReference(node, unused);
+      }
+
+      @Override
+      public @Nullable Void visitMemberSelect(MemberSelectTree node, @Nullable Void unused) {
+        registerIdentifier(node.getIdentifier());
+        return super.visitMemberSelect(node, unused);
+      }
+
+      private void registerIdentifier(CharSequence identifier) {
+        /* Refaster uses the empty string to represent some implicit member selects. */
+        if (!identifier.isEmpty()) {
+          identifiers.add(identifier.toString());
+        }
+      }
+    }.scan(tree, null);
+
+    return alternatives.stream()
+        .reduce(
+            ImmutableSet.of(ImmutableSet.copyOf(identifiers)), RefasterRuleIdentifiers::combine);
+  }
+
+  /**
+   * Returns all unions of one identifier set from the first collection with one identifier set from
+   * the second collection.
+   */
+  private static ImmutableSet<ImmutableSet<String>> combine(
+      ImmutableSet<ImmutableSet<String>> first, ImmutableSet<ImmutableSet<String>> second) {
+    return Sets.cartesianProduct(first, second).stream()
+        .map(pair -> Sets.union(pair.get(0), pair.get(1)).immutableCopy())
+        .collect(toImmutableSet());
+  }
+}
@@ -0,0 +1,200 @@
+package tech.picnic.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.Comparator.comparing;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+import tech.picnic.errorprone.refaster.annotation.OnlineDocumentation;
+
+/**
+ * Utility class for reading and writing an index of the compiled Refaster rules contained in a
+ * single classpath entry.
+ *
+ * <p>Such an index is stored as the {@value #RESOURCE_NAME} resource. It enables Refaster rules to
+ * be located without scanning the classpath, and to be selected before they are deserialized.
+ */
+public final class RefasterRuleIndex {
+  /** The name of the classpath resource that holds a {@link RefasterRuleIndex}. */
+  public static final String RESOURCE_NAME = "META-INF/refaster/index";
+
+  private static final String HEADER = "# Refaster rule index, format version 1";
+  private static final int FIELD_COUNT = 6;
+  private static final char FIELD_SEPARATOR = '\t';
+  private static final char ALTERNATIVE_SEPARATOR = ';';
+  private static final char VALUE_SEPARATOR = ',';
+  private static final Splitter FIELD_SPLITTER = Splitter.on(FIELD_SEPARATOR);
+  private static final Splitter ALTERNATIVE_SPLITTER = Splitter.on(ALTERNATIVE_SEPARATOR);
+  private static final Splitter VALUE_SPLITTER = Splitter.on(VALUE_SEPARATOR).omitEmptyStrings();
+  private static final Joiner FIELD_JOINER = Joiner.on(FIELD_SEPARATOR);
+  private static final Joiner ALTERNATIVE_JOINER = Joiner.on(ALTERNATIVE_SEPARATOR);
+  private static final Joiner VALUE_JOINER = Joiner.on(VALUE_SEPARATOR);
+
+  private RefasterRuleIndex() {}
+
+  /**
+   * Writes the given index entries, ordered by rule name.
+   *
+   * @param entries The index entries to write.
+   * @param writer The target to which to write the index.
+   * @throws IOException If the index could not be written.
+   */
+  public static void write(Iterable<Entry> entries, Writer writer) throws IOException {
+    writer.write(HEADER);
+    writer.write('\n');
+    for (Entry entry : Ordering.from(comparing(Entry::name)).sortedCopy(entries)) {
+      FIELD_JOINER.appendTo(
+          writer,
+          entry.name(),
+          entry.resourceName(),
+          entry.severity(),
+          formatAlternatives(entry.requiredIdentifiers()),
+          formatAlternatives(entry.requiredTypes()),
+          entry.hasOnlineDocumentation());
+      writer.write('\n');
+    }
+  }
+
+  private static String formatAlternatives(ImmutableSet<ImmutableSet<String>> alternatives) {
+    return ALTERNATIVE_JOINER.join(
+        alternatives.stream()
+            .map(values -> VALUE_JOINER.join(Ordering.natural().sortedCopy(values)))
+            .iterator());
+  }
+
+  /**
+   * Reads an index previously written by {@link #write(Iterable, Writer)}.
+   *
+   * @param reader The source from which to read the index.
+   * @return The index entries, unless the index was written using an unsupported format.
+   * @throws IOException If the index could not be read.
+   */
+  public static Optional<ImmutableList<Entry>> read(Reader reader) throws IOException {
+    BufferedReader lines = new BufferedReader(reader);
+    if (!HEADER.equals(lines.readLine())) {
+      return Optional.empty();
+    }
+
+    return Optional.of(
+        lines
+            .lines()
+            .filter(line -> !line.isEmpty())
+            .map(RefasterRuleIndex::parseEntry)
+            .collect(toImmutableList()));
+  }
+
+  private static Entry parseEntry(String line) {
+    List<String> fields = FIELD_SPLITTER.splitToList(line);
+    if (fields.size() != FIELD_COUNT) {
+      throw new IllegalArgumentException(String.format("Malformed index entry '%s'", line));
+    }
+
+    return Entry.create(
+        fields.get(0),
+        fields.get(1),
+        SeverityLevel.valueOf(fields.get(2)),
+        parseAlternatives(fields.get(3)),
+        parseAlternatives(fields.get(4)),
+        Boolean.parseBoolean(fields.get(5)));
+  }
+
+  /**
+   * Parses a set of alternatives.
+   *
+   * <p>Note that an empty set of alternatives is read back as a single empty alternative. This is a
+   * safe approximation: the associated rule is then considered to always be applicable.
+   */
+  private static ImmutableSet<ImmutableSet<String>> parseAlternatives(String alternatives) {
+    return ALTERNATIVE_SPLITTER
+        .splitToStream(alternatives)
+        .map(values -> ImmutableSet.copyOf(VALUE_SPLITTER.split(values)))
+        .collect(toImmutableSet());
+  }
+
+  /** Describes a single compiled Refaster rule resource. */
+  @AutoValue
+  public abstract static class Entry {
+    Entry() {}
+
+    /**
+     * Returns the name of the Refaster rule.
+     *
+     * @return The flat name of the Refaster rule class, excluding its package.
+     */
+    public abstract String name();
+
+    /**
+     * Returns the name of the classpath resource that holds the compiled Refaster rule.
+     *
+     * @return A non-{@code null} classpath resource name.
+     */
+    public abstract String resourceName();
+
+    /**
+     * Returns the severity with which matches of the Refaster rule are reported by default.
+     *
+     * @return A non-{@code null} severity level.
+     */
+    public abstract SeverityLevel severity();
+
+    /**
+     * Returns the sets of identifiers of which at least one must occur in a compilation unit for
+     * the Refaster rule to possibly match it.
+     *
+     * @return A set of identifier sets, as computed by {@link RefasterRuleIdentifiers}.
+     */
+    public abstract ImmutableSet<ImmutableSet<String>> requiredIdentifiers();
+
+    /**
+     * Returns the sets of fully qualified type names of which at least one must be fully present on
+     * the classpath for the Refaster rule to possibly match any code.
+     *
+     * @return A set of type name sets, as computed by {@link RefasterRuleTypes}.
+     */
+    public abstract ImmutableSet<ImmutableSet<String>> requiredTypes();
+
+    /**
+     * Tells whether the Refaster rule is annotated with {@link OnlineDocumentation}, either
+     * directly or through one of its enclosing classes.
+     *
+     * @return Whether the Refaster rule comes with online documentation.
+     */
+    public abstract boolean hasOnlineDocumentation();
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param name The name of the Refaster rule.
+     * @param resourceName The name of the classpath resource that holds the compiled rule.
+     * @param severity The default severity of the Refaster rule.
+     * @param requiredIdentifiers The sets of identifiers of which at least one must occur in a
+     *     compilation unit for the Refaster rule to possibly match it.
+     * @param requiredTypes The sets of fully qualified type names of which at least one must be
+     *     fully present on the classpath for the Refaster rule to possibly match any code.
+     * @param hasOnlineDocumentation Whether the Refaster rule comes with online documentation.
+     * @return A non-{@code null} {@link Entry}.
+     */
+    public static Entry create(
+        String name,
+        String resourceName,
+        SeverityLevel severity,
+        ImmutableSet<ImmutableSet<String>> requiredIdentifiers,
+        ImmutableSet<ImmutableSet<String>> requiredTypes,
+        boolean hasOnlineDocumentation) {
+      return new AutoValue_RefasterRuleIndex_Entry(
+          name, resourceName, severity, requiredIdentifiers, requiredTypes, hasOnlineDocumentation);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package tech.picnic.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.refaster.BlockTemplate;
+import com.google.errorprone.refaster.ExpressionTemplate;
+import com.google.errorprone.refaster.RefasterRule;
+import com.google.errorprone.refaster.Template;
+import com.google.errorprone.refaster.UAnyOf;
+import com.google.errorprone.refaster.UClassType;
+import com.google.errorprone.refaster.UFreeIdent;
+import com.google.errorprone.refaster.UType;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Utility class that determines which types must be present on the classpath for a Refaster rule to
+ * possibly match any code.
+ *
+ * <p>For each of a rule's {@link com.google.errorprone.refaster.annotation.BeforeTemplate before
+ * templates} the classes it explicitly references, as well as the types of the parameters it
+ * unconditionally references, are extracted into a set; a rule can only match code compiled against
+ * a classpath that contains all types of at least one such set. This is a conservative
+ * approximation: types referenced only by some of the alternatives of a {@code Refaster.anyOf}
+ * expression are ignored, as are JDK types and Refaster's own types. {@link CodeTransformer}s of an
+ * unrecognized type are assumed to always be applicable.
+ */
+public final class RefasterRuleTypes {
+  private static final ImmutableSet<ImmutableSet<String>> ALWAYS_APPLICABLE =
+      ImmutableSet.of(ImmutableSet.of());
+  private static final ImmutableList<String> IGNORED_TYPE_PREFIXES =
+      ImmutableList.of("java.", "javax.", "com.google.errorprone.refaster.");
+
+  private RefasterRuleTypes() {}
+
+  /**
+   * Returns the sets of fully qualified type names of which at least one must be fully present on
+   * the classpath for the given {@link CodeTransformer} to possibly match any code.
+   *
+   * @param transformer The {@link CodeTransformer} of interest.
+   * @return A set of type name sets; if one of these sets is empty, then the given {@link
+   *     CodeTransformer} may match code compiled against any classpath.
+   */
+  public static ImmutableSet<ImmutableSet<String>> extract(CodeTransformer transformer) {
+    if (transformer instanceof CompositeCodeTransformer composite) {
+      return extract(composite.transformers());
+    }
+
+    if (transformer instanceof AnnotatedCompositeCodeTransformer annotatedComposite) {
+      return extract(annotatedComposite.transformers());
+    }
+
+    if (transformer instanceof RefasterRule<?, ?> refasterRule) {
+      return RefasterIntrospection.getBeforeTemplates(refasterRule).stream()
+          .map(RefasterRuleTypes::extractTemplateTypes)
+          .collect(toImmutableSet());
+    }
+
+    return ALWAYS_APPLICABLE;
+  }
+
+  private static ImmutableSet<ImmutableSet<String>> extract(
+      ImmutableList<CodeTransformer> transformers) {
+    return transformers.stream().flatMap(t -> extract(t).stream()).collect(toImmutableSet());
+  }
+
+  private static ImmutableSet<String> extractTemplateTypes(Template<?> template) {
+    Set<String> types = new HashSet<>();
+    Set<String> referencedParameters = new HashSet<>();
+    TypeReferenceCollector collector = new TypeReferenceCollector(types, referencedParameters);
+    if (template instanceof ExpressionTemplate expressionTemplate) {
+      collector.scan(RefasterIntrospection.getExpression(expressionTemplate), null);
+    } else if (template instanceof BlockTemplate blockTemplate) {
+      collector.scan(RefasterIntrospection.getTemplateStatements(blockTemplate), null);
+    } else {
+      return ImmutableSet.of();
+    }
+
+    for (Map.Entry<String, UType> parameter : template.expressionArgumentTypes().entrySet()) {
+      if (referencedParameters.contains(parameter.getKey())) {
+        collectClassTypes(parameter.getValue(), types);
+      }
+    }
+
+    return types.stream()
+        .filter(type -> IGNORED_TYPE_PREFIXES.stream().noneMatch(type::startsWith))
+        .collect(toImmutableSet());
+  }
+
+  private static void collectClassTypes(UType type, Set<String> types) {
+    if (type instanceof UClassType classType) {
+      types.add(RefasterIntrospection.getFullyQualifiedClass(classType));
+      for (UType typeArgument : RefasterIntrospection.getTypeArguments(classType)) {
+        collectClassTypes(typeArgument, types);
+      }
+    }
+  }
+
+  /**
+   * A {@link TreeScanner} that collects the classes and parameters unconditionally referenced by a
+   * template.
+   */
+  private static final class TypeReferenceCollector
+      extends TreeScanner<@Nullable Void, @Nullable Void> {
+    private final Set<String> types;
+    private final Set<String> referencedParameters;
+
+    TypeReferenceCollector(Set<String> types, Set<String> referencedParameters) {
+      this.types = types;
+      this.referencedParameters = referencedParameters;
+    }
+
+    @Override
+    public @Nullable Void scan(Tree node, @Nullable Void unused) {
+      /* The alternatives of a `UAnyOf` expression need not all match, so none are considered. */
+      if (node instanceof UAnyOf) {
+        return null;
+      }
+
+      RefasterIntrospection.getReferencedTopLevelClass(node).ifPresent(types::add);
+      return super.scan(node, unused);
+    }
+
+    @Override
+    public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
+      if (node instanceof UFreeIdent) {
+        referencedParameters.add(node.getName().toString());
+      }
+      return super.visitIdentifier(node, unused);
+    }
+  }
+}
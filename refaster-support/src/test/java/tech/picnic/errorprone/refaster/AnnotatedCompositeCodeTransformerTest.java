@@ -139,6 +139,41 @@ final class AnnotatedCompositeCodeTransformerTest {
             });
   }
 
+  private static Stream<Arguments> metadataTestCases() {
+    /* { compositeAnnotations, delegateAnnotations, expectedSeverity, expectedOnlineDocumentation } */
+    return Stream.of(
+        arguments(ImmutableSet.of(), ImmutableSet.of(), SUGGESTION, false),
+        arguments(
+            ImmutableSet.of(
+                severityAnnotation(ERROR), documentationAnnotation("https://example.com")),
+            ImmutableSet.of(),
+            ERROR,
+            true),
+        arguments(
+            ImmutableSet.of(severityAnnotation(ERROR)),
+            ImmutableSet.of(
+                severityAnnotation(WARNING), documentationAnnotation("https://example.com")),
+            WARNING,
+            true));
+  }
+
+  @MethodSource("metadataTestCases")
+  @ParameterizedTest
+  void metadata(
+      ImmutableSet<? extends Annotation> compositeAnnotations,
+      ImmutableSet<? extends Annotation> delegateAnnotations,
+      SeverityLevel expectedSeverity,
+      boolean expectedOnlineDocumentation) {
+    CodeTransformer delegate = mock();
+    when(delegate.annotations()).thenReturn(indexAnnotations(delegateAnnotations));
+    AnnotatedCompositeCodeTransformer codeTransformer =
+        AnnotatedCompositeCodeTransformer.create(
+            DEFAULT_PACKAGE, ImmutableList.of(delegate), indexAnnotations(compositeAnnotations));
+
+    assertThat(codeTransformer.getDefaultSeverity()).isEqualTo(expectedSeverity);
+    assertThat(codeTransformer.hasOnlineDocumentation()).isEqualTo(expectedOnlineDocumentation);
+  }
+
   private static ImmutableClassToInstanceMap<Annotation> indexAnnotations(
       ImmutableSet<? extends Annotation> annotations) {
     return ImmutableClassToInstanceMap.copyOf(
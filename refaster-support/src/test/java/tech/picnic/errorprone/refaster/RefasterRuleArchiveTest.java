@@ -0,0 +1,64 @@
+package tech.picnic.errorprone.refaster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+final class RefasterRuleArchiveTest {
+  @Test
+  void roundTrip() throws IOException {
+    ImmutableMap<String, ByteSource> entries =
+        ImmutableMap.of(
+            "com/example/B.refaster",
+            ByteSource.wrap("second".getBytes(UTF_8)),
+            "com/example/A.refaster",
+            ByteSource.wrap("first".getBytes(UTF_8)),
+            "C.refaster",
+            ByteSource.empty());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    RefasterRuleArchive.write(entries, out);
+
+    ImmutableMap<String, ByteSource> archive =
+        RefasterRuleArchive.read(ByteBuffer.wrap(out.toByteArray())).orElseThrow();
+    assertThat(archive.keySet())
+        .containsExactly("C.refaster", "com/example/A.refaster", "com/example/B.refaster");
+    for (String resourceName : entries.keySet()) {
+      ByteSource expected = requireNonNull(entries.get(resourceName));
+      ByteSource actual = requireNonNull(archive.get(resourceName));
+      assertThat(actual.size()).isEqualTo(expected.size());
+      assertThat(actual.contentEquals(expected)).isTrue();
+    }
+  }
+
+  @Test
+  void readUnsupportedFormat() throws IOException {
+    byte[] header = {'R', 'F', 'A', 'R', 0, 2, 0, 0, 0, 0};
+
+    assertThat(RefasterRuleArchive.read(ByteBuffer.wrap(header))).isEmpty();
+  }
+
+  @Test
+  void readTruncated() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    RefasterRuleArchive.write(
+        ImmutableMap.of("A.refaster", ByteSource.wrap("content".getBytes(UTF_8))), out);
+    byte[] archive = out.toByteArray();
+
+    assertThatThrownBy(
+            () ->
+                RefasterRuleArchive.read(
+                    ByteBuffer.wrap(Arrays.copyOf(archive, archive.length - 1))))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Malformed Refaster rule archive");
+  }
+}
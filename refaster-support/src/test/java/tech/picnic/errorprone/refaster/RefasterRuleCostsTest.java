@@ -0,0 +1,92 @@
+package tech.picnic.errorprone.refaster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.refaster.BlockTemplate;
+import com.google.errorprone.refaster.ExpressionTemplate;
+import com.google.errorprone.refaster.RefasterRule;
+import com.google.errorprone.refaster.Template;
+import com.google.errorprone.refaster.UAnyOf;
+import com.google.errorprone.refaster.UClassType;
+import com.google.errorprone.refaster.UExpression;
+import com.google.errorprone.refaster.UFreeIdent;
+import com.google.errorprone.refaster.UMemberSelect;
+import com.google.errorprone.refaster.UMethodInvocation;
+import com.google.errorprone.refaster.UReturn;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import tech.picnic.errorprone.refaster.RefasterRuleCosts.Root;
+import tech.picnic.errorprone.refaster.RefasterRuleCosts.TemplateCost;
+
+final class RefasterRuleCostsTest {
+  private static final UClassType STRING = UClassType.create("java.lang.String");
+  private static final UExpression A = UFreeIdent.create("a");
+  private static final UExpression B = UFreeIdent.create("b");
+  private static final UExpression C = UFreeIdent.create("c");
+
+  private static Stream<Arguments> estimateTestCases() {
+    /* { template, root, alternatives, cost } */
+    return Stream.of(
+        arguments(expression(concat(A, B)), Root.SELECTIVE_EXPRESSION, 1, 1),
+        arguments(expression(A), Root.PLACEHOLDER_EXPRESSION, 1, 20),
+        arguments(
+            expression(concat(UAnyOf.create(A, B, C), UAnyOf.create(A, B))),
+            Root.SELECTIVE_EXPRESSION,
+            6,
+            6),
+        arguments(expression(UAnyOf.create(concat(A, B), A)), Root.PLACEHOLDER_EXPRESSION, 2, 40),
+        arguments(
+            BlockTemplate.create(UReturn.create(concat(A, B)), UReturn.create(UAnyOf.create(A, B))),
+            Root.BLOCK,
+            2,
+            20));
+  }
+
+  @MethodSource("estimateTestCases")
+  @ParameterizedTest
+  void estimate(Template<?> template, Root root, int alternatives, int cost) {
+    RefasterRule<?, ?> rule =
+        RefasterRule.create("com.example.Rule", ImmutableList.of(template), ImmutableList.of());
+
+    assertThat(RefasterRuleCosts.estimate(rule))
+        .singleElement()
+        .satisfies(
+            c -> assertThat(c.root()).isEqualTo(root),
+            c -> assertThat(c.alternatives()).isEqualTo(alternatives),
+            c -> assertThat(c.repeatedParameters()).isZero(),
+            c -> assertThat(c.matchesConstraints()).isZero(),
+            c -> assertThat(c.cost()).isEqualTo(cost));
+  }
+
+  @Test
+  void estimateComposite() {
+    AnnotatedCompositeCodeTransformer transformer =
+        AnnotatedCompositeCodeTransformer.create(
+            "com.example",
+            ImmutableList.of(
+                RefasterRule.create(
+                    "com.example.Rule",
+                    ImmutableList.of(expression(A), expression(concat(A, B))),
+                    ImmutableList.of())),
+            ImmutableClassToInstanceMap.of());
+
+    ImmutableList<TemplateCost> costs = RefasterRuleCosts.estimate(transformer);
+
+    assertThat(costs).extracting(TemplateCost::cost).containsExactly(20, 1);
+    assertThat(RefasterRuleCosts.sum(costs)).isEqualTo(21);
+  }
+
+  private static ExpressionTemplate expression(UExpression expression) {
+    return ExpressionTemplate.create(expression, STRING);
+  }
+
+  private static UExpression concat(UExpression receiver, UExpression argument) {
+    return UMethodInvocation.create(UMemberSelect.create(receiver, "concat", STRING), argument);
+  }
+}
@@ -0,0 +1,50 @@
+package tech.picnic.errorprone.refaster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import org.junit.jupiter.api.Test;
+
+final class RefasterRuleFormatTest {
+  private static final AnnotatedCompositeCodeTransformer CODE_TRANSFORMER =
+      AnnotatedCompositeCodeTransformer.create(
+          "com.example", ImmutableList.of(), ImmutableClassToInstanceMap.of());
+
+  @Test
+  void roundTrip() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    RefasterRuleFormat.write(CODE_TRANSFORMER, out);
+
+    assertThat(RefasterRuleFormat.read(new ByteArrayInputStream(out.toByteArray())))
+        .isEqualTo(CODE_TRANSFORMER);
+  }
+
+  @Test
+  void readJavaSerialization() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(out)) {
+      output.writeObject(CODE_TRANSFORMER);
+    }
+
+    assertThat(RefasterRuleFormat.read(new ByteArrayInputStream(out.toByteArray())))
+        .isEqualTo(CODE_TRANSFORMER);
+  }
+
+  @Test
+  void writeJavaSerialization() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(expected)) {
+      output.writeObject(CODE_TRANSFORMER);
+    }
+
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    RefasterRuleFormat.write(CODE_TRANSFORMER, actual);
+
+    assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+  }
+}
@@ -0,0 +1,65 @@
+package tech.picnic.errorprone.refaster;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.BugPattern.SeverityLevel.SUGGESTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+final class RefasterRuleIndexTest {
+  @Test
+  void roundTrip() throws IOException {
+    RefasterRuleIndex.Entry first =
+        RefasterRuleIndex.Entry.create(
+            "FooRules$BarRule",
+            "com/example/FooRules$BarRule.refaster",
+            ERROR,
+            ImmutableSet.of(ImmutableSet.of("length", "toCharArray"), ImmutableSet.of("isEmpty")),
+            ImmutableSet.of(ImmutableSet.of("com.example.Foo", "com.example.Bar")),
+            /* hasOnlineDocumentation= */ true);
+    RefasterRuleIndex.Entry second =
+        RefasterRuleIndex.Entry.create(
+            "BazRule",
+            "BazRule.refaster",
+            SUGGESTION,
+            ImmutableSet.of(ImmutableSet.of()),
+            ImmutableSet.of(ImmutableSet.of()),
+            /* hasOnlineDocumentation= */ false);
+
+    StringWriter writer = new StringWriter();
+    RefasterRuleIndex.write(ImmutableList.of(first, second), writer);
+
+    assertThat(RefasterRuleIndex.read(new StringReader(writer.toString())))
+        .hasValue(ImmutableList.of(second, first));
+  }
+
+  @Test
+  void readUnsupportedFormatVersion() throws IOException {
+    assertThat(
+            RefasterRuleIndex.read(
+                new StringReader(
+                    "# Refaster rule index, format version 2\nFooRule\tFooRule.refaster\tERROR\ta\tcom.example.Foo\n")))
+        .isEmpty();
+  }
+
+  @Test
+  void readUnsupportedFormat() throws IOException {
+    assertThat(RefasterRuleIndex.read(new StringReader("# Some other format\nfoo\n"))).isEmpty();
+  }
+
+  @Test
+  void readMalformedEntry() {
+    assertThatThrownBy(
+            () ->
+                RefasterRuleIndex.read(
+                    new StringReader("# Refaster rule index, format version 1\nfoo\tbar\n")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Malformed index entry 'foo\tbar'");
+  }
+}
@@ -1,26 +1,34 @@
 package tech.picnic.errorprone.refaster.test;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
+import static com.google.common.collect.ImmutableMultiset.toImmutableMultiset;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
-import static com.google.common.collect.ImmutableSortedSet.toImmutableSortedSet;
 import static com.google.errorprone.BugPattern.LinkType.NONE;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static java.util.Comparator.naturalOrder;
+import static java.util.Objects.requireNonNull;
 import static tech.picnic.errorprone.refaster.runner.Refaster.INCLUDED_RULES_PATTERN_FLAG;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import com.google.errorprone.BugCheckerRefactoringTestHelper;
 import com.google.errorprone.BugCheckerRefactoringTestHelper.TestMode;
 import com.google.errorprone.BugPattern;
+import com.google.errorprone.CodeTransformer;
 import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.FileObjects;
 import com.google.errorprone.SubContext;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
@@ -38,15 +46,19 @@ import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Position;
+import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 import javax.inject.Inject;
 import org.jspecify.annotations.Nullable;
 import tech.picnic.errorprone.refaster.runner.CodeTransformers;
 import tech.picnic.errorprone.refaster.runner.Refaster;
+import tech.picnic.errorprone.refaster.test.RefasterRulePerformance.Measurement;
 
 /**
  * A {@link BugChecker} that applies a Refaster rule collection to an associated test input file by
@@ -57,6 +69,12 @@ import tech.picnic.errorprone.refaster.runner.Refaster;
  * rule collection class. Their names are derived from the rule collection class by suffixing {@code
  * TestInput.java} and {@code TestOutput.java}, respectively. Each test method's name must be
  * derived from the rule that modifies said method by prefixing {@code test}.
+ *
+ * <p>Multiple rule collections can be validated using a single compilation; see {@link
+ * #validateAll(Iterable)}.
+ *
+ * <p>Optionally, the cost of matching each rule against its test input file can be compared against
+ * a previously recorded baseline; see {@link #validate(Class, int)}.
  */
 // XXX: This check currently only validates that one `Refaster.anyOf` branch in one
 // `@BeforeTemplate` method is covered by a test. Review how we can make sure that _all_
@@ -64,13 +82,34 @@ import tech.picnic.errorprone.refaster.runner.Refaster;
 @BugPattern(summary = "Exercises a Refaster rule collection", linkType = NONE, severity = ERROR)
 @SuppressWarnings("java:S2160" /* Super class equality definition suffices. */)
 public final class RefasterRuleCollection extends BugChecker implements CompilationUnitTreeMatcher {
+  /**
+   * The system property that, if set, causes {@link #validate(Class, int)} and {@link
+   * #validateAll(Iterable, Set, int)} to record new performance baselines rather than compare
+   * against existing ones. Its value is the resource directory to which to write the baselines,
+   * such as {@code src/test/resources}.
+   */
+  public static final String PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_PROPERTY =
+      "refaster.performanceBaselineOutputDirectory";
+
   private static final long serialVersionUID = 1L;
   private static final String RULE_COLLECTION_FLAG = "RefasterRuleCollection:RuleCollection";
   private static final String TEST_METHOD_NAME_PREFIX = "test";
-
-  private final String ruleCollectionUnderTest;
-  private final ImmutableSortedSet<String> rulesUnderTest;
-  private final Refaster delegate;
+  private static final String TEST_INPUT_SUFFIX = "TestInput.java";
+  private static final String TEST_OUTPUT_SUFFIX = "TestOutput.java";
+  private static final String PERFORMANCE_RULE_COLLECTIONS_FLAG =
+      "RefasterRuleCollection:PerformanceRuleCollections";
+  private static final String PERFORMANCE_TOLERANCE_FLAG =
+      "RefasterRuleCollection:PerformanceTolerance";
+  private static final String PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_FLAG =
+      "RefasterRuleCollection:PerformanceBaselineOutputDirectory";
+  private static final String PERFORMANCE_BASELINE_SUFFIX = "PerformanceBaseline.tsv";
+  private static final int DEFAULT_PERFORMANCE_TOLERANCE = 5;
+
+  private final ImmutableMap<String, Refaster> delegates;
+  private final ImmutableMap<String, ImmutableSortedSet<String>> rulesUnderTest;
+  private final ImmutableSet<String> performanceRuleCollections;
+  private final int performanceTolerance;
+  private final @Nullable String performanceBaselineOutputDirectory;
 
   /**
    * Instantiates a {@link RefasterRuleCollection} instance.
@@ -79,19 +118,24 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
    */
   @Inject
   RefasterRuleCollection(ErrorProneFlags flags) {
-    ruleCollectionUnderTest = getRuleCollectionUnderTest(flags);
-    delegate = createRefasterChecker(ruleCollectionUnderTest);
-    rulesUnderTest = getRulesUnderTest(ruleCollectionUnderTest);
+    ImmutableSet<String> ruleCollectionsUnderTest = getRuleCollectionsUnderTest(flags);
+    delegates = Maps.toMap(ruleCollectionsUnderTest, RefasterRuleCollection::createRefasterChecker);
+    rulesUnderTest =
+        Maps.toMap(ruleCollectionsUnderTest, RefasterRuleCollection::getRulesUnderTest);
+    performanceRuleCollections = flags.getSetOrEmpty(PERFORMANCE_RULE_COLLECTIONS_FLAG);
+    performanceTolerance =
+        flags.getInteger(PERFORMANCE_TOLERANCE_FLAG).orElse(DEFAULT_PERFORMANCE_TOLERANCE);
+    performanceBaselineOutputDirectory =
+        flags.get(PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_FLAG).orElse(null);
   }
 
-  private static String getRuleCollectionUnderTest(ErrorProneFlags flags) {
-    return flags
-        .get(RULE_COLLECTION_FLAG)
-        .orElseThrow(
-            () ->
-                new IllegalStateException(
-                    String.format(
-                        "Error Prone flag `%s` must be specified", RULE_COLLECTION_FLAG)));
+  private static ImmutableSet<String> getRuleCollectionsUnderTest(ErrorProneFlags flags) {
+    ImmutableSet<String> ruleCollections = flags.getSetOrEmpty(RULE_COLLECTION_FLAG);
+    checkState(
+        !ruleCollections.isEmpty(),
+        "Error Prone flag `%s` must be specified",
+        RULE_COLLECTION_FLAG);
+    return ruleCollections;
   }
 
   private static Refaster createRefasterChecker(String ruleCollectionUnderTest) {
@@ -102,10 +146,17 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
   }
 
   private static ImmutableSortedSet<String> getRulesUnderTest(String ruleCollectionUnderTest) {
-    return CodeTransformers.getAllCodeTransformers().keySet().stream()
-        .filter(k -> k.startsWith(ruleCollectionUnderTest))
-        .map(k -> k.replace(ruleCollectionUnderTest + '$', ""))
-        .collect(toImmutableSortedSet(naturalOrder()));
+    return ImmutableSortedSet.copyOf(
+        naturalOrder(), getRuleTransformers(ruleCollectionUnderTest).keySet());
+  }
+
+  private static ImmutableListMultimap<String, CodeTransformer> getRuleTransformers(
+      String ruleCollectionUnderTest) {
+    return CodeTransformers.getAllCodeTransformers().entries().stream()
+        .filter(e -> e.getKey().startsWith(ruleCollectionUnderTest))
+        .collect(
+            toImmutableListMultimap(
+                e -> e.getKey().replace(ruleCollectionUnderTest + '$', ""), Map.Entry::getValue));
   }
 
   /**
@@ -120,20 +171,164 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
    * @param clazz The Refaster rule collection under test.
    */
   public static void validate(Class<?> clazz) {
+    validate(clazz, ImmutableList.of());
+  }
+
+  /**
+   * Verifies the given Refaster rule collection in the same manner as {@link #validate(Class)}, and
+   * additionally verifies that matching its rules against the test input file did not become
+   * significantly more expensive.
+   *
+   * <p>For each rule, the relative cost of matching the test input file, the number of candidate
+   * matches produced and the number of candidate matches discarded in favor of an overlapping match
+   * are compared against the baseline resource {@code <collection>PerformanceBaseline.tsv}, located
+   * in the same package as the rule collection. The relative cost of a rule is its wall time
+   * divided by the median wall time of all rules in the collection, which makes it largely
+   * independent of the host on which the test runs. If the baseline does not exist, then validation
+   * fails. To record a new baseline instead, set the {@value
+   * #PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_PROPERTY} system property, e.g. by passing {@code
+   * -Drefaster.performanceBaselineOutputDirectory=src/test/resources} to Maven.
+   *
+   * @param clazz The Refaster rule collection under test.
+   * @param tolerance The factor by which a rule's relative cost may exceed the baseline, with rules
+   *     that are at most as expensive as the median rule considered equivalent; the number of
+   *     candidate matches may not exceed the baseline at all.
+   */
+  public static void validate(Class<?> clazz, int tolerance) {
+    validate(
+        clazz,
+        getPerformanceArgs(
+            ImmutableSet.of(clazz.getSimpleName()),
+            tolerance,
+            getPerformanceBaselineOutputDirectory()));
+  }
+
+  private static void validate(Class<?> clazz, ImmutableList<String> extraArgs) {
     String className = clazz.getSimpleName();
 
     BugCheckerRefactoringTestHelper.newInstance(RefasterRuleCollection.class, clazz)
         .setArgs(
-            "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
-            "-XepOpt:" + RULE_COLLECTION_FLAG + '=' + className)
-        .addInput(className + "TestInput.java")
-        .addOutput(className + "TestOutput.java")
+            ImmutableList.<String>builder()
+                .add("--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED")
+                .add("-XepOpt:" + RULE_COLLECTION_FLAG + '=' + className)
+                .addAll(extraArgs)
+                .build())
+        .addInput(className + TEST_INPUT_SUFFIX)
+        .addOutput(className + TEST_OUTPUT_SUFFIX)
         .doTest(TestMode.TEXT_MATCH);
   }
 
+  /**
+   * Verifies the given Refaster rule collections in the same manner as {@link #validate(Class)},
+   * but using a single compilation.
+   *
+   * <p>All test input files are compiled together, after which each is processed using only the
+   * rules of the associated collection. This avoids repeatedly paying the cost of setting up a
+   * compiler and selecting the rules under test. Violations are reported for all rule collections
+   * at once, in the same format as used by {@link #validate(Class)}.
+   *
+   * @param classes The Refaster rule collections under test; their simple names must be distinct.
+   */
+  public static void validateAll(Iterable<Class<?>> classes) {
+    validateAll(classes, ImmutableList.of());
+  }
+
+  /**
+   * Verifies the given Refaster rule collections in the same manner as {@link
+   * #validateAll(Iterable)}, and additionally verifies the performance of the specified subset of
+   * these rule collections in the same manner as {@link #validate(Class, int)}.
+   *
+   * @param classes The Refaster rule collections under test; their simple names must be distinct.
+   * @param performanceClasses The Refaster rule collections whose performance to verify.
+   * @param tolerance The factor by which a rule's relative cost may exceed the baseline.
+   */
+  public static void validateAll(
+      Iterable<Class<?>> classes, Set<Class<?>> performanceClasses, int tolerance) {
+    validateAll(classes, performanceClasses, tolerance, getPerformanceBaselineOutputDirectory());
+  }
+
+  /**
+   * Verifies the given Refaster rule collections in the same manner as {@link
+   * #validateAll(Iterable, Set, int)}, but explicitly specifies whether to record new performance
+   * baselines.
+   */
+  @VisibleForTesting
+  static void validateAll(
+      Iterable<Class<?>> classes,
+      Set<Class<?>> performanceClasses,
+      int tolerance,
+      @Nullable Path performanceBaselineOutputDirectory) {
+    checkArgument(
+        ImmutableSet.copyOf(classes).containsAll(performanceClasses),
+        "Performance can only be verified for rule collections under test");
+    validateAll(
+        classes,
+        getPerformanceArgs(
+            performanceClasses.stream().map(Class::getSimpleName).collect(toImmutableSet()),
+            tolerance,
+            performanceBaselineOutputDirectory));
+  }
+
+  private static void validateAll(Iterable<Class<?>> classes, ImmutableList<String> extraArgs) {
+    ImmutableMap<String, Class<?>> ruleCollections =
+        Maps.uniqueIndex(classes, Class::getSimpleName);
+
+    RefasterRuleCollectionBatch.validate(
+        RefasterRuleCollection.class,
+        ImmutableList.<String>builder()
+            .add("--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED")
+            .add(
+                "-XepOpt:"
+                    + RULE_COLLECTION_FLAG
+                    + '='
+                    + String.join(",", ruleCollections.keySet()))
+            .addAll(extraArgs)
+            .build(),
+        Maps.transformEntries(
+            ruleCollections,
+            (name, clazz) -> FileObjects.forResource(clazz, name + TEST_INPUT_SUFFIX)),
+        Maps.transformEntries(
+            ruleCollections,
+            (name, clazz) -> FileObjects.forResource(clazz, name + TEST_OUTPUT_SUFFIX)));
+  }
+
+  private static @Nullable Path getPerformanceBaselineOutputDirectory() {
+    String directory = System.getProperty(PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_PROPERTY);
+    return directory == null ? null : Path.of(directory);
+  }
+
+  private static ImmutableList<String> getPerformanceArgs(
+      ImmutableSet<String> performanceRuleCollections,
+      int tolerance,
+      @Nullable Path performanceBaselineOutputDirectory) {
+    checkArgument(tolerance >= 1, "Tolerance must be at least 1");
+    ImmutableList.Builder<String> args =
+        ImmutableList.<String>builder()
+            .add(
+                "-XepOpt:"
+                    + PERFORMANCE_RULE_COLLECTIONS_FLAG
+                    + '='
+                    + String.join(",", performanceRuleCollections))
+            .add("-XepOpt:" + PERFORMANCE_TOLERANCE_FLAG + '=' + tolerance);
+    if (performanceBaselineOutputDirectory != null) {
+      args.add(
+          "-XepOpt:"
+              + PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_FLAG
+              + '='
+              + performanceBaselineOutputDirectory.toAbsolutePath());
+    }
+    return args.build();
+  }
+
   @Override
   public Description matchCompilationUnit(CompilationUnitTree tree, VisitorState state) {
-    reportIncorrectClassName(tree, state);
+    String ruleCollectionUnderTest = getRuleCollectionUnderTest(tree);
+    reportIncorrectClassName(tree, ruleCollectionUnderTest, state);
+
+    Refaster delegate =
+        requireNonNull(delegates.get(ruleCollectionUnderTest), "Unknown rule collection");
+    ImmutableSortedSet<String> expectedRules =
+        requireNonNull(rulesUnderTest.get(ruleCollectionUnderTest), "Unknown rule collection");
 
     List<Description> matches = new ArrayList<>();
     delegate.matchCompilationUnit(
@@ -145,13 +340,41 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
         indexRuleMatches(matches, ((JCCompilationUnit) tree).endPositions);
 
     matches.forEach(state::reportMatch);
-    reportMissingMatches(tree, indexedMatches, state);
+    reportMissingMatches(tree, expectedRules, indexedMatches, state);
     reportUnexpectedMatches(tree, indexedMatches, state);
+    if (performanceRuleCollections.contains(ruleCollectionUnderTest)) {
+      reportPerformanceRegressions(tree, ruleCollectionUnderTest, matches, state);
+    }
 
     return Description.NO_MATCH;
   }
 
-  private void reportIncorrectClassName(CompilationUnitTree tree, VisitorState state) {
+  /**
+   * Returns the name of the rule collection exercised by the given test input file.
+   *
+   * <p>If multiple rule collections are under test, then the rule collection is derived from the
+   * name of the test input file.
+   */
+  private String getRuleCollectionUnderTest(CompilationUnitTree tree) {
+    if (delegates.size() == 1) {
+      return Iterables.getOnlyElement(delegates.keySet());
+    }
+
+    String sourceFile =
+        getSubstringAfterFinalDelimiter('/', ((JCCompilationUnit) tree).sourcefile.getName());
+    checkState(
+        sourceFile.endsWith(TEST_INPUT_SUFFIX), "Unexpected test input file `%s`", sourceFile);
+    String ruleCollection =
+        sourceFile.substring(0, sourceFile.length() - TEST_INPUT_SUFFIX.length());
+    checkState(
+        delegates.containsKey(ruleCollection),
+        "Test input file `%s` does not correspond to a rule collection under test",
+        sourceFile);
+    return ruleCollection;
+  }
+
+  private void reportIncorrectClassName(
+      CompilationUnitTree tree, String ruleCollectionUnderTest, VisitorState state) {
     String expectedClassName = ruleCollectionUnderTest + "Test";
 
     for (Tree typeDeclaration : tree.getTypeDecls()) {
@@ -193,11 +416,11 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
 
   private void reportMissingMatches(
       CompilationUnitTree tree,
+      ImmutableSortedSet<String> expectedRules,
       ImmutableRangeMap<Integer, String> indexedMatches,
       VisitorState state) {
     ImmutableSet<String> rulesWithoutMatch =
-        Sets.difference(
-                rulesUnderTest, ImmutableSet.copyOf(indexedMatches.asMapOfRanges().values()))
+        Sets.difference(expectedRules, ImmutableSet.copyOf(indexedMatches.asMapOfRanges().values()))
             .immutableCopy();
     if (!rulesWithoutMatch.isEmpty()) {
       String sourceFile = ((JCCompilationUnit) tree).sourcefile.getName();
@@ -219,6 +442,56 @@ public final class RefasterRuleCollection extends BugChecker implements Compilat
     unexpectedMatchReporter.scan(tree.getTypeDecls(), state);
   }
 
+  private void reportPerformanceRegressions(
+      CompilationUnitTree tree,
+      String ruleCollectionUnderTest,
+      List<Description> matches,
+      VisitorState state) {
+    ImmutableSortedMap<String, Measurement> measurements =
+        RefasterRulePerformance.measure(
+            getRuleTransformers(ruleCollectionUnderTest),
+            matches.stream()
+                .map(RefasterRuleCollection::extractRefasterRuleName)
+                .collect(toImmutableMultiset()),
+            state);
+
+    String packageName = ((JCCompilationUnit) tree).packge.getQualifiedName().toString();
+    String baselineFile = ruleCollectionUnderTest + PERFORMANCE_BASELINE_SUFFIX;
+    String baselineResource =
+        packageName.isEmpty() ? baselineFile : packageName.replace('.', '/') + '/' + baselineFile;
+    if (performanceBaselineOutputDirectory != null) {
+      RefasterRulePerformance.writeBaseline(
+          measurements, Path.of(performanceBaselineOutputDirectory, baselineResource));
+      return;
+    }
+
+    URL baseline = RefasterRuleCollection.class.getClassLoader().getResource(baselineResource);
+    if (baseline == null) {
+      reportViolations(
+          tree,
+          "Missing performance baseline",
+          ImmutableSet.of(
+              String.format(
+                  "Resource `%s` does not exist; set the `%s` system property to record it.",
+                  baselineResource, PERFORMANCE_BASELINE_OUTPUT_DIRECTORY_PROPERTY)),
+          state);
+      return;
+    }
+
+    ImmutableSet<String> regressions =
+        RefasterRulePerformance.findRegressions(
+            RefasterRulePerformance.readBaseline(baseline), measurements, performanceTolerance);
+    if (!regressions.isEmpty()) {
+      reportViolations(
+          tree,
+          String.format(
+              "The following rule(s) regressed relative to performance baseline `%s`",
+              baselineFile),
+          regressions,
+          state);
+    }
+  }
+
   private void reportViolations(
       Tree tree, String message, ImmutableSet<String> violations, VisitorState state) {
     String violationEnumeration = String.join(String.format("%n*  - "), violations);
@@ -0,0 +1,195 @@
+package tech.picnic.errorprone.refaster.test;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Streams;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.FileManagers;
+import com.google.errorprone.ImportOrderParser;
+import com.google.errorprone.InvalidCommandLineOptionException;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.apply.DescriptionBasedDiff;
+import com.google.errorprone.apply.SourceFile;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.scanner.ErrorProneScannerTransformer;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.google.googlejavaformat.java.Formatter;
+import com.google.googlejavaformat.java.FormatterException;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+
+/**
+ * Applies a refactoring {@link BugChecker} to multiple test input files using a single compilation,
+ * and verifies that the result of each matches the associated test output file.
+ *
+ * <p>This class mirrors the behavior of {@link
+ * com.google.errorprone.BugCheckerRefactoringTestHelper} in {@link
+ * com.google.errorprone.BugCheckerRefactoringTestHelper.TestMode#TEXT_MATCH text match} mode, which
+ * instead compiles all test input files once for each input-output pair.
+ */
+final class RefasterRuleCollectionBatch {
+  private static final String IMPORT_ORDER = "static-first";
+
+  private RefasterRuleCollectionBatch() {}
+
+  /**
+   * Applies the given {@link BugChecker} to the given test input files, and verifies the result.
+   *
+   * @param checker The refactoring {@link BugChecker} to apply.
+   * @param args The compiler arguments, possibly including Error Prone flags.
+   * @param inputs The test input files, by name.
+   * @param outputs The expected test output files, using the same names as {@code inputs}.
+   * @throws AssertionError If any of the test input files or the expected test output files fail to
+   *     compile, or if the result of refactoring any of the test input files does not match the
+   *     associated test output file.
+   */
+  static void validate(
+      Class<? extends BugChecker> checker,
+      ImmutableList<String> args,
+      Map<String, JavaFileObject> inputs,
+      Map<String, JavaFileObject> outputs) {
+    Map<String, AssertionError> failures = new LinkedHashMap<>();
+
+    Context context = new Context();
+    ErrorProneOptions errorProneOptions = parseArgs(args);
+    ImmutableMap<URI, JCCompilationUnit> trees =
+        compile(inputs.values(), errorProneOptions, context);
+    ErrorProneScannerTransformer transformer =
+        ErrorProneScannerTransformer.create(
+            ScannerSupplier.fromBugCheckerClasses(checker).applyOverrides(errorProneOptions).get());
+    for (Map.Entry<String, JavaFileObject> input : inputs.entrySet()) {
+      JCCompilationUnit tree = trees.get(input.getValue().toUri());
+      checkState(tree != null, "No compilation unit for `%s`", input.getKey());
+      JavaFileObject output = outputs.get(input.getKey());
+      checkState(output != null, "No test output file for `%s`", input.getKey());
+      String actual = refactor(transformer, input.getValue(), tree, context);
+      try {
+        assertThat(maybeFormat(actual)).isEqualTo(maybeFormat(getCharContent(output)));
+      } catch (AssertionError e) {
+        failures.put(input.getKey(), e);
+      }
+    }
+    JavaCompiler.instance(context).close();
+
+    Context outputContext = new Context();
+    compile(outputs.values(), parseArgs(args), outputContext);
+    JavaCompiler.instance(outputContext).close();
+
+    if (!failures.isEmpty()) {
+      AssertionError error =
+          new AssertionError(
+              failures.entrySet().stream()
+                  .map(e -> String.format("%s:%n%s", e.getKey(), e.getValue().getMessage()))
+                  .collect(
+                      joining(
+                          String.format("%n%n"),
+                          String.format("Validation failed for %s input(s):%n", failures.size()),
+                          "")));
+      failures.values().forEach(error::addSuppressed);
+      throw error;
+    }
+  }
+
+  private static ErrorProneOptions parseArgs(ImmutableList<String> args) {
+    try {
+      return ErrorProneOptions.processArgs(args);
+    } catch (InvalidCommandLineOptionException e) {
+      throw new IllegalArgumentException("Exception during argument processing: " + e, e);
+    }
+  }
+
+  @CanIgnoreReturnValue
+  private static ImmutableMap<URI, JCCompilationUnit> compile(
+      Iterable<JavaFileObject> files, ErrorProneOptions errorProneOptions, Context context) {
+    context.put(ErrorProneOptions.class, errorProneOptions);
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    StringWriter out = new StringWriter();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    new PrintWriter(out, /* autoFlush= */ true),
+                    FileManagers.testFileManager(),
+                    diagnostics,
+                    errorProneOptions.getRemainingArgs(),
+                    /* classes= */ null,
+                    files,
+                    context);
+
+    Iterable<? extends CompilationUnitTree> trees = task.parse();
+    task.analyze();
+
+    ImmutableList<Diagnostic<? extends JavaFileObject>> errors =
+        diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .collect(toImmutableList());
+    if (!errors.isEmpty()) {
+      throw new AssertionError(out + "compilation failed unexpectedly: " + errors);
+    }
+
+    return Streams.stream(trees)
+        .collect(toImmutableMap(t -> t.getSourceFile().toUri(), t -> (JCCompilationUnit) t));
+  }
+
+  private static String refactor(
+      ErrorProneScannerTransformer transformer,
+      JavaFileObject input,
+      JCCompilationUnit tree,
+      Context context) {
+    DescriptionBasedDiff diff =
+        DescriptionBasedDiff.create(tree, ImportOrderParser.getImportOrganizer(IMPORT_ORDER));
+    transformer.apply(
+        new TreePath(tree),
+        context,
+        description -> {
+          if (!description.fixes.isEmpty()) {
+            diff.handleFix(description.fixes.get(0));
+          }
+        });
+
+    try {
+      SourceFile sourceFile = SourceFile.create(input);
+      diff.applyDifferences(sourceFile);
+      return sourceFile.getSourceText();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + input.getName(), e);
+    }
+  }
+
+  private static String getCharContent(JavaFileObject file) {
+    try {
+      return file.getCharContent(/* ignoreEncodingErrors= */ false).toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + file.getName(), e);
+    }
+  }
+
+  private static String maybeFormat(String source) {
+    try {
+      return new Formatter().formatSource(source);
+    } catch (FormatterException e) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package tech.picnic.errorprone.refaster.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.SubContext;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Description;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Utility class for measuring the cost of matching Refaster rules against a test input file, and
+ * for comparing such measurements against a previously recorded baseline.
+ *
+ * <p>For each rule, the relative cost of applying it to the test input file, the number of
+ * candidate matches it produced and the number of those candidates that were subsequently discarded
+ * (because they overlap with a preferred match) are tracked. The relative cost of a rule is its
+ * wall time divided by the median wall time of all rules in the collection. Unlike absolute wall
+ * times, such ratios can be compared across hosts. Wall times are measured repeatedly, retaining
+ * the fastest run.
+ *
+ * <p>Baselines are stored as tab-separated files, with one line per rule.
+ */
+final class RefasterRulePerformance {
+  private static final String HEADER =
+      "# Refaster rule performance baseline, format version 1\n"
+          + "# rule\trelativeCost\tmatches\tdiscardedMatches";
+  private static final int FIELD_COUNT = 4;
+  private static final int TIMING_ITERATIONS = 5;
+
+  /**
+   * The relative cost below which measurements are considered too noisy to be compared in a
+   * meaningful way; i.e., rules that are at most as expensive as the median rule are considered
+   * equivalent.
+   */
+  private static final double MINIMUM_RELATIVE_COST = 1;
+
+  private static final Splitter FIELD_SPLITTER = Splitter.on('\t');
+  private static final Joiner FIELD_JOINER = Joiner.on('\t');
+
+  private RefasterRulePerformance() {}
+
+  /**
+   * Measures the cost of applying each of the given Refaster rules to the compilation unit
+   * associated with the given {@link VisitorState}.
+   *
+   * @param rules The {@link CodeTransformer}s that make up each rule, by rule name.
+   * @param selectedMatches The names of the rules that produced each match that was ultimately
+   *     reported.
+   * @param state The {@link VisitorState} describing the compilation unit to be matched.
+   * @return The measurements, by rule name.
+   */
+  static ImmutableSortedMap<String, Measurement> measure(
+      ImmutableListMultimap<String, CodeTransformer> rules,
+      ImmutableMultiset<String> selectedMatches,
+      VisitorState state) {
+    /*
+     * Each iteration measures all rules, such that JIT warm-up affects the first iteration of each
+     * rule, rather than the first rule.
+     */
+    Map<String, Long> wallTimesNanos = new HashMap<>();
+    Map<String, Integer> matches = new HashMap<>();
+    for (int i = 0; i < TIMING_ITERATIONS; i++) {
+      for (String rule : rules.keySet()) {
+        List<Description> candidates = new ArrayList<>();
+        long start = System.nanoTime();
+        for (CodeTransformer transformer : rules.get(rule)) {
+          transformer.apply(state.getPath(), new SubContext(state.context), candidates::add);
+        }
+        wallTimesNanos.merge(rule, System.nanoTime() - start, Math::min);
+        matches.put(rule, candidates.size());
+      }
+    }
+
+    long medianWallTimeNanos = Math.max(1, getMedian(wallTimesNanos.values()));
+    ImmutableSortedMap.Builder<String, Measurement> measurements =
+        ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<String, Long> entry : wallTimesNanos.entrySet()) {
+      String rule = entry.getKey();
+      int ruleMatches = matches.getOrDefault(rule, 0);
+      measurements.put(
+          rule,
+          Measurement.create(
+              (double) entry.getValue() / medianWallTimeNanos,
+              ruleMatches,
+              Math.max(0, ruleMatches - selectedMatches.count(rule))));
+    }
+    return measurements.buildOrThrow();
+  }
+
+  private static long getMedian(Collection<Long> values) {
+    if (values.isEmpty()) {
+      return 0;
+    }
+
+    ImmutableList<Long> sorted = ImmutableList.sortedCopyOf(values);
+    return sorted.get(sorted.size() / 2);
+  }
+
+  /**
+   * Reads the baseline stored in the given resource.
+   *
+   * @param resource The resource from which to read the baseline.
+   * @return The baseline measurements by rule name.
+   */
+  static ImmutableMap<String, Measurement> readBaseline(URL resource) {
+    try {
+      String content = Resources.toString(resource, UTF_8);
+      if (!content.startsWith(HEADER)) {
+        throw new IllegalArgumentException(
+            String.format("Unsupported Refaster rule performance baseline '%s'", resource));
+      }
+
+      ImmutableMap.Builder<String, Measurement> baseline = ImmutableMap.builder();
+      for (String line : content.substring(HEADER.length()).lines().toList()) {
+        if (!line.isEmpty()) {
+          List<String> fields = FIELD_SPLITTER.splitToList(line);
+          if (fields.size() != FIELD_COUNT) {
+            throw new IllegalArgumentException(
+                String.format("Malformed baseline entry '%s' in '%s'", line, resource));
+          }
+          baseline.put(
+              fields.get(0),
+              Measurement.create(
+                  Double.parseDouble(fields.get(1)),
+                  Integer.parseInt(fields.get(2)),
+                  Integer.parseInt(fields.get(3))));
+        }
+      }
+      return baseline.buildOrThrow();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Refaster rule performance baseline", e);
+    }
+  }
+
+  /**
+   * Writes the given measurements as a baseline, ordered by rule name.
+   *
+   * @param measurements The measurements by rule name.
+   * @param file The file to which to write the baseline.
+   */
+  static void writeBaseline(Map<String, Measurement> measurements, Path file) {
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Map.Entry<String, Measurement> entry :
+            ImmutableSortedMap.copyOf(measurements).entrySet()) {
+          Measurement measurement = entry.getValue();
+          FIELD_JOINER.appendTo(
+              writer,
+              entry.getKey(),
+              String.format(Locale.ROOT, "%.2f", measurement.relativeCost()),
+              measurement.matches(),
+              measurement.discardedMatches());
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write Refaster rule performance baseline", e);
+    }
+  }
+
+  /**
+   * Compares the given measurements against the given baseline.
+   *
+   * <p>A rule regresses if it produces or discards more candidate matches than recorded in the
+   * baseline, or if its relative cost exceeds the baseline by more than the given factor. Relative
+   * costs below {@value #MINIMUM_RELATIVE_COST} are considered equivalent. Baseline entries of
+   * rules that were not measured are reported as well, so that the baseline does not go stale.
+   *
+   * @param baseline The baseline measurements by rule name.
+   * @param measurements The current measurements by rule name.
+   * @param tolerance The factor by which a rule's relative cost may exceed the baseline.
+   * @return A description of each regression or stale baseline entry; empty if there are none.
+   */
+  static ImmutableSet<String> findRegressions(
+      Map<String, Measurement> baseline, Map<String, Measurement> measurements, int tolerance) {
+    ImmutableSet.Builder<String> regressions = ImmutableSet.builder();
+    for (String rule :
+        ImmutableSortedSet.copyOf(Sets.difference(baseline.keySet(), measurements.keySet()))) {
+      regressions.add(
+          String.format("Rule `%s` is listed in the baseline, but does not exist.", rule));
+    }
+
+    for (Map.Entry<String, Measurement> entry :
+        ImmutableSortedMap.copyOf(measurements).entrySet()) {
+      String rule = entry.getKey();
+      Measurement actual = entry.getValue();
+      Measurement expected = baseline.get(rule);
+      if (expected == null) {
+        regressions.add(String.format("Rule `%s` is absent from the baseline.", rule));
+        continue;
+      }
+
+      if (actual.matches() > expected.matches()) {
+        regressions.add(
+            String.format(
+                "Rule `%s` produced %s candidate match(es), while the baseline permits %s.",
+                rule, actual.matches(), expected.matches()));
+      }
+      if (actual.discardedMatches() > expected.discardedMatches()) {
+        regressions.add(
+            String.format(
+                "Rule `%s` discarded %s candidate match(es), while the baseline permits %s.",
+                rule, actual.discardedMatches(), expected.discardedMatches()));
+      }
+
+      if (actual.relativeCost()
+          > Math.max(expected.relativeCost(), MINIMUM_RELATIVE_COST) * tolerance) {
+        regressions.add(
+            String.format(
+                Locale.ROOT,
+                "Rule `%s` costs %.2f times the median rule, more than %s times the baseline of %.2f.",
+                rule,
+                actual.relativeCost(),
+                tolerance,
+                expected.relativeCost()));
+      }
+    }
+    return regressions.build();
+  }
+
+  /** The cost of matching a single Refaster rule against a test input file. */
+  @AutoValue
+  abstract static class Measurement {
+    /**
+     * The wall time spent matching the rule, divided by the median wall time of all rules in the
+     * collection.
+     */
+    abstract double relativeCost();
+
+    abstract int matches();
+
+    abstract int discardedMatches();
+
+    static Measurement create(double relativeCost, int matches, int discardedMatches) {
+      return new AutoValue_RefasterRulePerformance_Measurement(
+          relativeCost, matches, discardedMatches);
+    }
+  }
+}
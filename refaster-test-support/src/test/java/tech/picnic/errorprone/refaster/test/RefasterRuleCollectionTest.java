@@ -1,5 +1,12 @@
 package tech.picnic.errorprone.refaster.test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -14,6 +21,16 @@ import org.junit.jupiter.params.provider.ValueSource;
  * normally not present.
  */
 final class RefasterRuleCollectionTest {
+  private static final ImmutableSet<Class<?>> RULE_COLLECTIONS =
+      ImmutableSet.of(
+          MatchInWrongMethodRules.class,
+          MethodWithoutPrefixRules.class,
+          MisnamedTestClassRules.class,
+          MissingTestAndWrongTestRules.class,
+          PartialTestMatchRules.class,
+          RuleWithoutTestRules.class,
+          ValidRules.class);
+
   @ParameterizedTest
   @ValueSource(
       classes = {
@@ -28,4 +45,43 @@ final class RefasterRuleCollectionTest {
   void verifyRefasterRuleCollections(Class<?> clazz) {
     RefasterRuleCollection.validate(clazz);
   }
+
+  @Test
+  void verifyRefasterRuleCollectionsInBatch() {
+    RefasterRuleCollection.validateAll(RULE_COLLECTIONS);
+  }
+
+  @Test
+  void verifyRefasterRuleCollectionsWithPerformanceBaseline(@TempDir Path outputDirectory) {
+    RefasterRuleCollection.validateAll(
+        RULE_COLLECTIONS, ImmutableSet.of(ValidRules.class), 100, outputDirectory);
+
+    assertThat(
+            outputDirectory.resolve(
+                "tech/picnic/errorprone/refaster/test/ValidRulesPerformanceBaseline.tsv"))
+        .exists();
+
+    RefasterRuleCollection.validateAll(RULE_COLLECTIONS, ImmutableSet.of(ValidRules.class), 100);
+    RefasterRuleCollection.validate(ValidRules.class, 100);
+  }
+
+  @Test
+  void verifyRefasterRuleCollectionWithMissingPerformanceBaseline() {
+    assertThatThrownBy(() -> RefasterRuleCollection.validate(MethodWithoutPrefixRules.class, 100))
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining(
+            "`tech/picnic/errorprone/refaster/test/MethodWithoutPrefixRulesPerformanceBaseline.tsv` does not exist");
+  }
+
+  @Test
+  void verifyRefasterRuleCollectionsWithUnrelatedPerformanceClass() {
+    assertThatThrownBy(
+            () ->
+                RefasterRuleCollection.validateAll(
+                    ImmutableSet.of(ValidRules.class),
+                    ImmutableSet.of(MethodWithoutPrefixRules.class),
+                    100))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Performance can only be verified for rule collections under test");
+  }
 }
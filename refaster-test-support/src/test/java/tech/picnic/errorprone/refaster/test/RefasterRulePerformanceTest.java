@@ -0,0 +1,49 @@
+package tech.picnic.errorprone.refaster.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import java.net.MalformedURLException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.picnic.errorprone.refaster.test.RefasterRulePerformance.Measurement;
+
+final class RefasterRulePerformanceTest {
+  @Test
+  void baselineRoundTrip(@TempDir Path directory) throws MalformedURLException {
+    Path file = directory.resolve("baseline.tsv");
+    ImmutableMap<String, Measurement> measurements =
+        ImmutableMap.of(
+            "RuleB", Measurement.create(1.5, 2, 1), "RuleA", Measurement.create(0.25, 1, 0));
+
+    RefasterRulePerformance.writeBaseline(measurements, file);
+
+    assertThat(RefasterRulePerformance.readBaseline(file.toUri().toURL())).isEqualTo(measurements);
+  }
+
+  @Test
+  void findRegressions() {
+    ImmutableMap<String, Measurement> baseline =
+        ImmutableMap.of(
+            "Cheap", Measurement.create(0.1, 1, 0),
+            "Expensive", Measurement.create(2, 1, 0),
+            "Broad", Measurement.create(1, 1, 0),
+            "Removed", Measurement.create(1, 1, 0));
+    ImmutableMap<String, Measurement> measurements =
+        ImmutableMap.of(
+            "Cheap", Measurement.create(0.9, 1, 0),
+            "Expensive", Measurement.create(12, 1, 0),
+            "Broad", Measurement.create(1, 3, 2),
+            "New", Measurement.create(0.5, 1, 0));
+
+    assertThat(RefasterRulePerformance.findRegressions(baseline, measurements, 5))
+        .containsExactly(
+            "Rule `Removed` is listed in the baseline, but does not exist.",
+            "Rule `Broad` produced 3 candidate match(es), while the baseline permits 1.",
+            "Rule `Broad` discarded 2 candidate match(es), while the baseline permits 0.",
+            "Rule `Expensive` costs 12.00 times the median rule, more than 5 times the baseline of 2.00.",
+            "Rule `New` is absent from the baseline.");
+    assertThat(RefasterRulePerformance.findRegressions(measurements, measurements, 1)).isEmpty();
+  }
+}